@@ -18,8 +18,8 @@ package eu.hansolo.fx.geomfx;
 
 import eu.hansolo.fx.geomfx.Path.WindingRule;
 import eu.hansolo.fx.geomfx.tools.Point;
-import eu.hansolo.fx.geomfx.transform.Affine;
 import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import eu.hansolo.fx.geomfx.transform.Projective;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.FillRule;
 
@@ -444,7 +444,10 @@ public class BezierCurve extends Shape {
         return !Shape.intersectsLine(x, y, width, height, x1, y1, x2, y2);
     }
 
-    public PathIterator getPathIterator(BaseTransform transform) { return new BezierCurveIterator(this, transform); }
+    public PathIterator getPathIterator(BaseTransform transform) {
+        if (Projective.isPerspective(transform)) { return new ProjectivePathIterator(new BezierCurveIterator(this, null), (Projective) transform); }
+        return new BezierCurveIterator(this, transform);
+    }
     public PathIterator getPathIterator(BaseTransform transform, double flatness) {
         return new FlatteningPathIterator(getPathIterator(transform), flatness);
     }
@@ -477,7 +480,7 @@ public class BezierCurve extends Shape {
     }
 
     @Override public void draw(final GraphicsContext ctx, final boolean doFill, final boolean doStroke) {
-        PathIterator pi = getPathIterator(new Affine());
+        PathIterator pi = getPathIterator(null);
 
         ctx.setFillRule(WindingRule.WIND_EVEN_ODD == pi.getWindingRule() ? FillRule.EVEN_ODD : FillRule.NON_ZERO);
         ctx.beginPath();
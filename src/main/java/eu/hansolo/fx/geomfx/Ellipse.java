@@ -17,6 +17,7 @@
 package eu.hansolo.fx.geomfx;
 
 import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import eu.hansolo.fx.geomfx.transform.Projective;
 import javafx.scene.canvas.GraphicsContext;
 
 
@@ -113,7 +114,10 @@ public class Ellipse extends RectangularShape {
                 contains(x + width, y + height));
     }
 
-    public PathIterator getPathIterator(BaseTransform transform) { return new EllipseIterator(this, transform); }
+    public PathIterator getPathIterator(BaseTransform transform) {
+        if (Projective.isPerspective(transform)) { return new ProjectivePathIterator(new EllipseIterator(this, null), (Projective) transform); }
+        return new EllipseIterator(this, transform);
+    }
 
     @Override public Ellipse copy() { return new Ellipse(x, y, width, height); }
 
@@ -18,8 +18,8 @@ package eu.hansolo.fx.geomfx;
 
 import eu.hansolo.fx.geomfx.tools.IllegalPathStateException;
 import eu.hansolo.fx.geomfx.tools.Point;
-import eu.hansolo.fx.geomfx.transform.Affine;
 import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import eu.hansolo.fx.geomfx.transform.Projective;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
@@ -57,6 +57,8 @@ public class Path extends Shape {
     double      moveX, moveY;
     double      prevX, prevY;
     double      currentX, currentY;
+    // Counts changes that do more than append commands, caches of the path like PathTool use it to detect pure appends
+    int         modCount;
 
     public Path() {
         this(WindingRule.WIND_NON_ZERO, INIT_SIZE);
@@ -73,7 +75,8 @@ public class Path extends Shape {
         this(SHAPE, null);
     }
     public Path(final Shape SHAPE, final BaseTransform TRANSFORM) {
-        if (SHAPE instanceof Path) {
+        // Curves have to be flattened under perspective, so only affine transforms can copy the coordinates
+        if (SHAPE instanceof Path && !Projective.isPerspective(TRANSFORM)) {
             Path p2d = (Path) SHAPE;
             setWindingRule(p2d.windingRule);
             this.numTypes = p2d.numTypes;
@@ -153,6 +156,7 @@ public class Path extends Shape {
     public final void moveTo(final Point P) { moveTo(P.getX(), P.getY()); }
     public final void moveTo(final double X, final double Y) {
         if (numTypes > 0 && pointTypes[numTypes - 1] == SEG_MOVETO) {
+            modCount++;
             doubleCoords[numCoords-2] = moveX = prevX = currentX = X;
             doubleCoords[numCoords-1] = moveY = prevY = currentY = Y;
         } else {
@@ -168,6 +172,7 @@ public class Path extends Shape {
     }
     public final void moveToRel(final double X_REL, final double Y_REL) {
         if (numTypes > 0 && pointTypes[numTypes - 1] == SEG_MOVETO) {
+            modCount++;
             doubleCoords[numCoords-2] = moveX = prevX = (currentX += X_REL);
             doubleCoords[numCoords-1] = moveY = prevY = (currentY += Y_REL);
         } else {
@@ -556,6 +561,12 @@ public class Path extends Shape {
 
     public final void transform(final BaseTransform TRANSFORM) {
         if (numCoords == 0) return;
+        // Perspective does not map curves onto curves, so they are flattened in device space like in Path(Shape, BaseTransform)
+        if (Projective.isPerspective(TRANSFORM)) {
+            setTo(new Path(this, TRANSFORM));
+            return;
+        }
+        modCount++;
         needRoom(false, 6);
         doubleCoords[numCoords + 0] = moveX;
         doubleCoords[numCoords + 1] = moveY;
@@ -594,11 +605,16 @@ public class Path extends Shape {
 
     public final int getNumCommands() { return numTypes; }
 
+    public final int getNumCoords() { return numCoords; }
+
     public final byte[] getCommandsNoClone() { return pointTypes; }
 
     public final double[] getDoubleCoordsNoClone() { return doubleCoords; }
 
+    public final int getModCount() { return modCount; }
+
     public PathIterator getPathIterator(final BaseTransform transform) {
+        if (Projective.isPerspective(transform)) { return new ProjectivePathIterator(new CopyIterator(this), (Projective) transform); }
         return null == transform ? new CopyIterator(this) : new TxIterator(this, transform);
     }
 
@@ -645,6 +661,49 @@ public class Path extends Shape {
         }
     }
     public final void append(final Shape SHAPE, final boolean CONNECT) { append(SHAPE.getPathIterator(null), CONNECT); }
+    // Copies NUM_COMMANDS commands of the given path, starting with the command FROM_COMMAND whose coordinates start at FROM_COORD
+    public final void append(final Path SOURCE, final int FROM_COMMAND, final int FROM_COORD, final int NUM_COMMANDS) {
+        if (NUM_COMMANDS <= 0) { return; }
+        if (FROM_COMMAND < 0 || FROM_COMMAND + NUM_COMMANDS > SOURCE.numTypes) { throw new IndexOutOfBoundsException("commands " + FROM_COMMAND + " to " + (FROM_COMMAND + NUM_COMMANDS) + " out of range"); }
+        if (numTypes == 0 && SOURCE.pointTypes[FROM_COMMAND] != SEG_MOVETO) { throw new IllegalPathStateException("missing initial moveto in path definition"); }
+        int count = 0;
+        for (int i = FROM_COMMAND ; i < FROM_COMMAND + NUM_COMMANDS ; i++) { count += curvecoords[SOURCE.pointTypes[i]]; }
+        if (numTypes + NUM_COMMANDS > pointTypes.length) { pointTypes = copyOf(pointTypes, numTypes + Math.max(NUM_COMMANDS, Math.min(pointTypes.length, EXPAND_MAX))); }
+        if (numCoords + count > doubleCoords.length)     { doubleCoords = copyOf(doubleCoords, numCoords + Math.max(count, Math.min(doubleCoords.length, EXPAND_MAX * 2))); }
+        System.arraycopy(SOURCE.pointTypes, FROM_COMMAND, pointTypes, numTypes, NUM_COMMANDS);
+        System.arraycopy(SOURCE.doubleCoords, FROM_COORD, doubleCoords, numCoords, count);
+        int firstType = numTypes;
+        numTypes  += NUM_COMMANDS;
+        numCoords += count;
+
+        // Restore move, previous and current point from the copied commands
+        int coordIndex = numCoords;
+        for (int i = numTypes - 1 ; i >= firstType ; i--) {
+            coordIndex -= curvecoords[pointTypes[i]];
+            if (pointTypes[i] == SEG_MOVETO) {
+                moveX = doubleCoords[coordIndex];
+                moveY = doubleCoords[coordIndex + 1];
+                break;
+            }
+        }
+        switch (pointTypes[numTypes - 1]) {
+            case SEG_CLOSE:
+                prevX = currentX = moveX;
+                prevY = currentY = moveY;
+                break;
+            case SEG_QUADTO:
+            case SEG_CUBICTO:
+                currentX = doubleCoords[numCoords - 2];
+                currentY = doubleCoords[numCoords - 1];
+                prevX    = doubleCoords[numCoords - 4];
+                prevY    = doubleCoords[numCoords - 3];
+                break;
+            default:
+                prevX = currentX = doubleCoords[numCoords - 2];
+                prevY = currentY = doubleCoords[numCoords - 1];
+                break;
+        }
+    }
 
     public final void appendOvalQuadrant(double sx, double sy, double cx, double cy, double ex, double ey, double tfrom, double tto, CornerPrefix prefix) {
         if (!(Double.compare(tfrom, 0) >= 0 && Double.compare(tfrom, tto) <= 0 && Double.compare(tto, 1.0) <= 0.0)) { throw new IllegalArgumentException("0 <= tfrom <= tto <= 1 required"); }
@@ -823,11 +882,12 @@ public class Path extends Shape {
     }
 
     public final void reset() {
+        modCount++;
         numTypes = numCoords = 0;
         moveX    = moveY = prevX = prevY = currentX = currentY = 0;
     }
 
-    public final Shape createTransformedShape(final BaseTransform TRANSFORM) { return new Path(this, TRANSFORM); }
+    public final Shape createTransformedShape(final BaseTransform TRANSFORM) { return new TransformedShape(this, TRANSFORM); }
 
     @Override public Path copy() { return new Path(this); }
 
@@ -918,6 +978,7 @@ public class Path extends Shape {
     }
 
     public void setTo(final Path OTHER_PATH) {
+        modCount++;
         numTypes  = OTHER_PATH.numTypes;
         numCoords = OTHER_PATH.numCoords;
 
@@ -1113,7 +1174,7 @@ public class Path extends Shape {
 
 
     @Override public void draw(final GraphicsContext ctx, final boolean doFill, final boolean doStroke) {
-        PathIterator pi = getPathIterator(new Affine());
+        PathIterator pi = getPathIterator(null);
 
         ctx.setFillRule(WindingRule.WIND_EVEN_ODD == pi.getWindingRule() ? FillRule.EVEN_ODD : FillRule.NON_ZERO);
         ctx.beginPath();
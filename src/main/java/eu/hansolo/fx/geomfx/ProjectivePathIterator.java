@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx;
+
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.transform.Projective;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+// Applies a perspective transform to an untransformed source iterator. A projected Bezier curve is a rational
+// Bezier curve with the projected control points and the w values as weights, so curves are subdivided in
+// homogeneous coordinates and flattened against the flatness in device space. As long as all weights are positive
+// the curve stays within the hull of its projected control points which makes the flatness test exact.
+public class ProjectivePathIterator implements PathIterator {
+    public  static final double DEFAULT_FLATNESS = 0.25;
+    private static final int    DEFAULT_LIMIT    = 16;
+
+    private final PathIterator src;
+    private final Projective   projective;
+    private final double       squareflat;
+    private final int          limit;
+    private final double[]     coords = new double[6];
+    private final double[]     tmp    = new double[12];
+    private final double[]     stack;
+    private final int[]        levels;
+    private       double[]     points = new double[64];
+    private       int          numPoints;
+    private       int          pointIndex;
+    private       int          type;
+    private       double       curx, cury;
+    private       double       movx, movy;
+    private       boolean      done;
+
+
+    public ProjectivePathIterator(final PathIterator SRC, final Projective PROJECTIVE) {
+        this(SRC, PROJECTIVE, DEFAULT_FLATNESS, DEFAULT_LIMIT);
+    }
+    public ProjectivePathIterator(final PathIterator SRC, final Projective PROJECTIVE, final double FLATNESS) {
+        this(SRC, PROJECTIVE, FLATNESS, DEFAULT_LIMIT);
+    }
+    public ProjectivePathIterator(final PathIterator SRC, final Projective PROJECTIVE, final double FLATNESS, final int LIMIT) {
+        if (FLATNESS < 0) { throw new IllegalArgumentException("flatness must be >= 0"); }
+        if (LIMIT < 0)    { throw new IllegalArgumentException("limit must be >= 0"); }
+        src        = SRC;
+        projective = PROJECTIVE;
+        squareflat = FLATNESS * FLATNESS;
+        limit      = LIMIT;
+        stack      = new double[12 * (LIMIT + 2)];
+        levels     = new int[LIMIT + 2];
+        load();
+    }
+
+
+    public boolean isDone() { return done; }
+
+    public void next() {
+        if (++pointIndex < numPoints) { return; }
+        src.next();
+        load();
+    }
+
+    public WindingRule getWindingRule() { return src.getWindingRule(); }
+
+    public int currentSegment(final double[] COORDS) {
+        if (isDone()) { throw new NoSuchElementException("projective iterator out of bounds"); }
+        if (type == CLOSE) { return CLOSE; }
+        COORDS[0] = points[pointIndex * 2];
+        COORDS[1] = points[pointIndex * 2 + 1];
+        return type;
+    }
+
+    private void load() {
+        if (src.isDone()) {
+            done = true;
+            return;
+        }
+        pointIndex = 0;
+        numPoints  = 1;
+        int srcType = src.currentSegment(coords);
+        switch (srcType) {
+            case MOVE_TO:
+                movx = curx = coords[0];
+                movy = cury = coords[1];
+                project(curx, cury, 0);
+                type = MOVE_TO;
+                break;
+            case LINE_TO:
+                curx = coords[0];
+                cury = coords[1];
+                project(curx, cury, 0);
+                type = LINE_TO;
+                break;
+            case QUAD_TO:
+                numPoints = 0;
+                flatten(2);
+                curx = coords[2];
+                cury = coords[3];
+                type = LINE_TO;
+                break;
+            case BEZIER_TO:
+                numPoints = 0;
+                flatten(3);
+                curx = coords[4];
+                cury = coords[5];
+                type = LINE_TO;
+                break;
+            case CLOSE:
+                curx = movx;
+                cury = movy;
+                type = CLOSE;
+                break;
+        }
+    }
+
+    private void project(final double X, final double Y, final int INDEX) {
+        double w = projective.getMwx() * X + projective.getMwy() * Y + projective.getMwt();
+        points[INDEX * 2]     = (projective.getMxx() * X + projective.getMxy() * Y + projective.getMxt()) / w;
+        points[INDEX * 2 + 1] = (projective.getMyx() * X + projective.getMyy() * Y + projective.getMyt()) / w;
+    }
+
+    // Depth first subdivision of the homogeneous control points, every curve on the stack takes 12 slots (4 points of x, y, w)
+    private void flatten(final int DEGREE) {
+        int n = DEGREE + 1;
+        setHomogeneous(stack, 0, curx, cury);
+        for (int i = 1; i < n; i++) { setHomogeneous(stack, i * 3, coords[i * 2 - 2], coords[i * 2 - 1]); }
+        int top = 0;
+        levels[0] = 0;
+        while (top >= 0) {
+            int offset = top * 12;
+            if (levels[top] >= limit || isFlat(stack, offset, DEGREE)) {
+                int last = offset + DEGREE * 3;
+                addPoint(stack[last] / stack[last + 2], stack[last + 1] / stack[last + 2]);
+                top--;
+            } else {
+                // Left half goes on top so the points come out in order
+                int level = levels[top] + 1;
+                subdivide(stack, offset, offset + 12, DEGREE);
+                levels[top]     = level;
+                levels[top + 1] = level;
+                top++;
+            }
+        }
+    }
+
+    private void setHomogeneous(final double[] DST, final int OFFSET, final double X, final double Y) {
+        DST[OFFSET]     = projective.getMxx() * X + projective.getMxy() * Y + projective.getMxt();
+        DST[OFFSET + 1] = projective.getMyx() * X + projective.getMyy() * Y + projective.getMyt();
+        DST[OFFSET + 2] = projective.getMwx() * X + projective.getMwy() * Y + projective.getMwt();
+    }
+
+    // Splits the curve at OFFSET at t = 0.5, the right half stays at OFFSET and the left half is written to LEFT
+    private void subdivide(final double[] C, final int OFFSET, final int LEFT, final int DEGREE) {
+        System.arraycopy(C, OFFSET, tmp, 0, (DEGREE + 1) * 3);
+        for (int k = 0; k < 3; k++) {
+            if (DEGREE == 2) {
+                double p0 = tmp[k], p1 = tmp[3 + k], p2 = tmp[6 + k];
+                double q0 = (p0 + p1) * 0.5, q1 = (p1 + p2) * 0.5, r = (q0 + q1) * 0.5;
+                C[LEFT + k]       = p0; C[LEFT + 3 + k]   = q0; C[LEFT + 6 + k]   = r;
+                C[OFFSET + k]     = r;  C[OFFSET + 3 + k] = q1; C[OFFSET + 6 + k] = p2;
+            } else {
+                double p0 = tmp[k], p1 = tmp[3 + k], p2 = tmp[6 + k], p3 = tmp[9 + k];
+                double q0 = (p0 + p1) * 0.5, q1 = (p1 + p2) * 0.5, q2 = (p2 + p3) * 0.5;
+                double r0 = (q0 + q1) * 0.5, r1 = (q1 + q2) * 0.5, s = (r0 + r1) * 0.5;
+                C[LEFT + k]       = p0; C[LEFT + 3 + k]   = q0; C[LEFT + 6 + k]   = r0; C[LEFT + 9 + k]   = s;
+                C[OFFSET + k]     = s;  C[OFFSET + 3 + k] = r1; C[OFFSET + 6 + k] = q2; C[OFFSET + 9 + k] = p3;
+            }
+        }
+    }
+
+    // Flat if all weights are positive and the projected inner control points are close to the projected chord
+    private boolean isFlat(final double[] C, final int OFFSET, final int DEGREE) {
+        for (int i = 0; i <= DEGREE; i++) {
+            if (C[OFFSET + i * 3 + 2] <= 0) { return false; }
+        }
+        int    last = OFFSET + DEGREE * 3;
+        double x1   = C[OFFSET] / C[OFFSET + 2];
+        double y1   = C[OFFSET + 1] / C[OFFSET + 2];
+        double x2   = C[last] / C[last + 2];
+        double y2   = C[last + 1] / C[last + 2];
+        for (int i = 1; i < DEGREE; i++) {
+            int o = OFFSET + i * 3;
+            if (Line.ptSegDistSq(x1, y1, x2, y2, C[o] / C[o + 2], C[o + 1] / C[o + 2]) >= squareflat) { return false; }
+        }
+        return true;
+    }
+
+    private void addPoint(final double X, final double Y) {
+        if (numPoints * 2 == points.length) { points = Arrays.copyOf(points, points.length * 2); }
+        points[numPoints * 2]     = X;
+        points[numPoints * 2 + 1] = Y;
+        numPoints++;
+    }
+}
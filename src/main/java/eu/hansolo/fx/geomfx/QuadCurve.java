@@ -18,8 +18,8 @@ package eu.hansolo.fx.geomfx;
 
 import eu.hansolo.fx.geomfx.Path.WindingRule;
 import eu.hansolo.fx.geomfx.tools.Point;
-import eu.hansolo.fx.geomfx.transform.Affine;
 import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import eu.hansolo.fx.geomfx.transform.Projective;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.shape.FillRule;
 
@@ -91,6 +91,22 @@ public class QuadCurve extends Shape {
         return Line.ptSegDist(x1, y1, x2, y2, ctrlx, ctrly);
     }
 
+    public void subdivide(final double T, final QuadCurve LEFT, final QuadCurve RIGHT) {
+        if (LEFT == null && RIGHT == null) { return; }
+        double x1   = this.x1;
+        double y1   = this.y1;
+        double x2   = this.x2;
+        double y2   = this.y2;
+        double u    = 1 - T;
+        double lcx  = u * x1 + T * ctrlx;
+        double lcy  = u * y1 + T * ctrly;
+        double rcx  = u * ctrlx + T * x2;
+        double rcy  = u * ctrly + T * y2;
+        double midx = u * lcx + T * rcx;
+        double midy = u * lcy + T * rcy;
+        if (LEFT != null)  { LEFT.setCurve(x1, y1, lcx, lcy, midx, midy); }
+        if (RIGHT != null) { RIGHT.setCurve(midx, midy, rcx, rcy, x2, y2); }
+    }
     public void subdivide(final QuadCurve LEFT, final QuadCurve RIGHT) { subdivide(this, LEFT, RIGHT); }
     public static void subdivide(final QuadCurve SOURCE, final QuadCurve LEFT, final QuadCurve RIGHT) {
         double x1     = SOURCE.x1;
@@ -309,7 +325,10 @@ public class QuadCurve extends Shape {
         return (contains(x, y) && contains(x + width, y) && contains(x + width, y + height) && contains(x, y + height));
     }
 
-    public PathIterator getPathIterator(BaseTransform transform) { return new QuadIterator(this, transform); }
+    public PathIterator getPathIterator(BaseTransform transform) {
+        if (Projective.isPerspective(transform)) { return new ProjectivePathIterator(new QuadIterator(this, null), (Projective) transform); }
+        return new QuadIterator(this, transform);
+    }
     public PathIterator getPathIterator(BaseTransform transform, double flatness) { return new FlatteningPathIterator(getPathIterator(transform), flatness); }
 
     @Override public QuadCurve copy() { return new QuadCurve(x1, y1, ctrlx, ctrly, x2, y2); }
@@ -324,7 +343,7 @@ public class QuadCurve extends Shape {
     }
 
     @Override public void draw(final GraphicsContext ctx, final boolean doFill, final boolean doStroke) {
-        PathIterator pi = getPathIterator(new Affine());
+        PathIterator pi = getPathIterator(null);
 
         ctx.setFillRule(WindingRule.WIND_EVEN_ODD == pi.getWindingRule() ? FillRule.EVEN_ODD : FillRule.NON_ZERO);
         ctx.beginPath();
@@ -18,8 +18,10 @@ package eu.hansolo.fx.geomfx;
 
 import eu.hansolo.fx.geomfx.tools.Helper;
 import eu.hansolo.fx.geomfx.tools.IllegalPathStateException;
+import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
 import eu.hansolo.fx.geomfx.tools.Point;
 import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import eu.hansolo.fx.geomfx.transform.Projective;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
@@ -54,6 +56,28 @@ public abstract class Shape {
     }
     public abstract boolean contains(final double x, final double y, final double width, final double height);
 
+    // Hit tests against the shape as drawn with the given transform, the query is mapped back instead of transforming the shape
+    public boolean contains(final double x, final double y, final BaseTransform transform) {
+        if (null == transform || transform.isIdentity()) { return contains(x, y); }
+        try {
+            Point point = transform.inverseTransform(new Point(x, y), new Point());
+            return contains(point.x, point.y);
+        } catch (NonInvertibleTransformException e) {
+            return false;
+        }
+    }
+    public boolean contains(final double x, final double y, final double width, final double height, final BaseTransform transform) {
+        if (null == transform || transform.isIdentity()) { return contains(x, y, width, height); }
+        // Rotated, sheared or projected rectangles are no rectangles in shape space anymore
+        if (transform.getMxy() != 0.0 || transform.getMyx() != 0.0 || Projective.isPerspective(transform)) { return Path.contains(getPathIterator(transform), x, y, width, height); }
+        try {
+            RectBounds bounds = (RectBounds) transform.inverseTransform(new RectBounds(x, y, x + width, y + height), new RectBounds());
+            return contains(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+        } catch (NonInvertibleTransformException e) {
+            return false;
+        }
+    }
+
     public abstract boolean intersects(final double x, final double y, final double width, final double height);
     public boolean intersects(final RectBounds bounds) {
         double x = bounds.getMinX();
@@ -62,6 +86,16 @@ public abstract class Shape {
         double h = bounds.getMaxY() - y;
         return intersects(x, y, w, h);
     }
+    public boolean intersects(final double x, final double y, final double width, final double height, final BaseTransform transform) {
+        if (null == transform || transform.isIdentity()) { return intersects(x, y, width, height); }
+        if (transform.getMxy() != 0.0 || transform.getMyx() != 0.0 || Projective.isPerspective(transform)) { return Path.intersects(getPathIterator(transform), x, y, width, height); }
+        try {
+            RectBounds bounds = (RectBounds) transform.inverseTransform(new RectBounds(x, y, x + width, y + height), new RectBounds());
+            return intersects(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight());
+        } catch (NonInvertibleTransformException e) {
+            return false;
+        }
+    }
 
     public abstract PathIterator getPathIterator(final BaseTransform transform);
     public abstract PathIterator getPathIterator(final BaseTransform transform, final double flatness);
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx;
+
+import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.shape.FillRule;
+
+
+// View of a shape under a transform that applies the transform while iterating instead of copying the coordinates.
+// Changes of the source shape show up in the view, use toPath() to get an independent copy.
+public class TransformedShape extends Shape {
+    private final Shape         shape;
+    private final BaseTransform transform;
+    private RectBounds          sourceBounds;
+    private int                 sourceModCount;
+    private int                 sourceNumCommands;
+
+
+    // ******************** Constructors **************************************
+    public TransformedShape(final Shape SHAPE, final BaseTransform TRANSFORM) {
+        if (null == SHAPE) { throw new IllegalArgumentException("Shape must not be null"); }
+        shape      = SHAPE;
+        transform  = null == TRANSFORM ? BaseTransform.IDENTITY_TRANSFORM : TRANSFORM.copy();
+        setFill(SHAPE.getFill());
+        setStroke(SHAPE.getStroke());
+        setLineWidth(SHAPE.getLineWidth());
+        setLineJoin(SHAPE.getLineJoin());
+        setLineCap(SHAPE.getLineCap());
+    }
+
+
+    // ******************** Methods *******************************************
+    public Shape getShape() { return shape; }
+
+    // The view keeps its own copy of the transform, changing the returned instance changes the view
+    public BaseTransform getTransform() { return transform; }
+
+    public Path toPath() {
+        Path path = new Path(shape, transform);
+        path.setFill(getFill());
+        path.setStroke(getStroke());
+        path.setLineWidth(getLineWidth());
+        path.setLineJoin(getLineJoin());
+        path.setLineCap(getLineCap());
+        return path;
+    }
+
+    // Transformed bounds of the source bounds, exact for axis aligned transforms and conservative for rotations and shears
+    @Override public RectBounds getBounds() {
+        return (RectBounds) transform.transform(getSourceBounds(), new RectBounds());
+    }
+
+    private RectBounds getSourceBounds() {
+        if (shape instanceof Path) {
+            // Paths are the only shapes that track changes, the mod count covers in place edits and the command count appends
+            Path path = (Path) shape;
+            if (null == sourceBounds || path.getModCount() != sourceModCount || path.getNumCommands() != sourceNumCommands) {
+                sourceBounds      = shape.getBounds();
+                sourceModCount    = path.getModCount();
+                sourceNumCommands = path.getNumCommands();
+            }
+            return sourceBounds;
+        }
+        return shape.getBounds();
+    }
+
+    @Override public boolean contains(final double x, final double y) { return shape.contains(x, y, transform); }
+
+    @Override public boolean contains(final double x, final double y, final double width, final double height) { return shape.contains(x, y, width, height, transform); }
+
+    @Override public boolean intersects(final double x, final double y, final double width, final double height) { return shape.intersects(x, y, width, height, transform); }
+
+    @Override public PathIterator getPathIterator(final BaseTransform TRANSFORM) {
+        if (null == TRANSFORM || TRANSFORM.isIdentity()) { return shape.getPathIterator(transform); }
+        return shape.getPathIterator(TRANSFORM.copy().deriveWithConcatenation(transform));
+    }
+
+    @Override public PathIterator getPathIterator(final BaseTransform TRANSFORM, final double FLATNESS) {
+        return new FlatteningPathIterator(getPathIterator(TRANSFORM), FLATNESS);
+    }
+
+    @Override public TransformedShape copy() {
+        TransformedShape copy = new TransformedShape(shape.copy(), transform);
+        copy.setFill(getFill());
+        copy.setStroke(getStroke());
+        copy.setLineWidth(getLineWidth());
+        copy.setLineJoin(getLineJoin());
+        copy.setLineCap(getLineCap());
+        return copy;
+    }
+
+    @Override public void draw(final GraphicsContext ctx, final boolean doFill, final boolean doStroke) {
+        PathIterator pi = getPathIterator(null);
+
+        ctx.setFillRule(Path.WindingRule.WIND_EVEN_ODD == pi.getWindingRule() ? FillRule.EVEN_ODD : FillRule.NON_ZERO);
+        ctx.beginPath();
+
+        double[] seg = new double[6];
+        while (!pi.isDone()) {
+            switch (pi.currentSegment(seg)) {
+                case PathIterator.MOVE_TO  : ctx.moveTo(seg[0], seg[1]); break;
+                case PathIterator.LINE_TO  : ctx.lineTo(seg[0], seg[1]); break;
+                case PathIterator.QUAD_TO  : ctx.quadraticCurveTo(seg[0], seg[1], seg[2], seg[3]); break;
+                case PathIterator.BEZIER_TO: ctx.bezierCurveTo(seg[0], seg[1], seg[2], seg[3], seg[4], seg[5]); break;
+                case PathIterator.CLOSE    : ctx.closePath(); break;
+                default                    : break;
+            }
+            pi.next();
+        }
+
+        if (doFill)   {
+            ctx.setFill(getFill());
+            ctx.fill();
+        }
+        if (doStroke) {
+            ctx.save();
+            ctx.setLineWidth(getLineWidth());
+            ctx.setLineCap(getLineCap());
+            ctx.setLineJoin(getLineJoin());
+            ctx.setStroke(getStroke());
+            ctx.stroke();
+            ctx.restore();
+        }
+    }
+}
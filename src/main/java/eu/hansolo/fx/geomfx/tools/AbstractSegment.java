@@ -23,6 +23,13 @@ public abstract class AbstractSegment implements Segment {
     
     static final double eps = 1 / (1L << 48);
     static final double tol = 4.0 * eps;
+
+    public  static final double DEFAULT_MAX_ERROR  = 1e-6;
+    private static final int    MAX_LENGTH_DEPTH   = 16;
+    private static final int    MAX_T_ITERATIONS   = 32;
+    // 5 point Gauss-Legendre abscissae and weights on [-1, 1]
+    private static final double GL_ABSCISSAE[]     = { 0.0, -0.5384693101056831, 0.5384693101056831, -0.9061798459386640, 0.9061798459386640 };
+    private static final double GL_WEIGHTS[]       = { 0.5688888888888889, 0.4786286704993665, 0.4786286704993665, 0.2369268850561891, 0.2369268850561891 };
     
     public static int solveLine(double a, double b, double[] roots) {
         if (a == 0) {
@@ -158,7 +165,89 @@ public abstract class AbstractSegment implements Segment {
     }
     
     protected abstract int findRoots(double y, double[] roots);
-    
+
+    public abstract void eval(double t, Point result);
+    public abstract void evalDt(double t, Point result);
+
+    // Length of the first derivative at t, the integrand of the arc length
+    protected abstract double getSpeed(double t);
+
+    public double getLength() { return getLength(DEFAULT_MAX_ERROR); }
+    public double getLength(final double maxErr) { return getLength(0.0, 1.0, maxErr); }
+    public double getLength(final double t0, final double t1, final double maxErr) {
+        if (t1 <= t0) { return 0.0; }
+        return getLength(t0, t1, gaussLegendre(t0, t1), Math.max(maxErr, Double.MIN_NORMAL), 0);
+    }
+    private double getLength(final double t0, final double t1, final double whole, final double maxErr, final int depth) {
+        double tm    = (t0 + t1) * 0.5;
+        double left  = gaussLegendre(t0, tm);
+        double right = gaussLegendre(tm, t1);
+        double sum   = left + right;
+        if (depth >= MAX_LENGTH_DEPTH || Math.abs(sum - whole) <= maxErr) { return sum; }
+        return getLength(t0, tm, left, maxErr * 0.5, depth + 1) + getLength(tm, t1, right, maxErr * 0.5, depth + 1);
+    }
+
+    private double gaussLegendre(final double t0, final double t1) {
+        double halfRange = (t1 - t0) * 0.5;
+        double center    = (t1 + t0) * 0.5;
+        double sum       = 0;
+        for (int i = 0; i < GL_ABSCISSAE.length; i++) {
+            sum += GL_WEIGHTS[i] * getSpeed(center + halfRange * GL_ABSCISSAE[i]);
+        }
+        return sum * halfRange;
+    }
+
+    public double getTAtLength(final double length) { return getTAtLength(length, DEFAULT_MAX_ERROR); }
+    public double getTAtLength(final double length, final double maxErr) {
+        if (length <= 0) { return 0.0; }
+        double totalLength = getLength(maxErr);
+        if (length >= totalLength) { return 1.0; }
+        return getTAtLength(length, totalLength, maxErr);
+    }
+    // Newton iteration on L(t) - length with a bisection fallback whenever a step leaves the bracket
+    public double getTAtLength(final double length, final double totalLength, final double maxErr) {
+        if (length <= 0)           { return 0.0; }
+        if (length >= totalLength) { return 1.0; }
+        double lower = 0.0;
+        double upper = 1.0;
+        double t     = length / totalLength;
+        for (int i = 0; i < MAX_T_ITERATIONS; i++) {
+            double delta = getLength(0.0, t, maxErr) - length;
+            if (Math.abs(delta) <= maxErr) { break; }
+            if (delta < 0) { lower = t; } else { upper = t; }
+            double speed = getSpeed(t);
+            double next  = speed > 0 ? t - delta / speed : Double.NaN;
+            if (!(next > lower && next < upper)) { next = (lower + upper) * 0.5; }
+            if (next == t) { break; }
+            t = next;
+        }
+        return t;
+    }
+    // Parameter at the given arc length after T0, only integrates the short interval behind T0 which makes it cheap for walking along the segment
+    public double advance(final double T0, final double LENGTH, final double MAX_ERR) {
+        if (LENGTH <= 0) { return T0; }
+        double lower = T0;
+        double upper = 1.0;
+        double speed = getSpeed(T0);
+        double t     = speed > 0 ? Math.min(1.0, T0 + LENGTH / speed) : (T0 + 1.0) * 0.5;
+        for (int i = 0; i < MAX_T_ITERATIONS; i++) {
+            double delta = getLength(T0, t, MAX_ERR) - LENGTH;
+            if (Math.abs(delta) <= MAX_ERR) { break; }
+            if (delta < 0) {
+                if (t >= 1.0) { return 1.0; }
+                lower = t;
+            } else {
+                upper = t;
+            }
+            speed = getSpeed(t);
+            double next = speed > 0 ? t - delta / speed : Double.NaN;
+            if (!(next > lower && next < upper)) { next = (lower + upper) * 0.5; }
+            if (next == t) { break; }
+            t = next;
+        }
+        return t;
+    }
+
     public SplitResults split(double y) {
         double[] roots  = {0, 0, 0};
         int      numSol = findRoots(y, roots);
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.FlatteningPathIterator;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.RectBounds;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+
+
+// Grid over the bounds of a shape where every cell is classified as in, out or boundary. Boundary cells cover the
+// flattened outline widened by the flatness, so the real outline never passes through an in or out cell and only
+// points in boundary cells need the exact Shape.contains() test. The grid is a snapshot, call rebuild() after the
+// shape changed.
+public class ContainmentMask {
+    public  static final int OUT            = 0;
+    public  static final int IN             = 1;
+    public  static final int BOUNDARY       = 2;
+    private static final int FLATTEN_LIMIT  = 16;
+    private static final int INITIAL_EDGES  = 64;
+    private final Shape      shape;
+    private final double     cellSize;
+    private double           minX;
+    private double           minY;
+    private double           maxX;
+    private double           maxY;
+    private int              cols;
+    private int              rows;
+    private long[]           inBits;
+    private long[]           boundaryBits;
+    private WindingRule      windingRule;
+    // Flattened edges x0, y0, x1, y1
+    private double[]         edges;
+    private int              numEdges;
+
+
+    // ******************** Constructors **************************************
+    public ContainmentMask(final Shape SHAPE, final double CELL_SIZE) {
+        if (CELL_SIZE <= 0) { throw new IllegalArgumentException("Cell size must be > 0"); }
+        shape    = SHAPE;
+        cellSize = CELL_SIZE;
+        rebuild();
+    }
+
+
+    // ******************** Methods *******************************************
+    public Shape getShape() { return shape; }
+
+    public double getCellSize() { return cellSize; }
+
+    public int getCols() { return cols; }
+
+    public int getRows() { return rows; }
+
+    public WindingRule getWindingRule() { return windingRule; }
+
+    public boolean contains(final double X, final double Y) {
+        switch (classify(X, Y)) {
+            case IN      : return true;
+            case BOUNDARY: return shape.contains(X, Y);
+            default      : return false;
+        }
+    }
+
+    // POINTS holds x,y pairs, RESULTS may be null, returns the number of points inside
+    public int contains(final double[] POINTS, final int OFFSET, final int NUM_POINTS, final boolean[] RESULTS) {
+        int inside = 0;
+        for (int i = 0 ; i < NUM_POINTS ; i++) {
+            boolean contains = contains(POINTS[OFFSET + 2 * i], POINTS[OFFSET + 2 * i + 1]);
+            if (null != RESULTS) { RESULTS[i] = contains; }
+            if (contains) { inside++; }
+        }
+        return inside;
+    }
+
+    // OUT, IN or BOUNDARY for the cell of the given point, points outside of the shape bounds are OUT
+    public int classify(final double X, final double Y) {
+        if (!(X >= minX && X <= maxX && Y >= minY && Y <= maxY)) { return OUT; }
+        int col = Math.min(cols - 1, (int) ((X - minX) / cellSize));
+        int row = Math.min(rows - 1, (int) ((Y - minY) / cellSize));
+        return getCell(col, row);
+    }
+
+    public int getCell(final int COL, final int ROW) {
+        int index = ROW * cols + COL;
+        if (isSet(boundaryBits, index)) { return BOUNDARY; }
+        return isSet(inBits, index) ? IN : OUT;
+    }
+
+    public void rebuild() {
+        RectBounds bounds = shape.getBounds();
+        minX = bounds.getMinX();
+        minY = bounds.getMinY();
+        cols = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+        rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+        if ((long) cols * rows > Integer.MAX_VALUE) { throw new IllegalArgumentException("Cell size too small for the shape bounds"); }
+        maxX = minX + cols * cellSize;
+        maxY = minY + rows * cellSize;
+        int words = (int) (((long) cols * rows + 63) >>> 6);
+        inBits       = new long[words];
+        boundaryBits = new long[words];
+
+        // The flattened outline is at most flatness away from the real one
+        double       flatness = cellSize * 0.25;
+        PathIterator iterator = new FlatteningPathIterator(shape.getPathIterator(null), flatness, FLATTEN_LIMIT);
+        windingRule = iterator.getWindingRule();
+        flatten(iterator);
+        double margin = flatness + cellSize * 1e-6;
+        for (int i = 0 ; i < numEdges ; i++) {
+            int o = 4 * i;
+            markBoundary(edges[o], edges[o + 1], edges[o + 2], edges[o + 3], margin);
+        }
+        fillInterior();
+        edges = null;
+    }
+
+    private void flatten(final PathIterator ITERATOR) {
+        edges    = new double[4 * INITIAL_EDGES];
+        numEdges = 0;
+        double[] coords = new double[6];
+        double   movX = 0, movY = 0, curX = 0, curY = 0;
+        while (!ITERATOR.isDone()) {
+            switch (ITERATOR.currentSegment(coords)) {
+                case PathIterator.MOVE_TO:
+                    addEdge(curX, curY, movX, movY);
+                    movX = curX = coords[0];
+                    movY = curY = coords[1];
+                    break;
+                case PathIterator.LINE_TO:
+                    addEdge(curX, curY, coords[0], coords[1]);
+                    curX = coords[0];
+                    curY = coords[1];
+                    break;
+                case PathIterator.CLOSE:
+                    addEdge(curX, curY, movX, movY);
+                    curX = movX;
+                    curY = movY;
+                    break;
+            }
+            ITERATOR.next();
+        }
+        addEdge(curX, curY, movX, movY);
+    }
+
+    private void addEdge(final double X0, final double Y0, final double X1, final double Y1) {
+        if (X0 == X1 && Y0 == Y1) { return; }
+        if (4 * numEdges == edges.length) { edges = Arrays.copyOf(edges, edges.length * 2); }
+        int o = 4 * numEdges++;
+        edges[o]     = X0;
+        edges[o + 1] = Y0;
+        edges[o + 2] = X1;
+        edges[o + 3] = Y1;
+    }
+
+    // Marks every cell that the edge widened by MARGIN touches
+    private void markBoundary(final double X0, final double Y0, final double X1, final double Y1, final double MARGIN) {
+        double eMinY = Math.min(Y0, Y1);
+        double eMaxY = Math.max(Y0, Y1);
+        int    row0  = clampRow(eMinY - MARGIN);
+        int    row1  = clampRow(eMaxY + MARGIN);
+        for (int row = row0 ; row <= row1 ; row++) {
+            // Part of the edge inside the row widened by the margin
+            double bandMinY = Math.max(eMinY, minY + row * cellSize - MARGIN);
+            double bandMaxY = Math.min(eMaxY, minY + (row + 1) * cellSize + MARGIN);
+            if (bandMinY > bandMaxY) { continue; }
+            double xa, xb;
+            if (Y0 == Y1) {
+                xa = X0;
+                xb = X1;
+            } else {
+                xa = X0 + (bandMinY - Y0) * (X1 - X0) / (Y1 - Y0);
+                xb = X0 + (bandMaxY - Y0) * (X1 - X0) / (Y1 - Y0);
+            }
+            int col0  = clampCol(Math.min(xa, xb) - MARGIN);
+            int col1  = clampCol(Math.max(xa, xb) + MARGIN);
+            int index = row * cols;
+            for (int col = col0 ; col <= col1 ; col++) { set(boundaryBits, index + col); }
+        }
+    }
+
+    // Winding at the center of every cell from the edges crossing the row center, only for cells that are not boundary
+    private void fillInterior() {
+        // Bucket the crossings by row
+        int[] rowStart = new int[rows + 1];
+        for (int i = 0 ; i < numEdges ; i++) {
+            int o = 4 * i;
+            int r0 = firstRowCenterAtOrAbove(Math.min(edges[o + 1], edges[o + 3]));
+            int r1 = firstRowCenterAtOrAbove(Math.max(edges[o + 1], edges[o + 3]));
+            for (int row = r0 ; row < r1 ; row++) { rowStart[row + 1]++; }
+        }
+        for (int row = 0 ; row < rows ; row++) { rowStart[row + 1] += rowStart[row]; }
+        double[] xs   = new double[rowStart[rows]];
+        int[]    dirs = new int[rowStart[rows]];
+        int[]    fill = Arrays.copyOf(rowStart, rows);
+        for (int i = 0 ; i < numEdges ; i++) {
+            int    o   = 4 * i;
+            double x0  = edges[o], y0 = edges[o + 1], x1 = edges[o + 2], y1 = edges[o + 3];
+            int    dir = y1 > y0 ? 1 : -1;
+            int    r0  = firstRowCenterAtOrAbove(Math.min(y0, y1));
+            int    r1  = firstRowCenterAtOrAbove(Math.max(y0, y1));
+            for (int row = r0 ; row < r1 ; row++) {
+                double y = minY + (row + 0.5) * cellSize;
+                xs[fill[row]]     = x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+                dirs[fill[row]++] = dir;
+            }
+        }
+
+        int mask = windingRule == WindingRule.WIND_NON_ZERO ? -1 : 1;
+        for (int row = 0 ; row < rows ; row++) {
+            int from = rowStart[row];
+            int to   = rowStart[row + 1];
+            if (from == to) { continue; }
+            sort(xs, dirs, from, to);
+            int winding = 0;
+            int k       = from;
+            int index   = row * cols;
+            for (int col = 0 ; col < cols ; col++) {
+                double x = minX + (col + 0.5) * cellSize;
+                while (k < to && xs[k] < x) { winding += dirs[k++]; }
+                if ((winding & mask) != 0 && !isSet(boundaryBits, index + col)) { set(inBits, index + col); }
+            }
+        }
+    }
+
+    // Edges cover the row centers in [min y, max y)
+    private int firstRowCenterAtOrAbove(final double Y) {
+        double row = Math.ceil((Y - minY) / cellSize - 0.5);
+        return (int) Math.max(0, Math.min(rows, row));
+    }
+
+    private int clampRow(final double Y) { return (int) Math.max(0, Math.min(rows - 1, Math.floor((Y - minY) / cellSize))); }
+
+    private int clampCol(final double X) { return (int) Math.max(0, Math.min(cols - 1, Math.floor((X - minX) / cellSize))); }
+
+    private static boolean isSet(final long[] BITS, final int INDEX) { return (BITS[INDEX >>> 6] & (1L << INDEX)) != 0; }
+
+    private static void set(final long[] BITS, final int INDEX) { BITS[INDEX >>> 6] |= 1L << INDEX; }
+
+    // Heap sort of the crossings in [FROM, TO) by x
+    static void sort(final double[] XS, final int[] DIRS, final int FROM, final int TO) {
+        int n = TO - FROM;
+        for (int i = n / 2 - 1 ; i >= 0 ; i--) { siftDown(XS, DIRS, FROM, i, n); }
+        for (int end = n - 1 ; end > 0 ; end--) {
+            swap(XS, DIRS, FROM, FROM + end);
+            siftDown(XS, DIRS, FROM, 0, end);
+        }
+    }
+    private static void siftDown(final double[] XS, final int[] DIRS, final int FROM, int i, final int SIZE) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= SIZE) { break; }
+            if (child + 1 < SIZE && XS[FROM + child + 1] > XS[FROM + child]) { child++; }
+            if (XS[FROM + i] >= XS[FROM + child]) { break; }
+            swap(XS, DIRS, FROM + i, FROM + child);
+            i = child;
+        }
+    }
+    private static void swap(final double[] XS, final int[] DIRS, final int A, final int B) {
+        double x = XS[A];
+        int    d = DIRS[A];
+        XS[A]   = XS[B];
+        DIRS[A] = DIRS[B];
+        XS[B]   = x;
+        DIRS[B] = d;
+    }
+}
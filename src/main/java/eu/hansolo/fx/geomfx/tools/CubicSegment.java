@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Rect;
+import eu.hansolo.fx.geomfx.RectBounds;
+
+
+public class CubicSegment extends AbstractSegment {
+    public double x1;
+    public double y1;
+    public double ctrlx1;
+    public double ctrly1;
+    public double ctrlx2;
+    public double ctrly2;
+    public double x2;
+    public double y2;
+
+
+    // ******************** Constructors **************************************
+    public CubicSegment() { }
+    public CubicSegment(final double X1, final double Y1, final double CTRL_X1, final double CTRL_Y1, final double CTRL_X2, final double CTRL_Y2, final double X2, final double Y2) {
+        setSegment(X1, Y1, CTRL_X1, CTRL_Y1, CTRL_X2, CTRL_Y2, X2, Y2);
+    }
+
+
+    // ******************** Methods *******************************************
+    public void setSegment(final double[] COORDS, final int OFFSET) {
+        setSegment(COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET + 2], COORDS[OFFSET + 3], COORDS[OFFSET + 4], COORDS[OFFSET + 5], COORDS[OFFSET + 6], COORDS[OFFSET + 7]);
+    }
+    public void setSegment(final double X1, final double Y1, final double CTRL_X1, final double CTRL_Y1, final double CTRL_X2, final double CTRL_Y2, final double X2, final double Y2) {
+        x1     = X1;
+        y1     = Y1;
+        ctrlx1 = CTRL_X1;
+        ctrly1 = CTRL_Y1;
+        ctrlx2 = CTRL_X2;
+        ctrly2 = CTRL_Y2;
+        x2     = X2;
+        y2     = Y2;
+    }
+
+    public double minX() { return Math.min(Math.min(x1, ctrlx1), Math.min(ctrlx2, x2)); }
+    public double maxX() { return Math.max(Math.max(x1, ctrlx1), Math.max(ctrlx2, x2)); }
+
+    public double minY() { return Math.min(Math.min(y1, ctrly1), Math.min(ctrly2, y2)); }
+    public double maxY() { return Math.max(Math.max(y1, ctrly1), Math.max(ctrly2, y2)); }
+
+    public Rect getBounds2D() { return new Rect(new RectBounds(minX(), minY(), maxX(), maxY())); }
+
+    public Point eval(final double T) {
+        Point result = new Point();
+        eval(T, result);
+        return result;
+    }
+    public void eval(final double T, final Point RESULT) {
+        double u  = 1 - T;
+        double b0 = u * u * u;
+        double b1 = 3 * u * u * T;
+        double b2 = 3 * u * T * T;
+        double b3 = T * T * T;
+        RESULT.set(b0 * x1 + b1 * ctrlx1 + b2 * ctrlx2 + b3 * x2, b0 * y1 + b1 * ctrly1 + b2 * ctrly2 + b3 * y2);
+    }
+
+    public Point evalDt(final double T) {
+        Point result = new Point();
+        evalDt(T, result);
+        return result;
+    }
+    public void evalDt(final double T, final Point RESULT) {
+        double u  = 1 - T;
+        double b0 = 3 * u * u;
+        double b1 = 6 * u * T;
+        double b2 = 3 * T * T;
+        RESULT.set(b0 * (ctrlx1 - x1) + b1 * (ctrlx2 - ctrlx1) + b2 * (x2 - ctrlx2),
+                   b0 * (ctrly1 - y1) + b1 * (ctrly2 - ctrly1) + b2 * (y2 - ctrly2));
+    }
+
+    @Override protected double getSpeed(final double T) {
+        double u  = 1 - T;
+        double b0 = 3 * u * u;
+        double b1 = 6 * u * T;
+        double b2 = 3 * T * T;
+        double dx = b0 * (ctrlx1 - x1) + b1 * (ctrlx2 - ctrlx1) + b2 * (x2 - ctrlx2);
+        double dy = b0 * (ctrly1 - y1) + b1 * (ctrly2 - ctrly1) + b2 * (y2 - ctrly2);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public Segment getSegment(final double T0, final double T1) {
+        double dt = (T1 - T0) / 3.0;
+        Point  p0 = eval(T0);
+        Point  d0 = evalDt(T0);
+        Point  p1 = eval(T1);
+        Point  d1 = evalDt(T1);
+        return new CubicSegment(p0.x, p0.y, p0.x + d0.x * dt, p0.y + d0.y * dt, p1.x - d1.x * dt, p1.y - d1.y * dt, p1.x, p1.y);
+    }
+
+    @Override protected int findRoots(final double Y, final double[] ROOTS) {
+        double a0 = y1 - Y;
+        double a1 = 3 * (ctrly1 - y1);
+        double a2 = 3 * (y1 - 2 * ctrly1 + ctrly2);
+        double a3 = y2 - 3 * ctrly2 + 3 * ctrly1 - y1;
+        return solveCubic(a3, a2, a1, a0, ROOTS);
+    }
+
+    public void subdivide(final Segment S0, final Segment S1) { subdivide(0.5, S0, S1); }
+    public void subdivide(final double T, final Segment S0, final Segment S1) {
+        double x12   = x1 + (ctrlx1 - x1) * T;
+        double y12   = y1 + (ctrly1 - y1) * T;
+        double x23   = ctrlx1 + (ctrlx2 - ctrlx1) * T;
+        double y23   = ctrly1 + (ctrly2 - ctrly1) * T;
+        double x34   = ctrlx2 + (x2 - ctrlx2) * T;
+        double y34   = ctrly2 + (y2 - ctrly2) * T;
+        double x123  = x12 + (x23 - x12) * T;
+        double y123  = y12 + (y23 - y12) * T;
+        double x234  = x23 + (x34 - x23) * T;
+        double y234  = y23 + (y34 - y23) * T;
+        double xMid  = x123 + (x234 - x123) * T;
+        double yMid  = y123 + (y234 - y123) * T;
+        double xEnd  = x2;
+        double yEnd  = y2;
+        if (null != S0) { ((CubicSegment) S0).setSegment(x1, y1, x12, y12, x123, y123, xMid, yMid); }
+        if (null != S1) { ((CubicSegment) S1).setSegment(xMid, yMid, x234, y234, x34, y34, xEnd, yEnd); }
+    }
+
+    public CubicSegment copy() { return new CubicSegment(x1, y1, ctrlx1, ctrly1, ctrlx2, ctrly2, x2, y2); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("[").append(x1).append(", ").append(y1).append(", ").append(ctrlx1).append(", ").append(ctrly1).append(", ")
+                                  .append(ctrlx2).append(", ").append(ctrly2).append(", ").append(x2).append(", ").append(y2).append("]").toString();
+    }
+}
@@ -29,7 +29,17 @@ import java.util.TreeMap;
 
 
 public class GradientLookup {
+    public  static final int  DEFAULT_LUT_RESOLUTION = 256;
+    private static final int  BLACK_ARGB             = 0xFF000000;
     private Map<Double, Stop> stops;
+    private int               numStops;
+    private double[]          offsets;
+    private double[]          reds;
+    private double[]          greens;
+    private double[]          blues;
+    private double[]          opacities;
+    private int               lutResolution;
+    private int[]             lut;
 
 
     // ******************** Constructors **************************************
@@ -40,7 +50,12 @@ public class GradientLookup {
         this(Arrays.asList(stops));
     }
     public GradientLookup(final List<Stop> stops) {
-        this.stops = new TreeMap<>();
+        this(stops, 0);
+    }
+    public GradientLookup(final List<Stop> stops, final int lutResolution) {
+        if (lutResolution < 0 || lutResolution == 1) { throw new IllegalArgumentException("LUT resolution must be 0 (no LUT) or >= 2"); }
+        this.stops         = new TreeMap<>();
+        this.lutResolution = lutResolution;
         for (Stop stop : stops) { this.stops.put(stop.getOffset(), stop); }
         init();
     }
@@ -48,43 +63,82 @@ public class GradientLookup {
 
     // ******************** Initialization ************************************
     private void init() {
-        if (stops.isEmpty()) return;
+        if (!stops.isEmpty()) {
+            double minFraction = Collections.min(stops.keySet());
+            double maxFraction = Collections.max(stops.keySet());
 
-        double minFraction = Collections.min(stops.keySet());
-        double maxFraction = Collections.max(stops.keySet());
+            if (Double.compare(minFraction, 0) > 0) { stops.put(0.0, new Stop(0.0, stops.get(minFraction).getColor())); }
+            if (Double.compare(maxFraction, 1) < 0) { stops.put(1.0, new Stop(1.0, stops.get(maxFraction).getColor())); }
+        }
 
-        if (Double.compare(minFraction, 0) > 0) { stops.put(0.0, new Stop(0.0, stops.get(minFraction).getColor())); }
-        if (Double.compare(maxFraction, 1) < 0) { stops.put(1.0, new Stop(1.0, stops.get(maxFraction).getColor())); }
+        numStops  = stops.size();
+        offsets   = new double[numStops];
+        reds      = new double[numStops];
+        greens    = new double[numStops];
+        blues     = new double[numStops];
+        opacities = new double[numStops];
+        int i = 0;
+        for (Stop stop : stops.values()) {
+            Color color = stop.getColor();
+            offsets[i]   = stop.getOffset();
+            reds[i]      = color.getRed();
+            greens[i]    = color.getGreen();
+            blues[i]     = color.getBlue();
+            opacities[i] = color.getOpacity();
+            i++;
+        }
+        buildLut();
+    }
+
+    private void buildLut() {
+        if (lutResolution == 0) {
+            lut = null;
+            return;
+        }
+        if (null == lut || lut.length != lutResolution) { lut = new int[lutResolution]; }
+        double step = 1.0 / (lutResolution - 1);
+        for (int i = 0 ; i < lutResolution ; i++) { lut[i] = interpolateArgb(i * step); }
     }
 
 
     // ******************** Methods *******************************************
     public Color getColorAt(final double positionOfColor) {
-        if (stops.isEmpty()) return Color.BLACK;
-        final int    SIZE     = stops.size();
+        if (numStops == 0) return Color.BLACK;
         final double POSITION = Helper.clamp(0.0, 1.0, positionOfColor);
-        final Color COLOR;
-        if (SIZE == 1) {
-            final Map<Double, Color> ONE_ENTRY = (Map<Double, Color>) stops.entrySet().iterator().next();
-            COLOR = stops.get(ONE_ENTRY.keySet().iterator().next()).getColor();
-        } else {
-            Stop lowerBound = stops.get(0.0);
-            Stop upperBound = stops.get(1.0);
-            int  counter    = 0;
-            for (Double fraction : stops.keySet()) {
-                if (counter != SIZE - 1 && Double.compare(fraction, POSITION) == 0) {
-                    lowerBound = stops.get(fraction);
-                } else if (Double.compare(fraction, POSITION) < 0) {
-                    lowerBound = stops.get(fraction);
-                } else if (Double.compare(fraction, POSITION) > 0) {
-                    upperBound = stops.get(fraction);
-                    break;
-                }
-                counter++;
-            }
-            COLOR = interpolateColor(lowerBound, upperBound, POSITION);
+        if (numStops == 1) { return Color.color(reds[0], greens[0], blues[0], opacities[0]); }
+        final int    INDEX = findLowerIndex(POSITION);
+        final double POS   = (POSITION - offsets[INDEX]) / (offsets[INDEX + 1] - offsets[INDEX]);
+        return Color.color(Helper.clamp(0.0, 1.0, reds[INDEX]      + (reds[INDEX + 1]      - reds[INDEX])      * POS),
+                           Helper.clamp(0.0, 1.0, greens[INDEX]    + (greens[INDEX + 1]    - greens[INDEX])    * POS),
+                           Helper.clamp(0.0, 1.0, blues[INDEX]     + (blues[INDEX + 1]     - blues[INDEX])     * POS),
+                           Helper.clamp(0.0, 1.0, opacities[INDEX] + (opacities[INDEX + 1] - opacities[INDEX]) * POS));
+    }
+
+    // Color at the given position packed as ARGB int, uses the LUT if one is enabled
+    public int getArgbAt(final double positionOfColor) {
+        if (null != lut) {
+            final double POSITION = Helper.clamp(0.0, 1.0, positionOfColor);
+            return lut[(int) (POSITION * (lutResolution - 1) + 0.5)];
         }
-        return COLOR;
+        return interpolateArgb(positionOfColor);
+    }
+
+    public int getLutResolution() { return lutResolution; }
+    // 0 disables the LUT, otherwise the number of precomputed colors between 0 and 1
+    public void setLutResolution(final int lutResolution) {
+        if (lutResolution < 0 || lutResolution == 1) { throw new IllegalArgumentException("LUT resolution must be 0 (no LUT) or >= 2"); }
+        this.lutResolution = lutResolution;
+        buildLut();
+    }
+
+    public static int toArgb(final Color color) {
+        return toArgb(color.getRed(), color.getGreen(), color.getBlue(), color.getOpacity());
+    }
+    public static int toArgb(final double red, final double green, final double blue, final double opacity) {
+        return ((int) (opacity * 255 + 0.5) << 24) | ((int) (red * 255 + 0.5) << 16) | ((int) (green * 255 + 0.5) << 8) | (int) (blue * 255 + 0.5);
+    }
+    public static Color fromArgb(final int argb) {
+        return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF, ((argb >>> 24) & 0xFF) / 255.0);
     }
 
     public List<Stop> getStops() { return new ArrayList<>(stops.values()); }
@@ -95,6 +149,33 @@ public class GradientLookup {
         init();
     }
 
+    // Index of the stop at or below the given position, always leaves room for an upper stop
+    private int findLowerIndex(final double position) {
+        int lowerBound = 0;
+        int upperBound = numStops - 2;
+        while (lowerBound < upperBound) {
+            int curr = (lowerBound + upperBound + 1) >>> 1;
+            if (offsets[curr] <= position) {
+                lowerBound = curr;
+            } else {
+                upperBound = curr - 1;
+            }
+        }
+        return lowerBound;
+    }
+
+    private int interpolateArgb(final double positionOfColor) {
+        if (numStops == 0) { return BLACK_ARGB; }
+        final double POSITION = Helper.clamp(0.0, 1.0, positionOfColor);
+        if (numStops == 1) { return toArgb(reds[0], greens[0], blues[0], opacities[0]); }
+        final int    INDEX = findLowerIndex(POSITION);
+        final double POS   = (POSITION - offsets[INDEX]) / (offsets[INDEX + 1] - offsets[INDEX]);
+        return toArgb(Helper.clamp(0.0, 1.0, reds[INDEX]      + (reds[INDEX + 1]      - reds[INDEX])      * POS),
+                      Helper.clamp(0.0, 1.0, greens[INDEX]    + (greens[INDEX + 1]    - greens[INDEX])    * POS),
+                      Helper.clamp(0.0, 1.0, blues[INDEX]     + (blues[INDEX + 1]     - blues[INDEX])     * POS),
+                      Helper.clamp(0.0, 1.0, opacities[INDEX] + (opacities[INDEX + 1] - opacities[INDEX]) * POS));
+    }
+
     public Stop getStopAt(final double positionOfStop) {
         if (stops.isEmpty()) { throw new IllegalArgumentException("GradientStop stops should not be empty"); };
 
@@ -119,20 +200,4 @@ public class GradientLookup {
         }
         return selectedStops;
     }
-
-    private Color interpolateColor(final Stop lowerBound, final Stop upperBound, final double position) {
-        final double POS  = (position - lowerBound.getOffset()) / (upperBound.getOffset() - lowerBound.getOffset());
-
-        final double DELTA_RED     = (upperBound.getColor().getRed()     - lowerBound.getColor().getRed())     * POS;
-        final double DELTA_GREEN   = (upperBound.getColor().getGreen()   - lowerBound.getColor().getGreen())   * POS;
-        final double DELTA_BLUE    = (upperBound.getColor().getBlue()    - lowerBound.getColor().getBlue())    * POS;
-        final double DELTA_OPACITY = (upperBound.getColor().getOpacity() - lowerBound.getColor().getOpacity()) * POS;
-
-        final double red     = Helper.clamp(0.0, 1.0, (lowerBound.getColor().getRed()     + DELTA_RED));
-        final double green   = Helper.clamp(0.0, 1.0, (lowerBound.getColor().getGreen()   + DELTA_GREEN));
-        final double blue    = Helper.clamp(0.0, 1.0, (lowerBound.getColor().getBlue()    + DELTA_BLUE));
-        final double opacity = Helper.clamp(0.0, 1.0, (lowerBound.getColor().getOpacity() + DELTA_OPACITY));
-
-        return Color.color(red, green, blue, opacity);
-    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Rect;
+import eu.hansolo.fx.geomfx.RectBounds;
+
+
+public class LineSegment extends AbstractSegment {
+    public double x1;
+    public double y1;
+    public double x2;
+    public double y2;
+
+
+    // ******************** Constructors **************************************
+    public LineSegment() { }
+    public LineSegment(final double X1, final double Y1, final double X2, final double Y2) {
+        setSegment(X1, Y1, X2, Y2);
+    }
+
+
+    // ******************** Methods *******************************************
+    public void setSegment(final double X1, final double Y1, final double X2, final double Y2) {
+        x1 = X1;
+        y1 = Y1;
+        x2 = X2;
+        y2 = Y2;
+    }
+
+    public double minX() { return Math.min(x1, x2); }
+    public double maxX() { return Math.max(x1, x2); }
+
+    public double minY() { return Math.min(y1, y2); }
+    public double maxY() { return Math.max(y1, y2); }
+
+    public Rect getBounds2D() { return new Rect(new RectBounds(minX(), minY(), maxX(), maxY())); }
+
+    public Point eval(final double T) { return new Point(x1 + T * (x2 - x1), y1 + T * (y2 - y1)); }
+    public void eval(final double T, final Point RESULT) { RESULT.set(x1 + T * (x2 - x1), y1 + T * (y2 - y1)); }
+
+    public Point evalDt(final double T) { return new Point(x2 - x1, y2 - y1); }
+    public void evalDt(final double T, final Point RESULT) { RESULT.set(x2 - x1, y2 - y1); }
+
+    @Override protected double getSpeed(final double T) { return Point.distance(x1, y1, x2, y2); }
+
+    // The length of a line is known exactly, no need to integrate
+    @Override public double getLength(final double T0, final double T1, final double MAX_ERR) {
+        return T1 <= T0 ? 0.0 : (T1 - T0) * Point.distance(x1, y1, x2, y2);
+    }
+
+    @Override public double getTAtLength(final double LENGTH, final double TOTAL_LENGTH, final double MAX_ERR) {
+        if (LENGTH <= 0)            { return 0.0; }
+        if (LENGTH >= TOTAL_LENGTH) { return 1.0; }
+        return LENGTH / TOTAL_LENGTH;
+    }
+
+    public Segment getSegment(final double T0, final double T1) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        return new LineSegment(x1 + T0 * dx, y1 + T0 * dy, x1 + T1 * dx, y1 + T1 * dy);
+    }
+
+    @Override protected int findRoots(final double Y, final double[] ROOTS) { return solveLine(y2 - y1, y1 - Y, ROOTS); }
+
+    public void subdivide(final Segment S0, final Segment S1) { subdivide(0.5, S0, S1); }
+    public void subdivide(final double T, final Segment S0, final Segment S1) {
+        double xMid = x1 + T * (x2 - x1);
+        double yMid = y1 + T * (y2 - y1);
+        double xEnd = x2;
+        double yEnd = y2;
+        if (null != S0) { ((LineSegment) S0).setSegment(x1, y1, xMid, yMid); }
+        if (null != S1) { ((LineSegment) S1).setSegment(xMid, yMid, xEnd, yEnd); }
+    }
+
+    public LineSegment copy() { return new LineSegment(x1, y1, x2, y2); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("[").append(x1).append(", ").append(y1).append(", ").append(x2).append(", ").append(y2).append("]").toString();
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+
+
+// Prepared form of a path for repeated hit tests. Every curve is split once into pieces that are monotone in x and y
+// (quads are elevated to cubics) so the bounds of a piece are given by its end points and a horizontal line crosses it
+// at most once. Point and rectangle crossings then need one root per piece instead of recursive subdivision. The pieces
+// are bucketed into horizontal bands so a query only looks at the pieces near its y range, everything is rebuilt when
+// the path changes.
+// Off the outline the counts are the same as the ones of Shape.pointCrossingsForPath() and rectCrossingsForPath().
+// Points on the outline (vertices, joins of curves) and rectangles whose border only touches it are a tie between the
+// ray and the curve. The recursive versions resolve the tie wherever their subdivision happens to end, here it depends
+// on the rounding of the root, so contains() and intersects() may answer differently from Path for such input.
+public class MonotonePath {
+    private static final int    LINE            = 0;
+    private static final int    CUBIC           = 1;
+    private static final int    ROOT_ITERATIONS = 60;
+    private static final double ROOT_EPSILON    = 1e-14;
+    private static final int    MAX_BAND_COPIES = 4;
+    private final Path          path;
+    private int                 modCount;
+    private int                 numCommands;
+    private int                 numPieces;
+    private byte[]              pieceType;
+    private double[]            pieceCoords;
+    private double[]            pieceMinX;
+    private double[]            pieceMinY;
+    private double[]            pieceMaxX;
+    private double[]            pieceMaxY;
+    private int                 numBands;
+    private double              bandScale;
+    private int[]               bandStart;
+    private int[]               bandPieces;
+    private double              minX;
+    private double              minY;
+    private double              maxX;
+    private double              maxY;
+
+
+    // ******************** Constructors **************************************
+    public MonotonePath(final Shape SHAPE) {
+        path = SHAPE instanceof Path ? (Path) SHAPE : new Path(SHAPE, null);
+        build();
+    }
+
+
+    // ******************** Methods *******************************************
+    public Path getPath() { return path; }
+
+    public int getNumPieces() {
+        validate();
+        return numPieces;
+    }
+
+    // Points exactly on the outline may be reported either way, see the class comment
+    public boolean contains(final double X, final double Y) {
+        if (X * 0 + Y * 0 != 0) { return false; }
+        int mask = (path.getWindingRule() == WindingRule.WIND_NON_ZERO ? -1 : 1);
+        return ((pointCrossings(X, Y) & mask) != 0);
+    }
+
+    public boolean contains(final double X, final double Y, final double WIDTH, final double HEIGHT) {
+        if (Double.isNaN(X + WIDTH) || Double.isNaN(Y + HEIGHT)) { return false; }
+        if (WIDTH <= 0 || HEIGHT <= 0) { return false; }
+        int mask      = (path.getWindingRule() == WindingRule.WIND_NON_ZERO ? -1 : 2);
+        int crossings = rectCrossings(X, Y, X + WIDTH, Y + HEIGHT);
+        return (crossings != Shape.RECT_INTERSECTS && (crossings & mask) != 0);
+    }
+
+    public boolean intersects(final double X, final double Y, final double WIDTH, final double HEIGHT) {
+        if (Double.isNaN(X + WIDTH) || Double.isNaN(Y + HEIGHT)) { return false; }
+        if (WIDTH <= 0 || HEIGHT <= 0) { return false; }
+        int mask      = (path.getWindingRule() == WindingRule.WIND_NON_ZERO ? -1 : 2);
+        int crossings = rectCrossings(X, Y, X + WIDTH, Y + HEIGHT);
+        return (crossings == Shape.RECT_INTERSECTS || (crossings & mask) != 0);
+    }
+
+    // Crossings of the ray from the point to the right, counted like Shape.pointCrossingsForLine()
+    public int pointCrossings(final double X, final double Y) {
+        validate();
+        // All sub paths are closed, so the crossings of a point outside the bounds sum up to 0
+        if (X < minX || X > maxX || Y < minY || Y >= maxY) { return 0; }
+        int crossings = 0;
+        int band      = getBand(Y);
+        for (int j = bandStart[band], last = bandStart[band + 1] ; j < last ; j++) {
+            int i = bandPieces[j];
+            if (Y < pieceMinY[i] || Y >= pieceMaxY[i] || X >= pieceMaxX[i]) { continue; }
+            int    o   = 8 * i;
+            int    end = pieceType[i] == LINE ? o + 2 : o + 6;
+            int    dir = pieceCoords[o + 1] < pieceCoords[end + 1] ? 1 : -1;
+            if (X < pieceMinX[i]) {
+                crossings += dir;
+            } else if (X < xAtY(i, Y)) {
+                crossings += dir;
+            }
+        }
+        return crossings;
+    }
+
+    // Same result as Shape.rectCrossingsForPath() for the path
+    public int rectCrossings(final double RX_MIN, final double RY_MIN, final double RX_MAX, final double RY_MAX) {
+        if (RX_MAX <= RX_MIN || RY_MAX <= RY_MIN) { return 0; }
+        validate();
+        if (RX_MAX <= minX || RY_MAX <= minY || RY_MIN >= maxY) { return 0; }
+        int crossings = 0;
+        int firstBand = getBand(RY_MIN);
+        int lastBand  = getBand(RY_MAX);
+        for (int band = firstBand ; band <= lastBand ; band++) {
+            for (int j = bandStart[band], last = bandStart[band + 1] ; j < last ; j++) {
+                int i = bandPieces[j];
+                // A piece is listed in every band it touches but only counted in the first one the rectangle touches too
+                if (band != firstBand && getBand(pieceMinY[i]) != band) { continue; }
+                if (pieceMinY[i] >= RY_MAX || pieceMaxY[i] <= RY_MIN || pieceMaxX[i] <= RX_MIN) { continue; }
+                int    o   = 8 * i;
+                int    end = pieceType[i] == LINE ? o + 2 : o + 6;
+                double x0  = pieceCoords[o],   y0 = pieceCoords[o + 1];
+                double x1  = pieceCoords[end], y1 = pieceCoords[end + 1];
+                if (pieceMinX[i] < RX_MAX) {
+                    if ((x0 > RX_MIN && x0 < RX_MAX && y0 > RY_MIN && y0 < RY_MAX) || (x1 > RX_MIN && x1 < RX_MAX && y1 > RY_MIN && y1 < RY_MAX)) {
+                        return Shape.RECT_INTERSECTS;
+                    }
+                    // Where the piece enters and leaves the horizontal band of the rectangle
+                    double xi0 = y0 < RY_MIN ? xAtY(i, RY_MIN) : (y0 > RY_MAX ? xAtY(i, RY_MAX) : x0);
+                    double xi1 = y1 < RY_MIN ? xAtY(i, RY_MIN) : (y1 > RY_MAX ? xAtY(i, RY_MAX) : x1);
+                    if (xi0 <= RX_MIN && xi1 <= RX_MIN) { continue; }
+                    if (xi0 < RX_MAX || xi1 < RX_MAX) { return Shape.RECT_INTERSECTS; }
+                }
+                if (y0 < y1) {
+                    if (y0 <= RY_MIN) { crossings++; }
+                    if (y1 >= RY_MAX) { crossings++; }
+                } else if (y1 < y0) {
+                    if (y1 <= RY_MIN) { crossings--; }
+                    if (y0 >= RY_MAX) { crossings--; }
+                }
+            }
+        }
+        return crossings;
+    }
+
+    // x of the piece at the given y, the piece is monotone in y so there is exactly one solution within its y range
+    private double xAtY(final int PIECE, final double Y) {
+        double[] c = pieceCoords;
+        int      o = 8 * PIECE;
+        if (pieceType[PIECE] == LINE) { return c[o] + (Y - c[o + 1]) * (c[o + 2] - c[o]) / (c[o + 3] - c[o + 1]); }
+        // Power basis y(t) = a t^3 + b t^2 + c t + d
+        double ay = -c[o + 1] + 3 * (c[o + 3] - c[o + 5]) + c[o + 7];
+        double by = 3 * (c[o + 1] - 2 * c[o + 3] + c[o + 5]);
+        double cy = 3 * (c[o + 3] - c[o + 1]);
+        double dy = c[o + 1] - Y;
+        boolean rising = c[o + 7] > c[o + 1];
+        double  lower  = 0;
+        double  upper  = 1;
+        double  t      = (Y - c[o + 1]) / (c[o + 7] - c[o + 1]);
+        // Newton iteration that falls back to bisection whenever a step leaves the bracket
+        for (int i = 0 ; i < ROOT_ITERATIONS && upper - lower > ROOT_EPSILON ; i++) {
+            double f = ((ay * t + by) * t + cy) * t + dy;
+            if (f == 0) { break; }
+            if ((f < 0) == rising) { lower = t; } else { upper = t; }
+            double df   = (3 * ay * t + 2 * by) * t + cy;
+            double next = df != 0 ? t - f / df : Double.NaN;
+            if (!(next > lower && next < upper)) { next = (lower + upper) * 0.5; }
+            if (Math.abs(next - t) < ROOT_EPSILON) {
+                t = next;
+                break;
+            }
+            t = next;
+        }
+        double s = 1 - t;
+        return s * s * s * c[o] + 3 * s * t * (s * c[o + 2] + t * c[o + 4]) + t * t * t * c[o + 6];
+    }
+
+    private int getBand(final double Y) {
+        int band = (int) ((Y - minY) * bandScale);
+        return band < 0 ? 0 : (band >= numBands ? numBands - 1 : band);
+    }
+
+    private void validate() {
+        if (path.getModCount() != modCount || path.getNumCommands() != numCommands) { build(); }
+    }
+
+    private void build() {
+        modCount    = path.getModCount();
+        numCommands = path.getNumCommands();
+        numPieces   = 0;
+        pieceType   = new byte[Math.max(16, numCommands * 2)];
+        pieceCoords = new double[8 * pieceType.length];
+        byte[]   types  = path.getCommandsNoClone();
+        double[] coords = path.getDoubleCoordsNoClone();
+
+        // Same segments as Path.pointCrossings() and Path.rectCrossings(), including the lines that close sub paths
+        if (numCommands > 0) {
+            double curX = coords[0], curY = coords[1];
+            double movX = curX,      movY = curY;
+            int    ci   = 2;
+            for (int i = 1 ; i <= numCommands ; i++) {
+                int type = i < numCommands ? types[i] : PathIterator.CLOSE;
+                switch (type) {
+                    case PathIterator.MOVE_TO:
+                    case PathIterator.CLOSE:
+                        if (curX != movX || curY != movY) { addLine(curX, curY, movX, movY); }
+                        if (type == PathIterator.MOVE_TO) {
+                            movX = coords[ci++];
+                            movY = coords[ci++];
+                        }
+                        curX = movX;
+                        curY = movY;
+                        break;
+                    case PathIterator.LINE_TO:
+                        addLine(curX, curY, coords[ci], coords[ci + 1]);
+                        curX = coords[ci++];
+                        curY = coords[ci++];
+                        break;
+                    case PathIterator.QUAD_TO:
+                        double qx = coords[ci], qy = coords[ci + 1];
+                        double ex = coords[ci + 2], ey = coords[ci + 3];
+                        addCubic(curX, curY, curX + 2.0 / 3.0 * (qx - curX), curY + 2.0 / 3.0 * (qy - curY), ex + 2.0 / 3.0 * (qx - ex), ey + 2.0 / 3.0 * (qy - ey), ex, ey);
+                        ci  += 4;
+                        curX = ex;
+                        curY = ey;
+                        break;
+                    case PathIterator.BEZIER_TO:
+                        addCubic(curX, curY, coords[ci], coords[ci + 1], coords[ci + 2], coords[ci + 3], coords[ci + 4], coords[ci + 5]);
+                        ci  += 6;
+                        curX = coords[ci - 2];
+                        curY = coords[ci - 1];
+                        break;
+                }
+            }
+        }
+
+        pieceMinX = new double[numPieces];
+        pieceMinY = new double[numPieces];
+        pieceMaxX = new double[numPieces];
+        pieceMaxY = new double[numPieces];
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0 ; i < numPieces ; i++) {
+            int o   = 8 * i;
+            int end = pieceType[i] == LINE ? o + 2 : o + 6;
+            pieceMinX[i] = Math.min(pieceCoords[o], pieceCoords[end]);
+            pieceMinY[i] = Math.min(pieceCoords[o + 1], pieceCoords[end + 1]);
+            pieceMaxX[i] = Math.max(pieceCoords[o], pieceCoords[end]);
+            pieceMaxY[i] = Math.max(pieceCoords[o + 1], pieceCoords[end + 1]);
+            minX = Math.min(minX, pieceMinX[i]);
+            minY = Math.min(minY, pieceMinY[i]);
+            maxX = Math.max(maxX, pieceMaxX[i]);
+            maxY = Math.max(maxY, pieceMaxY[i]);
+        }
+        buildBands();
+    }
+
+    // One band per piece, fewer if tall pieces would be copied into too many bands
+    private void buildBands() {
+        numBands  = Math.max(1, numPieces);
+        bandStart = new int[numBands + 1];
+        for (;;) {
+            bandScale = maxY > minY ? numBands / (maxY - minY) : 0;
+            Arrays.fill(bandStart, 0, numBands + 1, 0);
+            long copies = 0;
+            for (int i = 0 ; i < numPieces ; i++) {
+                int first = getBand(pieceMinY[i]);
+                int last  = getBand(pieceMaxY[i]);
+                copies += last - first + 1;
+                for (int band = first ; band <= last ; band++) { bandStart[band + 1]++; }
+            }
+            if (numBands == 1 || copies <= (long) MAX_BAND_COPIES * numPieces) { break; }
+            numBands /= 2;
+        }
+        for (int band = 0 ; band < numBands ; band++) { bandStart[band + 1] += bandStart[band]; }
+        bandPieces = new int[bandStart[numBands]];
+        int[] fill = Arrays.copyOf(bandStart, numBands);
+        for (int i = 0 ; i < numPieces ; i++) {
+            int last = getBand(pieceMaxY[i]);
+            for (int band = getBand(pieceMinY[i]) ; band <= last ; band++) { bandPieces[fill[band]++] = i; }
+        }
+    }
+
+    private void addLine(final double X0, final double Y0, final double X1, final double Y1) {
+        int o = addPiece(LINE);
+        pieceCoords[o]     = X0;
+        pieceCoords[o + 1] = Y0;
+        pieceCoords[o + 2] = X1;
+        pieceCoords[o + 3] = Y1;
+    }
+
+    // Splits the cubic at the roots of its x and y derivative
+    private void addCubic(double x0, double y0, double x1, double y1, double x2, double y2, final double X3, final double Y3) {
+        double[] ts    = new double[4];
+        int      numTs = derivativeRoots(x0, x1, x2, X3, ts, 0);
+        numTs = derivativeRoots(y0, y1, y2, Y3, ts, numTs);
+        Arrays.sort(ts, 0, numTs);
+        double prev = 0;
+        for (int i = 0 ; i < numTs ; i++) {
+            if (ts[i] - prev < ROOT_EPSILON) { continue; }
+            // Split the remaining part [prev, 1] at ts[i] with de Casteljau
+            double u    = (ts[i] - prev) / (1 - prev);
+            double x01  = x0 + (x1 - x0) * u,       y01  = y0 + (y1 - y0) * u;
+            double x12  = x1 + (x2 - x1) * u,       y12  = y1 + (y2 - y1) * u;
+            double x23  = x2 + (X3 - x2) * u,       y23  = y2 + (Y3 - y2) * u;
+            double x012 = x01 + (x12 - x01) * u,    y012 = y01 + (y12 - y01) * u;
+            double x123 = x12 + (x23 - x12) * u,    y123 = y12 + (y23 - y12) * u;
+            double xm   = x012 + (x123 - x012) * u, ym   = y012 + (y123 - y012) * u;
+            setCubic(addPiece(CUBIC), x0, y0, x01, y01, x012, y012, xm, ym);
+            x0 = xm;   y0 = ym;
+            x1 = x123; y1 = y123;
+            x2 = x23;  y2 = y23;
+            prev = ts[i];
+        }
+        setCubic(addPiece(CUBIC), x0, y0, x1, y1, x2, y2, X3, Y3);
+    }
+
+    private void setCubic(final int O, final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3) {
+        pieceCoords[O]     = X0;
+        pieceCoords[O + 1] = Y0;
+        pieceCoords[O + 2] = X1;
+        pieceCoords[O + 3] = Y1;
+        pieceCoords[O + 4] = X2;
+        pieceCoords[O + 5] = Y2;
+        pieceCoords[O + 6] = X3;
+        pieceCoords[O + 7] = Y3;
+    }
+
+    private int addPiece(final int TYPE) {
+        if (numPieces == pieceType.length) {
+            pieceType   = Arrays.copyOf(pieceType, numPieces * 2);
+            pieceCoords = Arrays.copyOf(pieceCoords, 8 * numPieces * 2);
+        }
+        pieceType[numPieces] = (byte) TYPE;
+        return 8 * numPieces++;
+    }
+
+    // Roots in (0, 1) of the derivative a t^2 + b t + c of the cubic with the given coordinates, appended to TS
+    private static int derivativeRoots(final double P0, final double P1, final double P2, final double P3, final double[] TS, final int NUM_TS) {
+        double a     = P3 - 3 * P2 + 3 * P1 - P0;
+        double b     = 2 * (P2 - 2 * P1 + P0);
+        double c     = P1 - P0;
+        int    count = NUM_TS;
+        double scale = Math.abs(P0) + Math.abs(P1) + Math.abs(P2) + Math.abs(P3);
+        if (Math.abs(a) <= 1e-12 * scale) {
+            if (b != 0) { count = addRoot(-c / b, TS, count); }
+            return count;
+        }
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant < 0) { return count; }
+        // Numerically stable form of the quadratic formula
+        double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+        count = addRoot(q / a, TS, count);
+        if (q != 0) { count = addRoot(c / q, TS, count); }
+        return count;
+    }
+
+    private static int addRoot(final double T, final double[] TS, final int COUNT) {
+        if (T > ROOT_EPSILON && T < 1 - ROOT_EPSILON) {
+            TS[COUNT] = T;
+            return COUNT + 1;
+        }
+        return COUNT;
+    }
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+
+
+// Boolean operations on shapes without going through java.awt.geom.Area. Both shapes are split into pieces that are
+// monotone in y (quads are elevated to cubics, sub paths are closed). A sweep line then moves down from one piece end
+// point or crossing to the next. Within such a band no pieces cross, so sorting them by x and counting the windings of
+// both shapes from left to right tells which pieces bound the result. The bounding parts are chained into closed
+// contours that have the inside on their right, the result uses WIND_NON_ZERO.
+public class PathBoolean {
+    public enum Operation { UNION, INTERSECTION, DIFFERENCE, XOR }
+
+    private static final int    LINE                = 0;
+    private static final int    CUBIC               = 1;
+    private static final int    ROOT_ITERATIONS     = 60;
+    private static final double ROOT_EPSILON        = 1e-14;
+    private static final int    CROSSING_ITERATIONS = 64;
+    private static final int    CROSSING_SAMPLES    = 4;
+    private static final double RELATIVE_TOLERANCE  = 1e-9;
+    private static final int    DOWN                = 1;
+    private static final int    UP                  = -1;
+    private final Operation     operation;
+    private final WindingRule   ruleA;
+    private final WindingRule   ruleB;
+    private double              tolerance;
+    // Pieces are stored top down, dir tells if the original piece went down (+1) or up (-1)
+    private int                 numPieces;
+    private byte[]              pieceType;
+    private byte[]              pieceOperand;
+    private byte[]              pieceDir;
+    private double[]            pieceCoords;
+    // Spans are the parts of pieces on the result boundary, endpoint 2 * span is the top, 2 * span + 1 the bottom
+    private int                 numSpans;
+    private int[]               spanPiece;
+    private byte[]              spanDir;
+    private double[]            spanT;
+    private double[]            endpointX;
+    private double[]            endpointY;
+    private int[]               link;
+    // Sweep state
+    private int[]               active;
+    private double[]            activeX;
+    private int                 numActive;
+    private int[]               pieceSpan;
+    private byte[]              pieceStatus;
+    private int[]               crossingPiece;
+    private double[]            crossingY;
+    private int[]               endpoints;
+    private double[]            endpointKeys;
+    private int                 numEndpoints;
+
+
+    // ******************** Constructors **************************************
+    private PathBoolean(final Operation OPERATION, final Shape A, final Shape B) {
+        operation    = OPERATION;
+        ruleA        = A.getPathIterator(null).getWindingRule();
+        ruleB        = B.getPathIterator(null).getWindingRule();
+        pieceType    = new byte[64];
+        pieceOperand = new byte[64];
+        pieceDir     = new byte[64];
+        pieceCoords  = new double[8 * 64];
+        addShape(A, 0);
+        addShape(B, 1);
+    }
+
+
+    // ******************** Methods *******************************************
+    public static Path union(final Shape A, final Shape B) { return apply(A, B, Operation.UNION); }
+
+    public static Path intersect(final Shape A, final Shape B) { return apply(A, B, Operation.INTERSECTION); }
+
+    public static Path subtract(final Shape A, final Shape B) { return apply(A, B, Operation.DIFFERENCE); }
+
+    public static Path xor(final Shape A, final Shape B) { return apply(A, B, Operation.XOR); }
+
+    public static Path apply(final Shape A, final Shape B, final Operation OPERATION) {
+        return new PathBoolean(OPERATION, A, B).sweep();
+    }
+
+    private boolean isInside(final int WINDING_A, final int WINDING_B) {
+        boolean a = ruleA == WindingRule.WIND_NON_ZERO ? WINDING_A != 0 : (WINDING_A & 1) != 0;
+        boolean b = ruleB == WindingRule.WIND_NON_ZERO ? WINDING_B != 0 : (WINDING_B & 1) != 0;
+        switch (operation) {
+            case UNION       : return a || b;
+            case INTERSECTION: return a && b;
+            case DIFFERENCE  : return a && !b;
+            case XOR         : return a != b;
+            default          : return false;
+        }
+    }
+
+    private Path sweep() {
+        Path result = new Path(WindingRule.WIND_NON_ZERO);
+        if (numPieces == 0) { return result; }
+
+        double[] tops  = new double[numPieces];
+        int[]    order = new int[numPieces];
+        for (int i = 0 ; i < numPieces ; i++) {
+            tops[i]  = pieceCoords[8 * i + 1];
+            order[i] = i;
+        }
+        ContainmentMask.sort(tops, order, 0, numPieces);
+
+        spanPiece     = new int[64];
+        spanDir       = new byte[64];
+        spanT         = new double[128];
+        endpointX     = new double[128];
+        endpointY     = new double[128];
+        active        = new int[numPieces];
+        activeX       = new double[numPieces];
+        pieceSpan     = new int[numPieces];
+        pieceStatus   = new byte[numPieces];
+        crossingPiece = new int[numPieces];
+        crossingY     = new double[numPieces];
+        endpoints     = new int[64];
+        endpointKeys  = new double[64];
+        Arrays.fill(pieceSpan, -1);
+        Arrays.fill(crossingPiece, -1);
+
+        double[] sampleX = new double[(CROSSING_SAMPLES + 1) * numPieces];
+        int      next    = 0;
+        double   y       = tops[0];
+        while (true) {
+            // Pieces that end at the sweep line close their spans
+            int kept = 0;
+            for (int i = 0 ; i < numActive ; i++) {
+                int piece = active[i];
+                if (getBottom(piece) <= y) {
+                    closeSpan(piece, y);
+                } else {
+                    active[kept++] = piece;
+                }
+            }
+            numActive = kept;
+            while (next < numPieces && tops[next] <= y) { active[numActive++] = order[next++]; }
+            if (numActive == 0) {
+                linkEndpoints();
+                if (next == numPieces) { break; }
+                y = tops[next];
+                continue;
+            }
+
+            double yNext = next < numPieces ? tops[next] : Double.POSITIVE_INFINITY;
+            for (int i = 0 ; i < numActive ; i++) { yNext = Math.min(yNext, getBottom(active[i])); }
+            yNext = findBand(y, yNext, sampleX);
+            classify(y, yNext);
+            linkEndpoints();
+            y = yNext;
+        }
+        return buildPath(result);
+    }
+
+    // Shortens the band until no two active pieces cross inside of it and leaves the pieces sorted by x in the band
+    private double findBand(final double Y, double yNext, final double[] SAMPLE_X) {
+        while (true) {
+            double yMid = (Y + yNext) * 0.5;
+            for (int i = 0 ; i < numActive ; i++) {
+                activeX[i] = xAtY(active[i], yMid);
+                // The order hardly changes from band to band, so insertion sort is close to linear
+                for (int j = i ; j > 0 && activeX[j - 1] > activeX[j] ; j--) {
+                    double x = activeX[j];
+                    int    a = active[j];
+                    activeX[j]     = activeX[j - 1];
+                    active[j]      = active[j - 1];
+                    activeX[j - 1] = x;
+                    active[j - 1]  = a;
+                }
+            }
+            for (int s = 0 ; s <= CROSSING_SAMPLES ; s++) {
+                double ys = Y + (yNext - Y) * s / CROSSING_SAMPLES;
+                for (int i = 0 ; i < numActive ; i++) { SAMPLE_X[s * numActive + i] = xAtY(active[i], ys); }
+            }
+            // Two neighbours that swapped their order between a sample and the middle of the band cross in between
+            double crossing = yNext;
+            for (int s = 0 ; s <= CROSSING_SAMPLES ; s++) {
+                double ys = Y + (yNext - Y) * s / CROSSING_SAMPLES;
+                for (int i = 0 ; i < numActive - 1 ; i++) {
+                    if (SAMPLE_X[s * numActive + i] - SAMPLE_X[s * numActive + i + 1] > tolerance) {
+                        crossing = Math.min(crossing, findCrossing(active[i], active[i + 1], ys, yMid));
+                    }
+                }
+            }
+            if (crossing >= yNext) { return yNext; }
+            yNext = crossing;
+        }
+    }
+
+    // Regula falsi (Illinois) between a y where A is right of B and a y where it is not. Neighbours stay neighbours
+    // for a while, so the last crossing found for a piece is remembered.
+    private double findCrossing(final int A, final int B, final double Y_SWAPPED, final double Y_SORTED) {
+        double lower = Math.min(Y_SWAPPED, Y_SORTED);
+        double upper = Math.max(Y_SWAPPED, Y_SORTED);
+        if (crossingPiece[A] == B && crossingY[A] > lower && crossingY[A] < upper) { return crossingY[A]; }
+        double swapped   = Y_SWAPPED;
+        double sorted    = Y_SORTED;
+        double dxSwapped = xAtY(A, swapped) - xAtY(B, swapped);
+        double dxSorted  = xAtY(A, sorted) - xAtY(B, sorted);
+        double y         = (swapped + sorted) * 0.5;
+        int    side      = 0;
+        for (int i = 0 ; i < CROSSING_ITERATIONS ; i++) {
+            y = dxSwapped - dxSorted > 0 ? swapped + (sorted - swapped) * dxSwapped / (dxSwapped - dxSorted) : (swapped + sorted) * 0.5;
+            if (!(y > lower && y < upper)) { y = (swapped + sorted) * 0.5; }
+            double dx = xAtY(A, y) - xAtY(B, y);
+            if (Math.abs(dx) <= tolerance * 0.5) { break; }
+            if (dx > 0) {
+                swapped   = y;
+                dxSwapped = dx;
+                if (side == 1) { dxSorted *= 0.5; }
+                side = 1;
+            } else {
+                sorted   = y;
+                dxSorted = dx;
+                if (side == -1) { dxSwapped *= 0.5; }
+                side = -1;
+            }
+        }
+        crossingPiece[A] = B;
+        crossingY[A]     = y;
+        crossingPiece[B] = A;
+        crossingY[B]     = y;
+        return y;
+    }
+
+    // Walks the band from left to right and opens or closes spans where a piece starts or stops to bound the result
+    private void classify(final double Y, final double Y_NEXT) {
+        int     windingA = 0;
+        int     windingB = 0;
+        boolean inside   = false;
+        int     i        = 0;
+        while (i < numActive) {
+            // Pieces of both shapes that lie on top of each other are treated as one, e.g. shared edges
+            int end = i + 1;
+            while (end < numActive && activeX[end] - activeX[i] <= tolerance && isCoincident(active[i], active[end], Y, Y_NEXT)) { end++; }
+            for (int j = i ; j < end ; j++) {
+                int piece = active[j];
+                if (pieceOperand[piece] == 0) { windingA += pieceDir[piece]; } else { windingB += pieceDir[piece]; }
+            }
+            boolean after  = isInside(windingA, windingB);
+            int     status = after == inside ? 0 : (after ? UP : DOWN);
+            for (int j = i ; j < end ; j++) {
+                int piece = active[j];
+                if (pieceStatus[piece] != status) {
+                    closeSpan(piece, Y);
+                    if (status != 0) { openSpan(piece, Y, status); }
+                }
+                status = 0;
+            }
+            inside = after;
+            i      = end;
+        }
+    }
+
+    private boolean isCoincident(final int A, final int B, final double Y, final double Y_NEXT) {
+        return Math.abs(xAtY(A, Y) - xAtY(B, Y)) <= tolerance && Math.abs(xAtY(A, Y_NEXT) - xAtY(B, Y_NEXT)) <= tolerance;
+    }
+
+    private void openSpan(final int PIECE, final double Y, final int DIR) {
+        if (numSpans == spanPiece.length) {
+            int capacity = numSpans * 2;
+            spanPiece = Arrays.copyOf(spanPiece, capacity);
+            spanDir   = Arrays.copyOf(spanDir, capacity);
+            spanT     = Arrays.copyOf(spanT, 2 * capacity);
+            endpointX = Arrays.copyOf(endpointX, 2 * capacity);
+            endpointY = Arrays.copyOf(endpointY, 2 * capacity);
+        }
+        int span = numSpans++;
+        spanPiece[span]    = PIECE;
+        spanDir[span]      = (byte) DIR;
+        pieceSpan[PIECE]   = span;
+        pieceStatus[PIECE] = (byte) DIR;
+        setEndpoint(2 * span, PIECE, Y);
+    }
+
+    private void closeSpan(final int PIECE, final double Y) {
+        int span = pieceSpan[PIECE];
+        if (span < 0) { return; }
+        pieceSpan[PIECE]   = -1;
+        pieceStatus[PIECE] = 0;
+        setEndpoint(2 * span + 1, PIECE, Y);
+    }
+
+    private void setEndpoint(final int ENDPOINT, final int PIECE, final double Y) {
+        double t = tAtY(PIECE, Y);
+        spanT[ENDPOINT]     = t;
+        endpointX[ENDPOINT] = t == 1 ? pieceCoords[8 * PIECE + getEnd(PIECE)] : xAt(PIECE, t);
+        endpointY[ENDPOINT] = t == 0 ? pieceCoords[8 * PIECE + 1] : (t == 1 ? pieceCoords[8 * PIECE + getEnd(PIECE) + 1] : Y);
+        if (numEndpoints == endpoints.length) {
+            endpoints    = Arrays.copyOf(endpoints, numEndpoints * 2);
+            endpointKeys = Arrays.copyOf(endpointKeys, numEndpoints * 2);
+        }
+        endpointKeys[numEndpoints] = endpointX[ENDPOINT];
+        endpoints[numEndpoints++]  = ENDPOINT;
+    }
+
+    // Contours run up along left and down along right boundaries, so an endpoint is where a contour arrives if it
+    // is the top of an upward or the bottom of a downward span
+    private boolean isArrival(final int ENDPOINT) {
+        return ((ENDPOINT & 1) == 0) == (spanDir[ENDPOINT >> 1] == UP);
+    }
+
+    // The boundary on the sweep line is where the result above and below differ. Endpoints within the tolerance are
+    // one vertex, where arrivals are linked to departures first. What is left of a vertex is all of one kind and is
+    // linked along the sweep line to what is left of the vertices to its left, or waits for the vertices to its right.
+    private void linkEndpoints() {
+        if (numEndpoints == 0) { return; }
+        if (link == null || link.length < endpointX.length) {
+            int from = link == null ? 0 : link.length;
+            link = link == null ? new int[endpointX.length] : Arrays.copyOf(link, endpointX.length);
+            Arrays.fill(link, from, link.length, -1);
+        }
+        ContainmentMask.sort(endpointKeys, endpoints, 0, numEndpoints);
+        // Unlinked endpoints are kept at the start of endpoints, which never overtakes the vertex being read
+        int numPending = 0;
+        int i          = 0;
+        while (i < numEndpoints) {
+            int last = i + 1;
+            while (last < numEndpoints && endpointKeys[last] - endpointKeys[last - 1] <= tolerance) { last++; }
+            int vertex = numPending;
+            for (int j = i ; j < last ; j++) {
+                int e = endpoints[j];
+                if (numPending > vertex && isArrival(endpoints[numPending - 1]) != isArrival(e)) {
+                    connect(endpoints[--numPending], e);
+                } else {
+                    endpoints[numPending++] = e;
+                }
+            }
+            int left  = vertex;
+            int right = vertex;
+            while (left > 0 && right < numPending && isArrival(endpoints[left - 1]) != isArrival(endpoints[right])) {
+                connect(endpoints[--left], endpoints[right++]);
+            }
+            System.arraycopy(endpoints, right, endpoints, left, numPending - right);
+            numPending -= right - left;
+            i = last;
+        }
+        if (numPending > 0) { throw new IllegalStateException("unbalanced boundary on sweep line y=" + endpointY[endpoints[0]]); }
+        numEndpoints = 0;
+    }
+
+    private void connect(final int A, final int B) {
+        if (isArrival(A)) { link[A] = B; } else { link[B] = A; }
+    }
+
+    private Path buildPath(final Path RESULT) {
+        boolean[] done = new boolean[numSpans];
+        for (int first = 0 ; first < numSpans ; first++) {
+            if (done[first]) { continue; }
+            int departure = spanDir[first] == UP ? 2 * first + 1 : 2 * first;
+            RESULT.moveTo(endpointX[departure], endpointY[departure]);
+            int span = first;
+            while (true) {
+                done[span] = true;
+                appendSpan(RESULT, span);
+                int arrival = spanDir[span] == UP ? 2 * span : 2 * span + 1;
+                departure   = link == null ? -1 : link[arrival];
+                // Every arrival is linked on its sweep line, so the links form closed contours
+                if (departure < 0 || ((departure >> 1) != first && done[departure >> 1])) {
+                    throw new IllegalStateException("open contour at x=" + endpointX[arrival] + ", y=" + endpointY[arrival]);
+                }
+                if ((departure >> 1) == first) {
+                    RESULT.closePath();
+                    break;
+                }
+                if (endpointX[departure] != endpointX[arrival] || endpointY[departure] != endpointY[arrival]) {
+                    RESULT.lineTo(endpointX[departure], endpointY[departure]);
+                }
+                span = departure >> 1;
+            }
+        }
+        return RESULT;
+    }
+
+    private void appendSpan(final Path RESULT, final int SPAN) {
+        int     piece = spanPiece[SPAN];
+        boolean up    = spanDir[SPAN] == UP;
+        int     from  = up ? 2 * SPAN + 1 : 2 * SPAN;
+        int     to    = up ? 2 * SPAN : 2 * SPAN + 1;
+        if (pieceType[piece] == LINE) {
+            RESULT.lineTo(endpointX[to], endpointY[to]);
+            return;
+        }
+        // Control points of the part between the two parameters, blossoming the cubic at (t0, t0, t1) and (t0, t1, t1)
+        double[] c  = pieceCoords;
+        int      o  = 8 * piece;
+        double   t0 = spanT[2 * SPAN];
+        double   t1 = spanT[2 * SPAN + 1];
+        double   x1 = blossom(c[o], c[o + 2], c[o + 4], c[o + 6], t0, t0, t1);
+        double   y1 = blossom(c[o + 1], c[o + 3], c[o + 5], c[o + 7], t0, t0, t1);
+        double   x2 = blossom(c[o], c[o + 2], c[o + 4], c[o + 6], t0, t1, t1);
+        double   y2 = blossom(c[o + 1], c[o + 3], c[o + 5], c[o + 7], t0, t1, t1);
+        if (up) {
+            RESULT.bezierCurveTo(x2, y2, x1, y1, endpointX[to], endpointY[to]);
+        } else {
+            RESULT.bezierCurveTo(x1, y1, x2, y2, endpointX[to], endpointY[to]);
+        }
+    }
+
+    private static double blossom(final double P0, final double P1, final double P2, final double P3, final double U, final double V, final double W) {
+        double a0 = P0 + (P1 - P0) * U, a1 = P1 + (P2 - P1) * U, a2 = P2 + (P3 - P2) * U;
+        double b0 = a0 + (a1 - a0) * V, b1 = a1 + (a2 - a1) * V;
+        return b0 + (b1 - b0) * W;
+    }
+
+    private int getEnd(final int PIECE) { return pieceType[PIECE] == LINE ? 2 : 6; }
+
+    private double getBottom(final int PIECE) { return pieceCoords[8 * PIECE + getEnd(PIECE) + 1]; }
+
+    private double xAtY(final int PIECE, final double Y) { return xAt(PIECE, tAtY(PIECE, Y)); }
+
+    private double xAt(final int PIECE, final double T) {
+        double[] c = pieceCoords;
+        int      o = 8 * PIECE;
+        if (pieceType[PIECE] == LINE) { return T == 1 ? c[o + 2] : c[o] + (c[o + 2] - c[o]) * T; }
+        double s = 1 - T;
+        return s * s * s * c[o] + 3 * s * T * (s * c[o + 2] + T * c[o + 4]) + T * T * T * c[o + 6];
+    }
+
+    // Parameter where the piece reaches the given y, clamped to the piece
+    private double tAtY(final int PIECE, final double Y) {
+        double[] c      = pieceCoords;
+        int      o      = 8 * PIECE;
+        double   top    = c[o + 1];
+        double   bottom = getBottom(PIECE);
+        if (Y <= top)    { return 0; }
+        if (Y >= bottom) { return 1; }
+        double t = (Y - top) / (bottom - top);
+        if (pieceType[PIECE] == LINE) { return t; }
+        // Power basis y(t) = a t^3 + b t^2 + c t + d
+        double ay    = -c[o + 1] + 3 * (c[o + 3] - c[o + 5]) + c[o + 7];
+        double by    = 3 * (c[o + 1] - 2 * c[o + 3] + c[o + 5]);
+        double cy    = 3 * (c[o + 3] - c[o + 1]);
+        double dy    = c[o + 1] - Y;
+        double lower = 0;
+        double upper = 1;
+        // Newton iteration that falls back to bisection whenever a step leaves the bracket
+        for (int i = 0 ; i < ROOT_ITERATIONS && upper - lower > ROOT_EPSILON ; i++) {
+            double f = ((ay * t + by) * t + cy) * t + dy;
+            if (f == 0) { break; }
+            if (f < 0) { lower = t; } else { upper = t; }
+            double df   = (3 * ay * t + 2 * by) * t + cy;
+            double next = df != 0 ? t - f / df : Double.NaN;
+            if (!(next > lower && next < upper)) { next = (lower + upper) * 0.5; }
+            if (Math.abs(next - t) < ROOT_EPSILON) {
+                t = next;
+                break;
+            }
+            t = next;
+        }
+        return t;
+    }
+
+    private void addShape(final Shape SHAPE, final int OPERAND) {
+        PathIterator iterator = SHAPE.getPathIterator(null);
+        double[]     coords   = new double[6];
+        double       movX     = 0, movY = 0;
+        double       curX     = 0, curY = 0;
+        double       scale    = tolerance / RELATIVE_TOLERANCE;
+        while (!iterator.isDone()) {
+            int type = iterator.currentSegment(coords);
+            switch (type) {
+                case PathIterator.MOVE_TO:
+                    addLine(curX, curY, movX, movY, OPERAND);
+                    movX = curX = coords[0];
+                    movY = curY = coords[1];
+                    break;
+                case PathIterator.LINE_TO:
+                    addLine(curX, curY, coords[0], coords[1], OPERAND);
+                    curX = coords[0];
+                    curY = coords[1];
+                    break;
+                case PathIterator.QUAD_TO:
+                    addCubic(curX, curY, curX + 2.0 / 3.0 * (coords[0] - curX), curY + 2.0 / 3.0 * (coords[1] - curY),
+                             coords[2] + 2.0 / 3.0 * (coords[0] - coords[2]), coords[3] + 2.0 / 3.0 * (coords[1] - coords[3]), coords[2], coords[3], OPERAND);
+                    curX = coords[2];
+                    curY = coords[3];
+                    break;
+                case PathIterator.BEZIER_TO:
+                    addCubic(curX, curY, coords[0], coords[1], coords[2], coords[3], coords[4], coords[5], OPERAND);
+                    curX = coords[4];
+                    curY = coords[5];
+                    break;
+                case PathIterator.CLOSE:
+                    addLine(curX, curY, movX, movY, OPERAND);
+                    curX = movX;
+                    curY = movY;
+                    break;
+            }
+            for (int i = 0 ; i < 6 ; i++) { scale = Math.max(scale, Math.abs(coords[i])); }
+            iterator.next();
+        }
+        addLine(curX, curY, movX, movY, OPERAND);
+        tolerance = Math.max(1, scale) * RELATIVE_TOLERANCE;
+    }
+
+    private void addLine(final double X0, final double Y0, final double X1, final double Y1, final int OPERAND) {
+        // Horizontal pieces do not change the winding along the sweep line
+        if (Y0 == Y1) { return; }
+        int o = addPiece(LINE, OPERAND, Y0 < Y1 ? DOWN : UP);
+        if (Y0 < Y1) {
+            setCoords(o, X0, Y0, X1, Y1, 0, 0, 0, 0);
+        } else {
+            setCoords(o, X1, Y1, X0, Y0, 0, 0, 0, 0);
+        }
+    }
+
+    // Splits the cubic where its y derivative is zero
+    private void addCubic(double x0, double y0, double x1, double y1, double x2, double y2, final double X3, final double Y3, final int OPERAND) {
+        double[] ts    = new double[2];
+        int      numTs = 0;
+        double   a     = Y3 - 3 * y2 + 3 * y1 - y0;
+        double   b     = 2 * (y2 - 2 * y1 + y0);
+        double   c     = y1 - y0;
+        double[] roots = new double[2];
+        int      n     = AbstractSegment.solveQuad(a, b, c, roots);
+        for (int i = 0 ; i < n ; i++) {
+            if (roots[i] > ROOT_EPSILON && roots[i] < 1 - ROOT_EPSILON) { ts[numTs++] = roots[i]; }
+        }
+        if (numTs == 2 && ts[0] > ts[1]) {
+            double t = ts[0];
+            ts[0] = ts[1];
+            ts[1] = t;
+        }
+        double prev = 0;
+        for (int i = 0 ; i < numTs ; i++) {
+            if (ts[i] - prev < ROOT_EPSILON) { continue; }
+            double u    = (ts[i] - prev) / (1 - prev);
+            double x01  = x0 + (x1 - x0) * u,       y01  = y0 + (y1 - y0) * u;
+            double x12  = x1 + (x2 - x1) * u,       y12  = y1 + (y2 - y1) * u;
+            double x23  = x2 + (X3 - x2) * u,       y23  = y2 + (Y3 - y2) * u;
+            double x012 = x01 + (x12 - x01) * u,    y012 = y01 + (y12 - y01) * u;
+            double x123 = x12 + (x23 - x12) * u,    y123 = y12 + (y23 - y12) * u;
+            double xm   = x012 + (x123 - x012) * u, ym   = y012 + (y123 - y012) * u;
+            addMonotoneCubic(x0, y0, x01, y01, x012, y012, xm, ym, OPERAND);
+            x0 = xm;   y0 = ym;
+            x1 = x123; y1 = y123;
+            x2 = x23;  y2 = y23;
+            prev = ts[i];
+        }
+        addMonotoneCubic(x0, y0, x1, y1, x2, y2, X3, Y3, OPERAND);
+    }
+
+    private void addMonotoneCubic(final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3, final int OPERAND) {
+        if (Y0 == Y3) { return; }
+        int o = addPiece(CUBIC, OPERAND, Y0 < Y3 ? DOWN : UP);
+        if (Y0 < Y3) {
+            setCoords(o, X0, Y0, X1, Y1, X2, Y2, X3, Y3);
+        } else {
+            setCoords(o, X3, Y3, X2, Y2, X1, Y1, X0, Y0);
+        }
+    }
+
+    private void setCoords(final int O, final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3) {
+        pieceCoords[O]     = X0;
+        pieceCoords[O + 1] = Y0;
+        pieceCoords[O + 2] = X1;
+        pieceCoords[O + 3] = Y1;
+        pieceCoords[O + 4] = X2;
+        pieceCoords[O + 5] = Y2;
+        pieceCoords[O + 6] = X3;
+        pieceCoords[O + 7] = Y3;
+    }
+
+    private int addPiece(final int TYPE, final int OPERAND, final int DIR) {
+        if (numPieces == pieceType.length) {
+            pieceType    = Arrays.copyOf(pieceType, numPieces * 2);
+            pieceOperand = Arrays.copyOf(pieceOperand, numPieces * 2);
+            pieceDir     = Arrays.copyOf(pieceDir, numPieces * 2);
+            pieceCoords  = Arrays.copyOf(pieceCoords, 8 * numPieces * 2);
+        }
+        pieceType[numPieces]    = (byte) TYPE;
+        pieceOperand[numPieces] = (byte) OPERAND;
+        pieceDir[numPieces]     = (byte) DIR;
+        return 8 * numPieces++;
+    }
+}
@@ -1,169 +1,169 @@
 package eu.hansolo.fx.geomfx.tools;
 
 import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.PathIterator;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.shape.StrokeLineJoin;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Arrays;
 
 
 public class PathGradient {
 
+    public  static final double DEFAULT_PRECISION     = 0.1;
+    public  static final double DEFAULT_STAMP_SPACING = 10;
+    private static final int    INITIAL_POINTS        = 64;
+
+
+    // Black stroke with a heart in the gradient color every DEFAULT_STAMP_SPACING units along the path
     public static void strokePathWithGradient(final GraphicsContext ctx, final Path path, final GradientLookup gradientLookup) {
-        //Map<Point, Double> samples = samplePath(path, 0.1);
-        Map<Point, Double> samples        = samplePath(path, 0.1);
-        Map<Point, Double> samplesPattern = samplePath(path, 10);
-        //draw(ctx, samplesPattern, gradientLookup, path.getLineWidth(), path.getLineCap());
-        draw(ctx, samples, samplesPattern, gradientLookup, path.getLineWidth(), path.getLineCap());
+        strokePath(ctx, path, Color.BLACK);
+        stampPathWithGradient(ctx, path, PathStamp.fromSVG(PathStamp.HEART_SVG), DEFAULT_STAMP_SPACING, PathStamp.Orientation.TANGENT, gradientLookup);
     }
 
-    private static Map<Point, Double> samplePath(final Path path, final double precision) {
-        PathTool           pathTool         = new PathTool(path);
-        double             length           = pathTool.getLengthOfPath();
-        Map<Point, Double> pointFractionMap = new LinkedHashMap<>();
-        for (double i = 0 ; i < length ; i += precision) {
-            Point p = pathTool.getPointAtLength(i);
-            pointFractionMap.put(p, (i / length));
-        }
-        pointFractionMap.put(pathTool.getSegmentPointAtLength(length), 1.0);
-        return pointFractionMap;
+    // Strokes the path itself in the gradient colors
+    public static void strokePathWithGradientColors(final GraphicsContext ctx, final Path path, final GradientLookup gradientLookup) {
+        strokePathWithGradientColors(ctx, path, gradientLookup, DEFAULT_PRECISION);
     }
+    // Walks the arc length index once and strokes every run of samples with the same color as one polyline
+    public static void strokePathWithGradientColors(final GraphicsContext ctx, final Path path, final GradientLookup gradientLookup, final double precision) {
+        if (precision <= 0) { throw new IllegalArgumentException("Precision must be > 0"); }
+        PathTool pathTool = new PathTool(path);
+        double   length   = pathTool.getLengthOfPath();
+        int      segments = pathTool.getNumSegments();
+        if (segments == 0 || length <= 0) { return; }
+
+        // With a LUT only its entries can come out, so fractions are snapped to them before the lookup
+        final double steps = getSteps(gradientLookup);
 
-    private static void draw1(final GraphicsContext ctx, final Map<Point, Double> samples, final GradientLookup gradientLookup, final double lineWidth, final StrokeLineCap lineCap) {
         ctx.save();
-        ctx.setLineCap(lineCap);
+        ctx.setLineCap(path.getLineCap());
         ctx.setLineJoin(StrokeLineJoin.ROUND);
-        AtomicReference<Point> lp = new AtomicReference<>(samples.keySet().iterator().next());
-        samples.keySet().forEach(p -> {
-            ctx.setLineWidth(lineWidth);
-            ctx.setStroke(gradientLookup.getColorAt(samples.get(p)));
-            ctx.strokeLine(lp.get().getX(), lp.get().getY(), p.getX(), p.getY());
-            lp.set(p);
-        });
+        ctx.setLineWidth(path.getLineWidth());
+
+        double[] xPoints   = new double[INITIAL_POINTS];
+        double[] yPoints   = new double[INITIAL_POINTS];
+        int      numPoints = 0;
+        int      runArgb   = 0;
+        Point    point     = new Point();
+        double   maxError  = pathTool.getMaxError();
+        double   position  = 0;
+        for (int i = 0 ; i < segments ; i++) {
+            AbstractSegment segment       = pathTool.getSegment(i);
+            double          segmentStart  = pathTool.getSegmentStartLength(i);
+            double          segmentLength = pathTool.segmentLengths[i] - segmentStart;
+            boolean         isLine        = pathTool.segmentTypes[i] == PathTool.LINE;
+            double          t             = 0;
+            double          tLength       = 0;
+
+            if ((pathTool.segmentFlags[i] & PathTool.FLAG_MOVE) != 0 || numPoints == 0) {
+                strokeRun(ctx, xPoints, yPoints, numPoints, runArgb);
+                segment.eval(0, point);
+                numPoints  = 0;
+                xPoints[0] = point.x;
+                yPoints[0] = point.y;
+                numPoints++;
+                runArgb = getArgb(gradientLookup, segmentStart / length, steps);
+            }
+
+            // Samples are placed at multiples of the precision along the whole path, the segment end is always added
+            while (position < segmentStart) { position += precision; }
+            for (;;) {
+                boolean atEnd = position >= segmentStart + segmentLength;
+                double  at    = atEnd ? segmentStart + segmentLength : position;
+                int     argb  = getArgb(gradientLookup, at / length, steps);
+                if (argb != runArgb || !isLine || atEnd) {
+                    t       = segment.advance(t, at - segmentStart - tLength, maxError);
+                    tLength = at - segmentStart;
+                    segment.eval(t, point);
+                    if (numPoints == xPoints.length) {
+                        xPoints = Arrays.copyOf(xPoints, numPoints * 2);
+                        yPoints = Arrays.copyOf(yPoints, numPoints * 2);
+                    }
+                    xPoints[numPoints] = point.x;
+                    yPoints[numPoints] = point.y;
+                    numPoints++;
+                    if (argb != runArgb) {
+                        // The new run starts where the old one ends to keep the stroke continuous
+                        strokeRun(ctx, xPoints, yPoints, numPoints, runArgb);
+                        xPoints[0] = point.x;
+                        yPoints[0] = point.y;
+                        numPoints  = 1;
+                        runArgb    = argb;
+                    }
+                }
+                if (atEnd) { break; }
+                position += precision;
+            }
+        }
+        strokeRun(ctx, xPoints, yPoints, numPoints, runArgb);
         ctx.restore();
     }
 
-    private static void draw2(final GraphicsContext ctx, final Map<Point, Double> samples, final GradientLookup gradientLookup, final double lineWidth, final StrokeLineCap lineCap) {
-        ctx.save();
-        ctx.setLineCap(lineCap);
-        ctx.setLineJoin(StrokeLineJoin.ROUND);
-        AtomicReference<Point> lastPoint = new AtomicReference<>(samples.keySet().iterator().next());
-        samples.keySet().forEach(p -> {
-            ctx.setLineWidth(lineWidth);
-            ctx.setFill(gradientLookup.getColorAt(samples.get(p)));
-            double[] patternCenter = Helper.getPointBetweenP1AndP2(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY());
-            double   alpha         = Helper.getAngleFromXY(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY(), 180);
-            ctx.save();
-            ctx.translate(patternCenter[0], patternCenter[1]);
-            ctx.rotate(alpha);
-            ctx.translate(-patternCenter[0], -patternCenter[1]);
-
-            ctx.beginPath();
-            ctx.moveTo(patternCenter[0] - 2.5, patternCenter[1] - 2.5);
-            ctx.lineTo(patternCenter[0], patternCenter[1] - 2.5);
-            ctx.lineTo(patternCenter[0] + 2.5, patternCenter[1]);
-            ctx.lineTo(patternCenter[0], patternCenter[1] + 2.5);
-            ctx.lineTo(patternCenter[0] - 2.5, patternCenter[1] + 2.5);
-            ctx.lineTo(patternCenter[0], patternCenter[1]);
-            ctx.lineTo(patternCenter[0] - 2.5, patternCenter[1] - 2.5);
-            ctx.closePath();
-            ctx.fill();
-            ctx.restore();
-
-            lastPoint.set(p);
-        });
-        ctx.restore();
+    private static double getSteps(final GradientLookup gradientLookup) {
+        return gradientLookup.getLutResolution() > 1 ? gradientLookup.getLutResolution() - 1 : 0;
     }
 
-    private static void draw3(final GraphicsContext ctx, final Map<Point, Double> samples, final GradientLookup gradientLookup, final double lineWidth, final StrokeLineCap lineCap) {
-        ctx.save();
-        ctx.setLineCap(lineCap);
-        ctx.setLineJoin(StrokeLineJoin.ROUND);
-        AtomicReference<Point> lastPoint = new AtomicReference<>(samples.keySet().iterator().next());
-        samples.keySet().forEach(p -> {
-            ctx.setLineWidth(lineWidth);
-            ctx.setFill(gradientLookup.getColorAt(samples.get(p)));
-            double[] patternCenter = Helper.getPointBetweenP1AndP2(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY());
-            double   alpha         = Helper.getAngleFromXY(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY(), 180);
-            ctx.save();
-            ctx.translate(patternCenter[0], patternCenter[1]);
-            ctx.rotate(alpha);
-
-            ctx.beginPath();
-            ctx.appendSVGPath("M-9,-4l0,-1l18,0l-0,4.996l-3.998,-3.996l-5.002,0l4.002,4l-4.002,4l5.002,0l3.998,-3.996l-0,4.996l-18,0l0,-1l4.99,0l3.998,-3.996l0,-0.008l-3.998,-3.996l-4.99,0Zm3.99,4l-3.99,3.988l0,-7.976l3.99,3.988Z");
-            ctx.closePath();
-            ctx.fill();
-
-            ctx.translate(-patternCenter[0], -patternCenter[1]);
-            ctx.restore();
-
-            lastPoint.set(p);
-        });
-        ctx.restore();
+    private static int getArgb(final GradientLookup gradientLookup, final double fraction, final double steps) {
+        return gradientLookup.getArgbAt(steps > 0 ? Math.round(fraction * steps) / steps : fraction);
     }
 
-    private static void draw4(final GraphicsContext ctx, final Map<Point, Double> samples, final GradientLookup gradientLookup, final double lineWidth, final StrokeLineCap lineCap) {
+    private static void strokePath(final GraphicsContext ctx, final Path path, final Color color) {
         ctx.save();
-        ctx.setLineCap(lineCap);
+        ctx.setLineCap(path.getLineCap());
         ctx.setLineJoin(StrokeLineJoin.ROUND);
-        AtomicReference<Point> lastPoint = new AtomicReference<>(samples.keySet().iterator().next());
-        samples.keySet().forEach(p -> {
-            ctx.setLineWidth(lineWidth);
-            ctx.setFill(gradientLookup.getColorAt(samples.get(p)));
-            double[] patternCenter = Helper.getPointBetweenP1AndP2(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY());
-            double   alpha         = Helper.getAngleFromXY(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY(), 270);
-            ctx.save();
-            ctx.translate(patternCenter[0], patternCenter[1]);
-            ctx.rotate(alpha);
-
-            ctx.beginPath();
-            ctx.appendSVGPath("M0,-4.995l1.125,3.451l3.642,0l-2.946,2.134l1.125,3.451l-2.946,-2.133l-2.946,2.133l1.125,-3.451l-2.946,-2.134l3.642,0l1.125,-3.451Z");
-            ctx.closePath();
-            ctx.fill();
-
-            ctx.translate(-patternCenter[0], -patternCenter[1]);
-            ctx.restore();
-
-            lastPoint.set(p);
-        });
+        ctx.setLineWidth(path.getLineWidth());
+        ctx.setStroke(color);
+        ctx.beginPath();
+        PathIterator pi  = path.getPathIterator(null);
+        double[]     seg = new double[6];
+        while (!pi.isDone()) {
+            switch (pi.currentSegment(seg)) {
+                case PathIterator.MOVE_TO  : ctx.moveTo(seg[0], seg[1]); break;
+                case PathIterator.LINE_TO  : ctx.lineTo(seg[0], seg[1]); break;
+                case PathIterator.QUAD_TO  : ctx.quadraticCurveTo(seg[0], seg[1], seg[2], seg[3]); break;
+                case PathIterator.BEZIER_TO: ctx.bezierCurveTo(seg[0], seg[1], seg[2], seg[3], seg[4], seg[5]); break;
+                case PathIterator.CLOSE    : ctx.closePath(); break;
+                default                    : break;
+            }
+            pi.next();
+        }
+        ctx.stroke();
         ctx.restore();
     }
 
-    private static void draw(final GraphicsContext ctx, final Map<Point, Double> samples, final Map<Point, Double> samplesPattern, final GradientLookup gradientLookup, final double lineWidth, final StrokeLineCap lineCap) {
+    private static void strokeRun(final GraphicsContext ctx, final double[] xPoints, final double[] yPoints, final int numPoints, final int argb) {
+        if (numPoints < 2) { return; }
+        ctx.setStroke(GradientLookup.fromArgb(argb));
+        ctx.strokePolyline(xPoints, yPoints, numPoints);
+    }
+
+    // Fills one stamp every spacing units along the path, consecutive stamps with the same color are filled together
+    public static void stampPathWithGradient(final GraphicsContext ctx, final Path path, final PathStamp stamp, final double spacing, final PathStamp.Orientation orientation, final GradientLookup gradientLookup) {
+        PathTool pathTool = new PathTool(path);
+        double   length   = pathTool.getLengthOfPath();
+        int      numPoses = stamp.computePoses(pathTool, 0, spacing);
+        if (numPoses == 0) { return; }
+        final double[] poses = stamp.getPoses();
+        final double   steps = getSteps(gradientLookup);
+
         ctx.save();
-        ctx.setLineCap(lineCap);
-        ctx.setLineJoin(StrokeLineJoin.ROUND);
-        AtomicReference<Point> lastPoint = new AtomicReference<>(samples.keySet().iterator().next());
-        ctx.setStroke(Color.BLACK);
-        samples.keySet().forEach(p -> {
-            ctx.setLineWidth(lineWidth);
-            ctx.strokeLine(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY());
-            lastPoint.set(p);
-        });
-
-        lastPoint.set(samplesPattern.keySet().iterator().next());
-        samplesPattern.keySet().forEach(p -> {
-            ctx.setFill(gradientLookup.getColorAt(samplesPattern.get(p)));
-            double[] patternCenter = Helper.getPointBetweenP1AndP2(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY());
-            double   alpha         = Helper.getAngleFromXY(lastPoint.get().getX(), lastPoint.get().getY(), p.getX(), p.getY(), 180);
-            ctx.save();
-            ctx.translate(patternCenter[0], patternCenter[1]);
-            ctx.rotate(alpha);
-
-            ctx.beginPath();
-            ctx.appendSVGPath("M0,-2.112c0.843,-1.408 2.529,-1.408 3.371,-0.704c0.843,0.704 0.843,2.112 0,3.52c-0.59,1.056 -2.107,2.112 -3.371,2.816c-1.264,-0.704 -2.781,-1.76 -3.371,-2.816c-0.843,-1.408 -0.843,-2.816 -0,-3.52c0.842,-0.704 2.528,-0.704 3.371,0.704Z");
-            ctx.closePath();
-            ctx.fill();
-
-            ctx.translate(-patternCenter[0], -patternCenter[1]);
-            ctx.restore();
-
-            lastPoint.set(p);
-        });
+        int runArgb = getArgb(gradientLookup, length > 0 ? poses[4] / length : 0, steps);
+        ctx.beginPath();
+        for (int i = 0 ; i < numPoses ; i++) {
+            int index = i * PathTool.POSE_SIZE;
+            int argb  = getArgb(gradientLookup, length > 0 ? poses[index + 4] / length : 0, steps);
+            if (argb != runArgb) {
+                ctx.setFill(GradientLookup.fromArgb(runArgb));
+                ctx.fill();
+                ctx.beginPath();
+                runArgb = argb;
+            }
+            stamp.appendStamp(poses[index], poses[index + 1], poses[index + 2], poses[index + 3], orientation, ctx);
+        }
+        ctx.setFill(GradientLookup.fromArgb(runArgb));
+        ctx.fill();
         ctx.restore();
     }
 }
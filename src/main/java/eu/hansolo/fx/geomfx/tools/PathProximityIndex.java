@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Line;
+import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.Shape;
+
+
+// Bounding volume hierarchy over the segments of a PathTool index for nearest point queries,
+// the closest point on quads and cubics is found by solving (B(t) - P) . B'(t) = 0
+public class PathProximityIndex {
+    private static final int    LEAF_SIZE        = 4;
+    private static final int    ROOT_SAMPLES     = 16;
+    private static final int    ROOT_ITERATIONS  = 40;
+    private static final double ROOT_EPSILON     = 1e-12;
+    private final PathTool      pathTool;
+    private int                 modCount;
+    private int                 numCommands;
+    private int                 numSegments;
+    private int                 numNodes;
+    private double[]            nodeMinX;
+    private double[]            nodeMinY;
+    private double[]            nodeMaxX;
+    private double[]            nodeMaxY;
+    private int[]               nodeStart;
+    private int[]               nodeCount;
+    private int[]               order;
+    private double[]            centers;
+    private int[]               stack;
+    private final double[]      poly;
+    // Result of the last segment query
+    private double              segT;
+    private double              segX;
+    private double              segY;
+
+
+    // ******************** Constructors **************************************
+    public PathProximityIndex(final Shape SHAPE) {
+        this(SHAPE, AbstractSegment.DEFAULT_MAX_ERROR);
+    }
+    public PathProximityIndex(final Shape SHAPE, final double MAX_ERROR) {
+        pathTool = new PathTool(SHAPE, MAX_ERROR);
+        poly     = new double[6];
+        build();
+    }
+
+
+    // ******************** Methods *******************************************
+    public Shape getPath() { return pathTool.getPath(); }
+    public void setPath(final Shape SHAPE) {
+        pathTool.setPath(SHAPE);
+        build();
+    }
+
+    public PathTool getPathTool() { return pathTool; }
+
+    public double getLengthOfPath() { return pathTool.getLengthOfPath(); }
+
+    // Returns false if the path has no segments
+    public boolean getNearest(final double X, final double Y, final Hit RESULT) { return findNearest(X, Y, RESULT, true); }
+    public Hit getNearest(final double X, final double Y) {
+        Hit hit = new Hit();
+        return getNearest(X, Y, hit) ? hit : null;
+    }
+    public Hit getNearest(final Point POINT) { return getNearest(POINT.x, POINT.y); }
+
+    public double getDistance(final double X, final double Y) {
+        Hit hit = new Hit();
+        return findNearest(X, Y, hit, false) ? hit.distance : Double.POSITIVE_INFINITY;
+    }
+
+    // True if the point is within TOLERANCE (e.g. half the line width) of the outline, stops at the first segment that is close enough
+    public boolean hitTest(final double X, final double Y, final double TOLERANCE) {
+        validate();
+        if (numSegments == 0 || TOLERANCE < 0) { return false; }
+        double toleranceSq = TOLERANCE * TOLERANCE;
+        int    top         = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (boxDistanceSq(node, X, Y) > toleranceSq) { continue; }
+            if (nodeCount[node] > 0) {
+                for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                    if (segmentDistanceSq(order[i], X, Y) <= toleranceSq) { return true; }
+                }
+            } else {
+                stack[top++] = nodeStart[node];
+                stack[top++] = nodeStart[node] + 1;
+            }
+        }
+        return false;
+    }
+
+    // POINTS holds x,y pairs, DISTANCES and LENGTHS (arc length of the nearest point) may be null
+    public void getNearest(final double[] POINTS, final int OFFSET, final int NUM_POINTS, final double[] DISTANCES, final double[] LENGTHS) {
+        Hit hit = new Hit();
+        for (int i = 0 ; i < NUM_POINTS ; i++) {
+            boolean found = findNearest(POINTS[OFFSET + 2 * i], POINTS[OFFSET + 2 * i + 1], hit, null != LENGTHS);
+            if (null != DISTANCES) { DISTANCES[i] = found ? hit.distance : Double.POSITIVE_INFINITY; }
+            if (null != LENGTHS)   { LENGTHS[i]   = found ? hit.length   : Double.NaN; }
+        }
+    }
+
+    // POINTS holds x,y pairs, returns the number of hits
+    public int hitTest(final double[] POINTS, final int OFFSET, final int NUM_POINTS, final double TOLERANCE, final boolean[] RESULTS) {
+        int hits = 0;
+        for (int i = 0 ; i < NUM_POINTS ; i++) {
+            boolean hit = hitTest(POINTS[OFFSET + 2 * i], POINTS[OFFSET + 2 * i + 1], TOLERANCE);
+            if (null != RESULTS) { RESULTS[i] = hit; }
+            if (hit) { hits++; }
+        }
+        return hits;
+    }
+
+    private boolean findNearest(final double X, final double Y, final Hit RESULT, final boolean WITH_LENGTH) {
+        validate();
+        if (numSegments == 0) { return false; }
+        double bestSq      = Double.POSITIVE_INFINITY;
+        int    bestSegment = -1;
+        double bestT       = 0;
+        double bestX       = 0;
+        double bestY       = 0;
+        int    top         = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (boxDistanceSq(node, X, Y) > bestSq) { continue; }
+            if (nodeCount[node] > 0) {
+                for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                    double distSq = segmentDistanceSq(order[i], X, Y);
+                    if (distSq < bestSq || bestSegment == -1) {
+                        bestSq      = distSq;
+                        bestSegment = order[i];
+                        bestT       = segT;
+                        bestX       = segX;
+                        bestY       = segY;
+                    }
+                }
+            } else {
+                // Visit the closer child first
+                int left  = nodeStart[node];
+                int right = left + 1;
+                if (boxDistanceSq(left, X, Y) < boxDistanceSq(right, X, Y)) {
+                    stack[top++] = right;
+                    stack[top++] = left;
+                } else {
+                    stack[top++] = left;
+                    stack[top++] = right;
+                }
+            }
+        }
+        if (bestSegment == -1) { return false; }
+        RESULT.x            = bestX;
+        RESULT.y            = bestY;
+        RESULT.distance     = Math.sqrt(bestSq);
+        RESULT.segmentIndex = bestSegment;
+        RESULT.t            = bestT;
+        RESULT.length       = WITH_LENGTH ? pathTool.getSegmentStartLength(bestSegment) + pathTool.getSegment(bestSegment).getLength(0.0, bestT, pathTool.getMaxError()) : Double.NaN;
+        return true;
+    }
+
+    private double boxDistanceSq(final int NODE, final double X, final double Y) {
+        double dx = X < nodeMinX[NODE] ? nodeMinX[NODE] - X : (X > nodeMaxX[NODE] ? X - nodeMaxX[NODE] : 0);
+        double dy = Y < nodeMinY[NODE] ? nodeMinY[NODE] - Y : (Y > nodeMaxY[NODE] ? Y - nodeMaxY[NODE] : 0);
+        return dx * dx + dy * dy;
+    }
+
+    // Squared distance between the point and the given segment, the closest point is stored in segT, segX and segY
+    private double segmentDistanceSq(final int SEGMENT, final double X, final double Y) {
+        double[] c      = pathTool.segmentCoords;
+        int      offset = SEGMENT * PathTool.COORDS_PER_SEG;
+        double   x1     = c[offset];
+        double   y1     = c[offset + 1];
+        double   x2     = c[offset + 6];
+        double   y2     = c[offset + 7];
+        switch (pathTool.segmentTypes[SEGMENT]) {
+            case PathTool.QUAD : return curveDistanceSq(0, 0, x1 - 2 * c[offset + 2] + x2, y1 - 2 * c[offset + 3] + y2, 2 * (c[offset + 2] - x1), 2 * (c[offset + 3] - y1), x1, y1, X, Y);
+            case PathTool.CUBIC: return curveDistanceSq(-x1 + 3 * (c[offset + 2] - c[offset + 4]) + x2, -y1 + 3 * (c[offset + 3] - c[offset + 5]) + y2,
+                                                        3 * (x1 - 2 * c[offset + 2] + c[offset + 4]), 3 * (y1 - 2 * c[offset + 3] + c[offset + 5]),
+                                                        3 * (c[offset + 2] - x1), 3 * (c[offset + 3] - y1), x1, y1, X, Y);
+            case PathTool.LINE :
+            default            :
+                double dx    = x2 - x1;
+                double dy    = y2 - y1;
+                double lenSq = dx * dx + dy * dy;
+                segT = lenSq > 0 ? Math.max(0, Math.min(1, ((X - x1) * dx + (Y - y1) * dy) / lenSq)) : 0;
+                segX = x1 + segT * dx;
+                segY = y1 + segT * dy;
+                return Line.ptSegDistSq(x1, y1, x2, y2, X, Y);
+        }
+    }
+
+    // Curve in power basis B(t) = a t^3 + b t^2 + c t + d, minimizes |B(t) - P|^2 by finding the roots of (B(t) - P) . B'(t)
+    private double curveDistanceSq(final double AX, final double AY, final double BX, final double BY, final double CX, final double CY, final double DX, final double DY, final double X, final double Y) {
+        double dx = DX - X;
+        double dy = DY - Y;
+        poly[5] = 3 * (AX * AX + AY * AY);
+        poly[4] = 5 * (AX * BX + AY * BY);
+        poly[3] = 4 * (AX * CX + AY * CY) + 2 * (BX * BX + BY * BY);
+        poly[2] = 3 * (AX * dx + AY * dy) + 3 * (BX * CX + BY * CY);
+        poly[1] = 2 * (BX * dx + BY * dy) + (CX * CX + CY * CY);
+        poly[0] = CX * dx + CY * dy;
+
+        segT = 0;
+        double best = curveDistanceSqAt(0, AX, AY, BX, BY, CX, CY, dx, dy);
+        double d1   = curveDistanceSqAt(1, AX, AY, BX, BY, CX, CY, dx, dy);
+        if (d1 < best) { best = d1; segT = 1; }
+
+        // Minima are sign changes from negative to positive of the derivative
+        double t0 = 0;
+        double f0 = evalPoly(t0);
+        for (int i = 1 ; i <= ROOT_SAMPLES ; i++) {
+            double t1 = (double) i / ROOT_SAMPLES;
+            double f1 = evalPoly(t1);
+            if (f0 < 0 && f1 >= 0) {
+                double t    = findRoot(t0, t1, f0);
+                double dist = curveDistanceSqAt(t, AX, AY, BX, BY, CX, CY, dx, dy);
+                if (dist < best) { best = dist; segT = t; }
+            }
+            t0 = t1;
+            f0 = f1;
+        }
+        double t = segT;
+        segX = ((AX * t + BX) * t + CX) * t + DX;
+        segY = ((AY * t + BY) * t + CY) * t + DY;
+        return best;
+    }
+
+    private static double curveDistanceSqAt(final double T, final double AX, final double AY, final double BX, final double BY, final double CX, final double CY, final double DX, final double DY) {
+        double x = ((AX * T + BX) * T + CX) * T + DX;
+        double y = ((AY * T + BY) * T + CY) * T + DY;
+        return x * x + y * y;
+    }
+
+    private double evalPoly(final double T) { return ((((poly[5] * T + poly[4]) * T + poly[3]) * T + poly[2]) * T + poly[1]) * T + poly[0]; }
+
+    private double evalPolyDt(final double T) { return (((5 * poly[5] * T + 4 * poly[4]) * T + 3 * poly[3]) * T + 2 * poly[2]) * T + poly[1]; }
+
+    // Newton iteration that falls back to bisection whenever a step leaves the bracket [LOWER, UPPER] with f(LOWER) < 0 <= f(UPPER)
+    private double findRoot(final double LOWER, final double UPPER, final double F_LOWER) {
+        double lower = LOWER;
+        double upper = UPPER;
+        double t     = LOWER - F_LOWER * (UPPER - LOWER) / (evalPoly(UPPER) - F_LOWER);
+        for (int i = 0 ; i < ROOT_ITERATIONS && upper - lower > ROOT_EPSILON ; i++) {
+            double f = evalPoly(t);
+            if (f == 0) { return t; }
+            if (f < 0) { lower = t; } else { upper = t; }
+            double df   = evalPolyDt(t);
+            double next = df != 0 ? t - f / df : Double.NaN;
+            if (!(next > lower && next < upper)) { next = (lower + upper) * 0.5; }
+            if (Math.abs(next - t) < ROOT_EPSILON) { return next; }
+            t = next;
+        }
+        return t;
+    }
+
+    // The PathTool reindexes a Path that changed, the hierarchy has to follow
+    private void validate() {
+        Shape path = pathTool.getPath();
+        if (path instanceof Path && (((Path) path).getModCount() != modCount || ((Path) path).getNumCommands() != numCommands)) { build(); }
+    }
+
+    private void build() {
+        Shape path = pathTool.getPath();
+        if (path instanceof Path) {
+            modCount    = ((Path) path).getModCount();
+            numCommands = ((Path) path).getNumCommands();
+        }
+        numSegments = pathTool.getNumSegments();
+        numNodes    = 0;
+        int size    = Math.max(1, 2 * numSegments);
+        if (null == order || order.length < numSegments) {
+            order   = new int[numSegments];
+            centers = new double[2 * numSegments];
+        }
+        if (null == nodeStart || nodeStart.length < size) {
+            nodeMinX  = new double[size];
+            nodeMinY  = new double[size];
+            nodeMaxX  = new double[size];
+            nodeMaxY  = new double[size];
+            nodeStart = new int[size];
+            nodeCount = new int[size];
+        }
+        double[] c = pathTool.segmentCoords;
+        for (int i = 0 ; i < numSegments ; i++) {
+            int offset = i * PathTool.COORDS_PER_SEG;
+            order[i]           = i;
+            centers[2 * i]     = (c[offset] + c[offset + 6]) * 0.5;
+            centers[2 * i + 1] = (c[offset + 1] + c[offset + 7]) * 0.5;
+        }
+        int depth = 0;
+        if (numSegments > 0) {
+            numNodes = 1;
+            depth    = build(0, 0, numSegments, 1);
+        }
+        stack = new int[depth + 2];
+    }
+
+    private int build(final int NODE, final int START, final int END, final int DEPTH) {
+        double[] c    = pathTool.segmentCoords;
+        double   minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double   maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double   cMinX = Double.POSITIVE_INFINITY, cMinY = Double.POSITIVE_INFINITY;
+        double   cMaxX = Double.NEGATIVE_INFINITY, cMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = START ; i < END ; i++) {
+            int segment = order[i];
+            int offset  = segment * PathTool.COORDS_PER_SEG;
+            // The control polygon contains the curve
+            for (int j = 0 ; j < PathTool.COORDS_PER_SEG ; j += 2) {
+                double x = c[offset + j];
+                double y = c[offset + j + 1];
+                if (x < minX) { minX = x; }
+                if (y < minY) { minY = y; }
+                if (x > maxX) { maxX = x; }
+                if (y > maxY) { maxY = y; }
+            }
+            double cx = centers[2 * segment];
+            double cy = centers[2 * segment + 1];
+            if (cx < cMinX) { cMinX = cx; }
+            if (cy < cMinY) { cMinY = cy; }
+            if (cx > cMaxX) { cMaxX = cx; }
+            if (cy > cMaxY) { cMaxY = cy; }
+        }
+        nodeMinX[NODE] = minX;
+        nodeMinY[NODE] = minY;
+        nodeMaxX[NODE] = maxX;
+        nodeMaxY[NODE] = maxY;
+        if (END - START <= LEAF_SIZE) {
+            nodeStart[NODE] = START;
+            nodeCount[NODE] = END - START;
+            return DEPTH;
+        }
+        int axis = (cMaxX - cMinX) >= (cMaxY - cMinY) ? 0 : 1;
+        int mid  = (START + END) >>> 1;
+        select(START, END - 1, mid, axis);
+        int left = numNodes;
+        numNodes += 2;
+        nodeStart[NODE] = left;
+        nodeCount[NODE] = 0;
+        return Math.max(build(left, START, mid, DEPTH + 1), build(left + 1, mid, END, DEPTH + 1));
+    }
+
+    // Partially sorts order[LEFT..RIGHT] by segment center so that the element at K is in its final position
+    private void select(int left, int right, final int K, final int AXIS) {
+        while (right > left) {
+            double pivot = centers[2 * order[(left + right) >>> 1] + AXIS];
+            int    i     = left;
+            int    j     = right;
+            while (i <= j) {
+                while (centers[2 * order[i] + AXIS] < pivot) { i++; }
+                while (centers[2 * order[j] + AXIS] > pivot) { j--; }
+                if (i <= j) {
+                    int tmp  = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (K <= j) {
+                right = j;
+            } else if (K >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    public static class Hit {
+        public double x;
+        public double y;
+        public double distance;
+        // Arc length position of the nearest point
+        public double length;
+        public int    segmentIndex;
+        public double t;
+
+
+        @Override public String toString() {
+            return new StringBuilder().append("Hit[x=").append(x).append(", y=").append(y).append(", distance=").append(distance)
+                                      .append(", length=").append(length).append(", segment=").append(segmentIndex).append(", t=").append(t).append("]").toString();
+        }
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+
+
+// Quadtree over the control point bounds of the segments of a path for rectangle intersects and contains queries.
+// The result is the same as Path.rectCrossings(): segments that overlap the rectangle are tested exactly, segments
+// completely right of it only add the crossings of their end points at the top and bottom edge of the rectangle.
+// Those are summed along a horizontal ray that stops at the first empty cell, because the winding of the chords
+// of all segments is the same everywhere in a cell that no segment bounds touch and is cached per cell.
+// The tree is rebuilt when the path changes. Not thread safe.
+public class PathQuadTree {
+    private static final int LEAF_SIZE = 8;
+    private static final int MAX_DEPTH = 16;
+    private static final int NONE      = -1;
+    private static final int UNKNOWN   = Integer.MIN_VALUE;
+    private final Path       path;
+    private int              modCount;
+    private int              numCommands;
+    // Segments including the closing lines, every segment stores its start point followed by its control and end points
+    private int              numSegments;
+    private byte[]           segType;
+    private int[]            segOffset;
+    private double[]         segCoords;
+    private double[]         segMinX;
+    private double[]         segMinY;
+    private double[]         segMaxX;
+    private double[]         segMaxY;
+    private int[]            segStamp;
+    private int              stamp;
+    // Nodes, the children of an inner node are stored as south west, south east, north west and north east
+    private int              numNodes;
+    private double[]         nodeMinX;
+    private double[]         nodeMinY;
+    private double[]         nodeMaxX;
+    private double[]         nodeMaxY;
+    private int[]            nodeChild;
+    private int[]            nodeStart;
+    private int[]            nodeCount;
+    private int[]            nodeWinding;
+    private int[]            items;
+    private int              numItems;
+    private final int[]      stack;
+    private int[]            chainLeaves;
+    private int[]            chainSums;
+    // Empty leaf the last walk stopped at
+    private int              walkLeaf;
+
+
+    // ******************** Constructors **************************************
+    public PathQuadTree(final Shape SHAPE) {
+        path        = SHAPE instanceof Path ? (Path) SHAPE : new Path(SHAPE, null);
+        stack       = new int[4 * (MAX_DEPTH + 1)];
+        chainLeaves = new int[16];
+        chainSums   = new int[16];
+        build();
+    }
+
+
+    // ******************** Methods *******************************************
+    public Path getPath() { return path; }
+
+    public int getNumSegments() {
+        validate();
+        return numSegments;
+    }
+
+    public boolean contains(final double X, final double Y, final double WIDTH, final double HEIGHT) {
+        if (Double.isNaN(X + WIDTH) || Double.isNaN(Y + HEIGHT)) { return false; }
+        if (WIDTH <= 0 || HEIGHT <= 0) { return false; }
+        int mask      = (path.getWindingRule() == WindingRule.WIND_NON_ZERO ? -1 : 2);
+        int crossings = rectCrossings(X, Y, X + WIDTH, Y + HEIGHT);
+        return (crossings != Shape.RECT_INTERSECTS && (crossings & mask) != 0);
+    }
+
+    public boolean intersects(final double X, final double Y, final double WIDTH, final double HEIGHT) {
+        if (Double.isNaN(X + WIDTH) || Double.isNaN(Y + HEIGHT)) { return false; }
+        if (WIDTH <= 0 || HEIGHT <= 0) { return false; }
+        int mask      = (path.getWindingRule() == WindingRule.WIND_NON_ZERO ? -1 : 2);
+        int crossings = rectCrossings(X, Y, X + WIDTH, Y + HEIGHT);
+        return (crossings == Shape.RECT_INTERSECTS || (crossings & mask) != 0);
+    }
+
+    // Same result as Shape.rectCrossingsForPath() for the path
+    public int rectCrossings(final double RX_MIN, final double RY_MIN, final double RX_MAX, final double RY_MAX) {
+        if (RX_MAX <= RX_MIN || RY_MAX <= RY_MIN) { return 0; }
+        validate();
+        if (numSegments == 0) { return 0; }
+
+        // A rectangle inside an empty cell is completely inside or outside
+        int node = 0;
+        if (containsRect(node, RX_MIN, RY_MIN, RX_MAX, RY_MAX)) {
+            while (nodeChild[node] != NONE) {
+                int child = nodeChild[node];
+                int inner = NONE;
+                for (int i = 0 ; i < 4 ; i++) {
+                    if (containsRect(child + i, RX_MIN, RY_MIN, RX_MAX, RY_MAX)) {
+                        inner = child + i;
+                        break;
+                    }
+                }
+                if (inner == NONE) { break; }
+                node = inner;
+            }
+            if (nodeChild[node] == NONE && nodeCount[node] == 0) { return 2 * getWinding(node); }
+        }
+
+        int crossings = 0;
+        nextStamp();
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            node = stack[--top];
+            if (nodeMaxX[node] < RX_MIN || nodeMinX[node] > RX_MAX || nodeMaxY[node] < RY_MIN || nodeMinY[node] > RY_MAX) { continue; }
+            int child = nodeChild[node];
+            if (child != NONE) {
+                stack[top++] = child;
+                stack[top++] = child + 1;
+                stack[top++] = child + 2;
+                stack[top++] = child + 3;
+                continue;
+            }
+            for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                int seg = items[i];
+                if (segStamp[seg] == stamp) { continue; }
+                segStamp[seg] = stamp;
+                // Everything else is either ignored by the crossing functions or handled by the rays below
+                if (segMinY[seg] >= RY_MAX || segMaxY[seg] <= RY_MIN || segMaxX[seg] <= RX_MIN || segMinX[seg] >= RX_MAX) { continue; }
+                int c = segmentRectCrossings(seg, RX_MIN, RY_MIN, RX_MAX, RY_MAX);
+                if (c == Shape.RECT_INTERSECTS) { return Shape.RECT_INTERSECTS; }
+                crossings += c;
+            }
+        }
+        // Segments right of the rectangle count like in the right of rectangle case of the crossing functions
+        crossings += raySum(RX_MAX, RY_MIN, false);
+        crossings += raySum(RX_MAX, RY_MAX, true);
+        return crossings;
+    }
+
+    private int segmentRectCrossings(final int SEG, final double RX_MIN, final double RY_MIN, final double RX_MAX, final double RY_MAX) {
+        double[] c = segCoords;
+        int      o = segOffset[SEG];
+        switch (segType[SEG]) {
+            case PathIterator.QUAD_TO  : return Shape.rectCrossingsForQuad(0, RX_MIN, RY_MIN, RX_MAX, RY_MAX, c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5], 0);
+            case PathIterator.BEZIER_TO: return Shape.rectCrossingsForCubic(0, RX_MIN, RY_MIN, RX_MAX, RY_MAX, c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5], c[o + 6], c[o + 7], 0);
+            default                    : return Shape.rectCrossingsForLine(0, RX_MIN, RY_MIN, RX_MAX, RY_MAX, c[o], c[o + 1], c[o + 2], c[o + 3]);
+        }
+    }
+
+    // Crossing of the chord of the segment with the horizontal line at Y, the bottom edge of a rectangle counts
+    // the end points as [min, max) and the top edge as (min, max]
+    private int chordCrossing(final int SEG, final double Y, final boolean TOP) {
+        int    o  = segOffset[SEG];
+        double y0 = segCoords[o + 1];
+        double y1 = segCoords[o + 2 * segType[SEG] + 1];
+        if (y0 < y1) {
+            return (TOP ? (y0 < Y && Y <= y1) : (y0 <= Y && Y < y1)) ? 1 : 0;
+        } else if (y1 < y0) {
+            return (TOP ? (y1 < Y && Y <= y0) : (y1 <= Y && Y < y0)) ? -1 : 0;
+        }
+        return 0;
+    }
+
+    // Sum of the chord crossings of all segments with min x >= X along the ray from (X, Y) to the right
+    private int raySum(final double X, final double Y, final boolean TOP) {
+        int sum       = walk(X, Y, TOP, false);
+        int leaf      = walkLeaf;
+        int chainSize = 0;
+        while (leaf != NONE && nodeWinding[leaf] == UNKNOWN) {
+            // The winding of an empty cell is the ray sum from any point inside, e.g. on its right edge
+            int partial = walk(nodeMaxX[leaf], Y, TOP, true);
+            if (chainSize == chainLeaves.length) {
+                chainLeaves = Arrays.copyOf(chainLeaves, chainSize * 2);
+                chainSums   = Arrays.copyOf(chainSums, chainSize * 2);
+            }
+            chainLeaves[chainSize] = leaf;
+            chainSums[chainSize]   = partial;
+            chainSize++;
+            leaf = walkLeaf;
+        }
+        int winding = leaf == NONE ? 0 : nodeWinding[leaf];
+        for (int i = chainSize - 1 ; i >= 0 ; i--) {
+            winding += chainSums[i];
+            nodeWinding[chainLeaves[i]] = winding;
+        }
+        return sum + winding;
+    }
+
+    // Visits the leaves along the ray from left to right until the first empty one and sums the chord crossings of the
+    // segments with min x >= X on the way. Segments that start further right but left of the empty leaf cannot exist
+    // because their bounds would touch it.
+    private int walk(final double X, final double Y, final boolean TOP, final boolean STRICT) {
+        nextStamp();
+        walkLeaf = NONE;
+        int sum  = 0;
+        int top  = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (STRICT ? nodeMaxX[node] <= X : nodeMaxX[node] < X) { continue; }
+            if (Y < nodeMinY[node] || Y > nodeMaxY[node]) { continue; }
+            int child = nodeChild[node];
+            if (child != NONE) {
+                // One row is enough, segments touching the ray on the border between two rows are stored in both
+                int row = Y <= nodeMaxY[child] ? 0 : 2;
+                stack[top++] = child + row + 1;
+                stack[top++] = child + row;
+                continue;
+            }
+            if (nodeCount[node] == 0) {
+                walkLeaf = node;
+                break;
+            }
+            for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                int seg = items[i];
+                if (segStamp[seg] == stamp) { continue; }
+                segStamp[seg] = stamp;
+                if (segMinX[seg] < X || Y < segMinY[seg] || Y > segMaxY[seg]) { continue; }
+                sum += chordCrossing(seg, Y, TOP);
+            }
+        }
+        return sum;
+    }
+
+    private int getWinding(final int LEAF) {
+        if (nodeWinding[LEAF] == UNKNOWN) { nodeWinding[LEAF] = raySum(nodeMaxX[LEAF], (nodeMinY[LEAF] + nodeMaxY[LEAF]) * 0.5, false); }
+        return nodeWinding[LEAF];
+    }
+
+    private boolean containsRect(final int NODE, final double RX_MIN, final double RY_MIN, final double RX_MAX, final double RY_MAX) {
+        return RX_MIN >= nodeMinX[NODE] && RX_MAX <= nodeMaxX[NODE] && RY_MIN >= nodeMinY[NODE] && RY_MAX <= nodeMaxY[NODE];
+    }
+
+    private void nextStamp() {
+        if (++stamp == 0) {
+            Arrays.fill(segStamp, 0);
+            stamp = 1;
+        }
+    }
+
+    private void validate() {
+        if (path.getModCount() != modCount || path.getNumCommands() != numCommands) { build(); }
+    }
+
+    private void build() {
+        modCount    = path.getModCount();
+        numCommands = path.getNumCommands();
+        byte[]   types  = path.getCommandsNoClone();
+        double[] coords = path.getDoubleCoordsNoClone();
+        segType     = new byte[Math.max(1, numCommands)];
+        segOffset   = new int[segType.length];
+        segCoords   = new double[Math.max(8, path.getNumCoords() * 4)];
+        numSegments = 0;
+        int numCoords = 0;
+
+        // Same segments as Path.rectCrossings(), including the lines that close sub paths
+        if (numCommands > 0) {
+            double curX = coords[0], curY = coords[1];
+            double movX = curX,      movY = curY;
+            int    ci   = 2;
+            for (int i = 1 ; i <= numCommands ; i++) {
+                int type = i < numCommands ? types[i] : PathIterator.CLOSE;
+                switch (type) {
+                    case PathIterator.MOVE_TO:
+                    case PathIterator.CLOSE:
+                        if (curX != movX || curY != movY) { numCoords = addSegment(PathIterator.LINE_TO, numCoords, curX, curY, movX, movY, 0, 0, 0, 0); }
+                        if (type == PathIterator.MOVE_TO) {
+                            movX = coords[ci++];
+                            movY = coords[ci++];
+                        }
+                        curX = movX;
+                        curY = movY;
+                        break;
+                    case PathIterator.LINE_TO:
+                        numCoords = addSegment(PathIterator.LINE_TO, numCoords, curX, curY, coords[ci], coords[ci + 1], 0, 0, 0, 0);
+                        ci  += 2;
+                        curX = coords[ci - 2];
+                        curY = coords[ci - 1];
+                        break;
+                    case PathIterator.QUAD_TO:
+                        numCoords = addSegment(PathIterator.QUAD_TO, numCoords, curX, curY, coords[ci], coords[ci + 1], coords[ci + 2], coords[ci + 3], 0, 0);
+                        ci  += 4;
+                        curX = coords[ci - 2];
+                        curY = coords[ci - 1];
+                        break;
+                    case PathIterator.BEZIER_TO:
+                        numCoords = addSegment(PathIterator.BEZIER_TO, numCoords, curX, curY, coords[ci], coords[ci + 1], coords[ci + 2], coords[ci + 3], coords[ci + 4], coords[ci + 5]);
+                        ci  += 6;
+                        curX = coords[ci - 2];
+                        curY = coords[ci - 1];
+                        break;
+                }
+            }
+        }
+
+        int n = numSegments;
+        segMinX  = new double[n];
+        segMinY  = new double[n];
+        segMaxX  = new double[n];
+        segMaxY  = new double[n];
+        segStamp = new int[n];
+        stamp    = 0;
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int seg = 0 ; seg < n ; seg++) {
+            double sMinX = Double.POSITIVE_INFINITY, sMinY = Double.POSITIVE_INFINITY;
+            double sMaxX = Double.NEGATIVE_INFINITY, sMaxY = Double.NEGATIVE_INFINITY;
+            for (int o = segOffset[seg], end = o + 2 * (segType[seg] + 1) ; o < end ; o += 2) {
+                sMinX = Math.min(sMinX, segCoords[o]);
+                sMinY = Math.min(sMinY, segCoords[o + 1]);
+                sMaxX = Math.max(sMaxX, segCoords[o]);
+                sMaxY = Math.max(sMaxY, segCoords[o + 1]);
+            }
+            segMinX[seg] = sMinX;
+            segMinY[seg] = sMinY;
+            segMaxX[seg] = sMaxX;
+            segMaxY[seg] = sMaxY;
+            minX = Math.min(minX, sMinX);
+            minY = Math.min(minY, sMinY);
+            maxX = Math.max(maxX, sMaxX);
+            maxY = Math.max(maxY, sMaxY);
+        }
+
+        int capacity = Math.max(16, n / 2);
+        nodeMinX    = new double[capacity];
+        nodeMinY    = new double[capacity];
+        nodeMaxX    = new double[capacity];
+        nodeMaxY    = new double[capacity];
+        nodeChild   = new int[capacity];
+        nodeStart   = new int[capacity];
+        nodeCount   = new int[capacity];
+        items       = new int[Math.max(16, 2 * n)];
+        numNodes    = 0;
+        numItems    = 0;
+        if (n == 0) { return; }
+
+        int[] all = new int[n];
+        for (int i = 0 ; i < n ; i++) { all[i] = i; }
+        int root = addNode(minX, minY, maxX, maxY);
+        buildNode(root, all, n, 0);
+        nodeWinding = new int[numNodes];
+        Arrays.fill(nodeWinding, UNKNOWN);
+    }
+
+    private int addSegment(final int TYPE, final int NUM_COORDS, final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3) {
+        if (NUM_COORDS + 8 > segCoords.length) { segCoords = Arrays.copyOf(segCoords, segCoords.length * 2); }
+        if (numSegments == segType.length) {
+            segType   = Arrays.copyOf(segType, numSegments * 2);
+            segOffset = Arrays.copyOf(segOffset, numSegments * 2);
+        }
+        segType[numSegments]   = (byte) TYPE;
+        segOffset[numSegments] = NUM_COORDS;
+        numSegments++;
+        segCoords[NUM_COORDS]     = X0;
+        segCoords[NUM_COORDS + 1] = Y0;
+        segCoords[NUM_COORDS + 2] = X1;
+        segCoords[NUM_COORDS + 3] = Y1;
+        segCoords[NUM_COORDS + 4] = X2;
+        segCoords[NUM_COORDS + 5] = Y2;
+        segCoords[NUM_COORDS + 6] = X3;
+        segCoords[NUM_COORDS + 7] = Y3;
+        return NUM_COORDS + 2 * (TYPE + 1);
+    }
+
+    // Segments go into every child their bounds touch, so no segment bounds touch an empty leaf
+    private void buildNode(final int NODE, final int[] SEGMENTS, final int COUNT, final int DEPTH) {
+        if (COUNT <= LEAF_SIZE || DEPTH == MAX_DEPTH) {
+            makeLeaf(NODE, SEGMENTS, COUNT);
+            return;
+        }
+        double   minX     = nodeMinX[NODE];
+        double   minY     = nodeMinY[NODE];
+        double   maxX     = nodeMaxX[NODE];
+        double   maxY     = nodeMaxY[NODE];
+        double   midX     = (minX + maxX) * 0.5;
+        double   midY     = (minY + maxY) * 0.5;
+        double[] quadrant = { minX, minY, midX, midY, midX, minY, maxX, midY, minX, midY, midX, maxY, midX, midY, maxX, maxY };
+        int[][]  subsets  = new int[4][];
+        int[]    counts   = new int[4];
+        int      total    = 0;
+        for (int c = 0 ; c < 4 ; c++) {
+            int[] subset = new int[COUNT];
+            int   count  = 0;
+            for (int i = 0 ; i < COUNT ; i++) {
+                int seg = SEGMENTS[i];
+                if (segMaxX[seg] < quadrant[4 * c] || segMinX[seg] > quadrant[4 * c + 2] || segMaxY[seg] < quadrant[4 * c + 1] || segMinY[seg] > quadrant[4 * c + 3]) { continue; }
+                subset[count++] = seg;
+            }
+            subsets[c] = subset;
+            counts[c]  = count;
+            total     += count;
+        }
+        // Stop when splitting copies too many segments, e.g. if many vertices sit in one point on a split line
+        if (2 * total > 3 * COUNT) {
+            makeLeaf(NODE, SEGMENTS, COUNT);
+            return;
+        }
+        int child = addNode(quadrant[0], quadrant[1], quadrant[2], quadrant[3]);
+        for (int c = 1 ; c < 4 ; c++) { addNode(quadrant[4 * c], quadrant[4 * c + 1], quadrant[4 * c + 2], quadrant[4 * c + 3]); }
+        nodeChild[NODE] = child;
+        nodeStart[NODE] = 0;
+        nodeCount[NODE] = 0;
+        for (int c = 0 ; c < 4 ; c++) { buildNode(child + c, subsets[c], counts[c], DEPTH + 1); }
+    }
+
+    private void makeLeaf(final int NODE, final int[] SEGMENTS, final int COUNT) {
+        if (numItems + COUNT > items.length) { items = Arrays.copyOf(items, Math.max(numItems + COUNT, items.length * 2)); }
+        System.arraycopy(SEGMENTS, 0, items, numItems, COUNT);
+        nodeChild[NODE] = NONE;
+        nodeStart[NODE] = numItems;
+        nodeCount[NODE] = COUNT;
+        numItems += COUNT;
+    }
+
+    private int addNode(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y) {
+        if (numNodes == nodeMinX.length) {
+            int capacity = numNodes * 2;
+            nodeMinX  = Arrays.copyOf(nodeMinX, capacity);
+            nodeMinY  = Arrays.copyOf(nodeMinY, capacity);
+            nodeMaxX  = Arrays.copyOf(nodeMaxX, capacity);
+            nodeMaxY  = Arrays.copyOf(nodeMaxY, capacity);
+            nodeChild = Arrays.copyOf(nodeChild, capacity);
+            nodeStart = Arrays.copyOf(nodeStart, capacity);
+            nodeCount = Arrays.copyOf(nodeCount, capacity);
+        }
+        nodeMinX[numNodes] = MIN_X;
+        nodeMinY[numNodes] = MIN_Y;
+        nodeMaxX[numNodes] = MAX_X;
+        nodeMaxY[numNodes] = MAX_Y;
+        return numNodes++;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.FlatteningPathIterator;
+import eu.hansolo.fx.geomfx.Path;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.transform.Affine;
+import javafx.scene.canvas.GraphicsContext;
+
+import java.util.Arrays;
+
+
+// A shape that is flattened once and then placed along paths by only updating an Affine per instance
+public class PathStamp {
+    public enum Orientation { FIXED, TANGENT, NORMAL }
+
+    public  static final double DEFAULT_FLATNESS = 0.05;
+    public  static final String ARROW_SVG        = "M-2.5,-2.5L0,-2.5L2.5,0L0,2.5L-2.5,2.5L0,0Z";
+    public  static final String DOUBLE_ARROW_SVG = "M-9,-4l0,-1l18,0l-0,4.996l-3.998,-3.996l-5.002,0l4.002,4l-4.002,4l5.002,0l3.998,-3.996l-0,4.996l-18,0l0,-1l4.99,0l3.998,-3.996l0,-0.008l-3.998,-3.996l-4.99,0Zm3.99,4l-3.99,3.988l0,-7.976l3.99,3.988Z";
+    public  static final String STAR_SVG         = "M0,-4.995l1.125,3.451l3.642,0l-2.946,2.134l1.125,3.451l-2.946,-2.133l-2.946,2.133l1.125,-3.451l-2.946,-2.134l3.642,0l1.125,-3.451Z";
+    public  static final String HEART_SVG        = "M0,-2.112c0.843,-1.408 2.529,-1.408 3.371,-0.704c0.843,0.704 0.843,2.112 0,3.52c-0.59,1.056 -2.107,2.112 -3.371,2.816c-1.264,-0.704 -2.781,-1.76 -3.371,-2.816c-0.843,-1.408 -0.843,-2.816 -0,-3.52c0.842,-0.704 2.528,-0.704 3.371,0.704Z";
+    private final byte[]        types;
+    private final int           numTypes;
+    private final double[]      coords;
+    private final int           numPoints;
+    private final double[]      transformed;
+    private final Affine        affine;
+    private double[]            poses;
+
+
+    // ******************** Constructors **************************************
+    public PathStamp(final Shape STAMP) {
+        this(STAMP, DEFAULT_FLATNESS);
+    }
+    public PathStamp(final Shape STAMP, final double FLATNESS) {
+        PathIterator pi       = new FlatteningPathIterator(STAMP.getPathIterator(null), FLATNESS);
+        byte[]       tmpTypes  = new byte[16];
+        double[]     tmpCoords = new double[32];
+        double[]     seg       = new double[6];
+        int          nTypes    = 0;
+        int          nCoords   = 0;
+        while (!pi.isDone()) {
+            int type = pi.currentSegment(seg);
+            if (nTypes == tmpTypes.length)      { tmpTypes  = Arrays.copyOf(tmpTypes, nTypes * 2); }
+            if (nCoords + 2 > tmpCoords.length) { tmpCoords = Arrays.copyOf(tmpCoords, tmpCoords.length * 2); }
+            tmpTypes[nTypes++] = (byte) type;
+            if (type != PathIterator.CLOSE) {
+                tmpCoords[nCoords++] = seg[0];
+                tmpCoords[nCoords++] = seg[1];
+            }
+            pi.next();
+        }
+        types       = tmpTypes;
+        numTypes    = nTypes;
+        coords      = tmpCoords;
+        numPoints   = nCoords / 2;
+        transformed = new double[nCoords];
+        affine      = new Affine();
+        poses       = new double[0];
+    }
+
+
+    // ******************** Methods *******************************************
+    public static PathStamp fromSVG(final String SVG_PATH) {
+        Path path = new Path();
+        path.appendSVGPath(SVG_PATH);
+        return new PathStamp(path);
+    }
+
+    public int getNumPoints() { return numPoints; }
+
+    // Appends one instance of the stamp for every OFFSET + k * SPACING along the given path to OUT
+    public Path stampAlong(final Shape PATH, final double SPACING, final Orientation ORIENTATION, final Path OUT) { return stampAlong(new PathTool(PATH), 0, SPACING, ORIENTATION, OUT); }
+    public Path stampAlong(final PathTool PATH_TOOL, final double OFFSET, final double SPACING, final Orientation ORIENTATION, final Path OUT) {
+        int numPoses = computePoses(PATH_TOOL, OFFSET, SPACING);
+        for (int i = 0 ; i < numPoses ; i++) {
+            int index = i * PathTool.POSE_SIZE;
+            appendStamp(poses[index], poses[index + 1], poses[index + 2], poses[index + 3], ORIENTATION, OUT);
+        }
+        return OUT;
+    }
+
+    // Computes the poses of all instances, POSES in PathTool layout can be read with getPoses() afterwards
+    public int computePoses(final PathTool PATH_TOOL, final double OFFSET, final double SPACING) {
+        int numPoses = PATH_TOOL.getNumPoses(OFFSET, SPACING);
+        if (poses.length < numPoses * PathTool.POSE_SIZE) { poses = new double[numPoses * PathTool.POSE_SIZE]; }
+        return PATH_TOOL.getPoses(OFFSET, SPACING, poses);
+    }
+    public double[] getPoses() { return poses; }
+
+    public void appendStamp(final double X, final double Y, final double TANGENT_X, final double TANGENT_Y, final Orientation ORIENTATION, final Path OUT) {
+        place(X, Y, TANGENT_X, TANGENT_Y, ORIENTATION);
+        int coord = 0;
+        for (int i = 0 ; i < numTypes ; i++) {
+            switch (types[i]) {
+                case PathIterator.MOVE_TO: OUT.moveTo(transformed[coord], transformed[coord + 1]); coord += 2; break;
+                case PathIterator.LINE_TO: OUT.lineTo(transformed[coord], transformed[coord + 1]); coord += 2; break;
+                case PathIterator.CLOSE  : OUT.closePath(); break;
+                default                  : break;
+            }
+        }
+    }
+    // Adds the instance to the current path of the context, the caller decides when to begin the path and fill or stroke it
+    public void appendStamp(final double X, final double Y, final double TANGENT_X, final double TANGENT_Y, final Orientation ORIENTATION, final GraphicsContext CTX) {
+        place(X, Y, TANGENT_X, TANGENT_Y, ORIENTATION);
+        int coord = 0;
+        for (int i = 0 ; i < numTypes ; i++) {
+            switch (types[i]) {
+                case PathIterator.MOVE_TO: CTX.moveTo(transformed[coord], transformed[coord + 1]); coord += 2; break;
+                case PathIterator.LINE_TO: CTX.lineTo(transformed[coord], transformed[coord + 1]); coord += 2; break;
+                case PathIterator.CLOSE  : CTX.closePath(); break;
+                default                  : break;
+            }
+        }
+    }
+
+    private void place(final double X, final double Y, final double TANGENT_X, final double TANGENT_Y, final Orientation ORIENTATION) {
+        switch (ORIENTATION) {
+            case TANGENT: affine.restoreTransform(TANGENT_X, TANGENT_Y, -TANGENT_Y, TANGENT_X, X, Y); break;
+            case NORMAL : affine.restoreTransform(-TANGENT_Y, TANGENT_X, -TANGENT_X, -TANGENT_Y, X, Y); break;
+            case FIXED  :
+            default     : affine.restoreTransform(1, 0, 0, 1, X, Y); break;
+        }
+        affine.transform(coords, 0, transformed, 0, numPoints);
+    }
+}
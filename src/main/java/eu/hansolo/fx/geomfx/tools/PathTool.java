@@ -16,28 +16,70 @@
 
 package eu.hansolo.fx.geomfx.tools;
 
-import eu.hansolo.fx.geomfx.FlatteningPathIterator;
-import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.BezierCurve;
+import eu.hansolo.fx.geomfx.Path;
 import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.QuadCurve;
 import eu.hansolo.fx.geomfx.Shape;
-import eu.hansolo.fx.geomfx.transform.Affine;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 
 public class PathTool {
-    protected Shape             path;
-    protected List<PathSegment> segments;
-    protected int[]             segmentIndexes;
-    protected double            pathLength;
-    protected boolean           initialized;
-
-
-    public PathTool(Shape path) {
-        setPath(path);
+    public    static final int    LINE           = 1;
+    public    static final int    QUAD           = 2;
+    public    static final int    CUBIC          = 3;
+    protected static final int    COORDS_PER_SEG = 8;
+    protected static final byte   FLAG_MOVE      = 1;
+    protected static final byte   FLAG_CLOSE     = 2;
+    protected Shape               path;
+    protected double              maxError;
+    protected int                 numSegments;
+    protected int[]               segmentTypes;
+    protected byte[]              segmentFlags;
+    protected int[]               segmentCommands;
+    protected int[]               segmentCommandCoords;
+    protected double[]            segmentCoords;
+    protected double[]            segmentLengths;
+    protected double              pathLength;
+    protected boolean             initialized;
+    protected final LineSegment   lineSegment;
+    protected final QuadSegment   quadSegment;
+    protected final CubicSegment  cubicSegment;
+    protected final QuadCurve     quadCurve;
+    protected final BezierCurve   bezierCurve;
+    private         byte          nextFlags;
+    private         int           commandIndex;
+    private         int           coordIndex;
+    private         int           indexedModCount;
+    private         double        currentX;
+    private         double        currentY;
+    private         double        lastMoveX;
+    private         double        lastMoveY;
+
+
+    // ******************** Constructors **************************************
+    public PathTool(final Shape SHAPE) {
+        this(SHAPE, AbstractSegment.DEFAULT_MAX_ERROR);
+    }
+    public PathTool(final Shape SHAPE, final double MAX_ERROR) {
+        lineSegment          = new LineSegment();
+        quadSegment          = new QuadSegment();
+        cubicSegment         = new CubicSegment();
+        quadCurve            = new QuadCurve();
+        bezierCurve          = new BezierCurve();
+        segmentTypes         = new int[16];
+        segmentFlags         = new byte[16];
+        segmentCommands      = new int[16];
+        segmentCommandCoords = new int[16];
+        segmentCoords        = new double[16 * COORDS_PER_SEG];
+        segmentLengths       = new double[16];
+        maxError             = MAX_ERROR;
+        setPath(SHAPE);
     }
 
+
+    // ******************** Methods *******************************************
     public Shape getPath() {
         return path;
     }
@@ -46,288 +88,308 @@ public class PathTool {
         initialized = false;
     }
 
+    public double getMaxError() { return maxError; }
+    public void setMaxError(final double MAX_ERROR) {
+        if (MAX_ERROR <= 0) { throw new IllegalArgumentException("Max error must be > 0"); }
+        maxError    = MAX_ERROR;
+        initialized = false;
+    }
+
+    public void invalidate() { initialized = false; }
+
+    // Builds the arc length index, the length of every curve segment is integrated analytically so no flattening is needed
     private void init() {
-        pathLength = 0;
-
-        PathIterator              pathIterator              = path.getPathIterator(new Affine());
-        SingleSegmentPathIterator singleSegmentPathIterator = new SingleSegmentPathIterator();
-        segments = new ArrayList(20);
-        List     indexes   = new ArrayList(20);
-        int      index     = 0;
-        int      origIndex = -1;
-        double   lastMoveX = 0;
-        double   lastMoveY = 0;
-        double   currentX  = 0;
-        double   currentY  = 0;
-        double[] seg       = new double[6];
-        int      segType;
-
-        segments.add(new PathSegment(PathIterator.MOVE_TO, 0, 0, 0, origIndex));
-
-        while (!pathIterator.isDone()) {
-            origIndex++;
-            indexes.add(index);
-            segType = pathIterator.currentSegment(seg);
-            switch (segType) {
-                case PathIterator.MOVE_TO:
-                    segments.add(new PathSegment(segType, seg[0], seg[1], pathLength, origIndex));
-                    currentX  = seg[0];
-                    currentY  = seg[1];
-                    lastMoveX = currentX;
-                    lastMoveY = currentY;
-                    index++;
-                    pathIterator.next();
-                    break;
-                case PathIterator.LINE_TO:
-                    pathLength += Point.distance(currentX, currentY, seg[0], seg[1]);
-                    segments.add(new PathSegment(segType, seg[0], seg[1], pathLength, origIndex));
-                    currentX = seg[0];
-                    currentY = seg[1];
-                    index++;
-                    pathIterator.next();
-                    break;
-                case PathIterator.CLOSE:
-                    pathLength += Point.distance(currentX, currentY, lastMoveX, lastMoveY);
-                    segments.add(new PathSegment(PathIterator.LINE_TO, lastMoveX, lastMoveY, pathLength, origIndex));
-                    currentX = lastMoveX;
-                    currentY = lastMoveY;
-                    index++;
-                    pathIterator.next();
-                    break;
-                default:
-                    singleSegmentPathIterator.setPathIterator(pathIterator, currentX, currentY);
-                    FlatteningPathIterator fpi = new FlatteningPathIterator(singleSegmentPathIterator, 0.01);
-                    while (!fpi.isDone()) {
-                        segType = fpi.currentSegment(seg);
-                        if (segType == PathIterator.LINE_TO) {
-                            pathLength += Point.distance(currentX, currentY, seg[0], seg[1]);
-                            segments.add(new PathSegment(segType, seg[0], seg[1], pathLength, origIndex));
-                            currentX = seg[0];
-                            currentY = seg[1];
-                            index++;
-                        }
-                        fpi.next();
-                    }
+        pathLength   = 0;
+        numSegments  = 0;
+        nextFlags    = 0;
+        commandIndex = 0;
+        coordIndex   = 0;
+        currentX     = 0;
+        currentY     = 0;
+        lastMoveX    = 0;
+        lastMoveY    = 0;
+
+        if (path instanceof Path) {
+            indexedModCount = ((Path) path).getModCount();
+            appendCommands((Path) path);
+        } else {
+            PathIterator pathIterator = path.getPathIterator(null);
+            double[]     seg          = new double[6];
+            while (!pathIterator.isDone()) {
+                addCommand(pathIterator.currentSegment(seg), seg, 0);
+                pathIterator.next();
             }
         }
-        segmentIndexes = new int[indexes.size()];
-        for (int i = 0; i < segmentIndexes.length; i++) {
-            segmentIndexes[i] = ((Integer) indexes.get(i)).intValue();
-        }
         initialized = true;
     }
 
-    private int findUpperIndex(final double LENGTH) {
+    // Paths that were only appended to since the last query just get their new commands indexed
+    private void validate() {
+        if (initialized && path instanceof Path) {
+            Path p = (Path) path;
+            if (p.getModCount() != indexedModCount) {
+                initialized = false;
+            } else if (p.getNumCommands() > commandIndex) {
+                appendCommands(p);
+            }
+        }
         if (!initialized) { init(); }
+    }
 
-        if (LENGTH < 0 || LENGTH > pathLength) { return -1; }
+    private void appendCommands(final Path PATH) {
+        byte[]   types     = PATH.getCommandsNoClone();
+        double[] coords    = PATH.getDoubleCoordsNoClone();
+        int      numTypes  = PATH.getNumCommands();
+        while (commandIndex < numTypes) { addCommand(types[commandIndex], coords, coordIndex); }
+    }
 
-        int lowerBound = 0;
-        int upperBound = segments.size() - 1;
+    private void addCommand(final int TYPE, final double[] COORDS, final int OFFSET) {
+        switch (TYPE) {
+            case PathIterator.MOVE_TO:
+                currentX  = COORDS[OFFSET];
+                currentY  = COORDS[OFFSET + 1];
+                lastMoveX = currentX;
+                lastMoveY = currentY;
+                nextFlags = FLAG_MOVE;
+                coordIndex += 2;
+                break;
+            case PathIterator.LINE_TO:
+                addSegment(LINE, currentX, currentY, COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET], COORDS[OFFSET + 1]);
+                currentX = COORDS[OFFSET];
+                currentY = COORDS[OFFSET + 1];
+                coordIndex += 2;
+                break;
+            case PathIterator.QUAD_TO:
+                addSegment(QUAD, currentX, currentY, COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET + 2], COORDS[OFFSET + 3], COORDS[OFFSET + 2], COORDS[OFFSET + 3]);
+                currentX = COORDS[OFFSET + 2];
+                currentY = COORDS[OFFSET + 3];
+                coordIndex += 4;
+                break;
+            case PathIterator.BEZIER_TO:
+                addSegment(CUBIC, currentX, currentY, COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET + 2], COORDS[OFFSET + 3], COORDS[OFFSET + 4], COORDS[OFFSET + 5]);
+                currentX = COORDS[OFFSET + 4];
+                currentY = COORDS[OFFSET + 5];
+                coordIndex += 6;
+                break;
+            case PathIterator.CLOSE:
+                // Also keep zero length closes so that extract() is able to restore them
+                nextFlags |= FLAG_CLOSE;
+                addSegment(LINE, currentX, currentY, lastMoveX, lastMoveY, lastMoveX, lastMoveY, lastMoveX, lastMoveY);
+                currentX = lastMoveX;
+                currentY = lastMoveY;
+                break;
+        }
+        commandIndex++;
+    }
+
+    private void addSegment(final int TYPE, final double X1, final double Y1, final double CX1, final double CY1, final double CX2, final double CY2, final double X2, final double Y2) {
+        if (numSegments == segmentTypes.length) {
+            int newSize    = numSegments * 2;
+            segmentTypes         = Arrays.copyOf(segmentTypes, newSize);
+            segmentFlags         = Arrays.copyOf(segmentFlags, newSize);
+            segmentCommands      = Arrays.copyOf(segmentCommands, newSize);
+            segmentCommandCoords = Arrays.copyOf(segmentCommandCoords, newSize);
+            segmentCoords        = Arrays.copyOf(segmentCoords, newSize * COORDS_PER_SEG);
+            segmentLengths       = Arrays.copyOf(segmentLengths, newSize);
+        }
+        int offset = numSegments * COORDS_PER_SEG;
+        segmentCoords[offset]     = X1;
+        segmentCoords[offset + 1] = Y1;
+        segmentCoords[offset + 2] = CX1;
+        segmentCoords[offset + 3] = CY1;
+        segmentCoords[offset + 4] = CX2;
+        segmentCoords[offset + 5] = CY2;
+        segmentCoords[offset + 6] = X2;
+        segmentCoords[offset + 7] = Y2;
+        segmentTypes[numSegments]         = TYPE;
+        segmentFlags[numSegments]         = nextFlags;
+        segmentCommands[numSegments]      = commandIndex;
+        segmentCommandCoords[numSegments] = coordIndex;
+        nextFlags = 0;
+        pathLength += getSegment(numSegments).getLength(maxError);
+        segmentLengths[numSegments] = pathLength;
+        numSegments++;
+    }
+
+    // Returns a shared segment instance that is set to the segment with the given index
+    protected AbstractSegment getSegment(final int INDEX) {
+        int offset = INDEX * COORDS_PER_SEG;
+        switch (segmentTypes[INDEX]) {
+            case QUAD:
+                quadSegment.setSegment(segmentCoords[offset], segmentCoords[offset + 1], segmentCoords[offset + 2], segmentCoords[offset + 3], segmentCoords[offset + 6], segmentCoords[offset + 7]);
+                return quadSegment;
+            case CUBIC:
+                cubicSegment.setSegment(segmentCoords, offset);
+                return cubicSegment;
+            case LINE:
+            default:
+                lineSegment.setSegment(segmentCoords[offset], segmentCoords[offset + 1], segmentCoords[offset + 6], segmentCoords[offset + 7]);
+                return lineSegment;
+        }
+    }
 
-        while (lowerBound != upperBound) {
-            int curr = (lowerBound + upperBound) >> 1;
-            PathSegment pathSegment = segments.get(curr);
-            if (pathSegment.getLength() >= LENGTH) {
+    // Binary search for the first segment whose cumulative length reaches the given length
+    protected int findSegmentIndex(final double LENGTH) {
+        validate();
+        if (numSegments == 0 || LENGTH < 0 || LENGTH > pathLength) { return -1; }
+        int lowerBound = 0;
+        int upperBound = numSegments - 1;
+        while (lowerBound < upperBound) {
+            int curr = (lowerBound + upperBound) >>> 1;
+            if (segmentLengths[curr] >= LENGTH) {
                 upperBound = curr;
             } else {
                 lowerBound = curr + 1;
             }
         }
-        for (;;) {
-            PathSegment pathSegment = segments.get(upperBound);
-            if (pathSegment.getSegmentType() != PathIterator.MOVE_TO || upperBound == segments.size() - 1) {
-                break;
-            }
-            upperBound++;
-        }
+        return lowerBound;
+    }
 
-        int upperIndex   = -1;
-        int currentIndex = 0;
-        int numSegments  = segments.size();
+    protected double getSegmentStartLength(final int INDEX) { return INDEX == 0 ? 0 : segmentLengths[INDEX - 1]; }
 
-        while (upperIndex <= 0 && currentIndex < numSegments) {
-            PathSegment ps = segments.get(currentIndex);
-            if (ps.getLength() >= LENGTH && ps.getSegmentType() != PathIterator.MOVE_TO) {
-                upperIndex = currentIndex;
-            }
-            currentIndex++;
-        }
-        return upperIndex;
+    public int getNumSegments() {
+        validate();
+        return numSegments;
     }
 
     public double getLengthOfPath() {
-        if (!initialized) { init(); }
+        validate();
         return pathLength;
     }
 
-    public Point getSegmentPointAtLength(final double LENGTH) {
-        int upperIndex = findUpperIndex(LENGTH);
-        if (upperIndex == -1) { return null; }
-
-        PathSegment upper = segments.get(upperIndex);
-
-        if (upperIndex == 0) { return new Point(upper.getX(), upper.getY()); }
-
-        PathSegment lower = segments.get(upperIndex - 1);
-
-        double offset = LENGTH - lower.getLength();
+    public double getLengthOfSegment(final int INDEX) {
+        validate();
+        if (INDEX < 0 || INDEX >= numSegments) { throw new IndexOutOfBoundsException("Segment index " + INDEX + " out of range [0, " + numSegments + ")"); }
+        return segmentLengths[INDEX] - getSegmentStartLength(INDEX);
+    }
 
-        double theta = Math.atan2(upper.getY() - lower.getY(), upper.getX() - lower.getX());
+    public Point getSegmentPointAtLength(final double LENGTH) { return getPointAtLength(LENGTH); }
+
+    public Point getPointAtLength(final double LENGTH) { return getPointAtLength(LENGTH, new Point()); }
+    public Point getPointAtLength(final double LENGTH, final Point RESULT) {
+        int index = findSegmentIndex(LENGTH);
+        if (index == -1) { return null; }
+        AbstractSegment segment       = getSegment(index);
+        double          segmentLength = segmentLengths[index] - getSegmentStartLength(index);
+        double          t             = segment.getTAtLength(LENGTH - getSegmentStartLength(index), segmentLength, maxError);
+        segment.eval(t, RESULT);
+        return RESULT;
+    }
 
-        double xPoint = (lower.getX() + offset * Math.cos(theta));
-        double yPoint = (lower.getY() + offset * Math.sin(theta));
+    public static final int POSE_SIZE = 5;
 
-        return new Point(xPoint, yPoint);
+    public int getNumPoses(final double OFFSET, final double SPACING) {
+        validate();
+        if (SPACING <= 0) { throw new IllegalArgumentException("Spacing must be > 0"); }
+        if (numSegments == 0 || OFFSET > pathLength) { return 0; }
+        return (int) Math.floor((pathLength - Math.max(0, OFFSET)) / SPACING) + 1;
     }
 
-    public Point getPointAtLength(final double LENGTH) {
-        PathIterator              pathIterator              = path.getPathIterator(new Affine());
-        SingleSegmentPathIterator singleSegmentPathIterator = new SingleSegmentPathIterator();
-        double   pathLength = 0;
-        double   lastMoveX  = 0;
-        double   lastMoveY  = 0;
-        double   currentX   = 0;
-        double   currentY   = 0;
-        double[] seg        = new double[6];
-        int      segType;
-        double   lastX;
-        double   lastY;
-
-        while (!pathIterator.isDone()) {
-            segType = pathIterator.currentSegment(seg);
-            switch (segType) {
-                case PathIterator.MOVE_TO:
-                    lastX     = currentX;
-                    lastY     = currentY;
-                    currentX  = seg[0];
-                    currentY  = seg[1];
-                    lastMoveX = currentX;
-                    lastMoveY = currentY;
-                    pathIterator.next();
-                    if (pathLength > LENGTH) { return new Point(lastX, lastY); }
-                    break;
-                case PathIterator.LINE_TO:
-                    double segmentLength = Point.distance(currentX, currentY, seg[0], seg[1]);
-                    double angle         = Math.atan2(seg[1] - currentY, seg[0] - currentX);
-                    double step          = segmentLength * 0.001;
-                    for (double i = 0 ; i < segmentLength ; i += step) {
-                        lastX = currentX;
-                        lastY = currentY;
-                        currentX += step * Math.cos(angle);
-                        currentY += step * Math.sin(angle);
-                        pathLength += step;
-                        if (Double.compare(pathLength, LENGTH) >= 0) { return new Point(lastX, lastY); }
-                    }
-
-                    //lastX    = currentX;
-                    //lastY    = currentY;
-                    //currentX = seg[0];
-                    //currentY = seg[1];
-                    pathIterator.next();
-                    //if (pathLength > LENGTH) { return new Point(lastX, lastY); }
-                    break;
-                case PathIterator.CLOSE:
-                    pathLength += Point.distance(currentX, currentY, lastMoveX, lastMoveY);
-                    lastX      = currentX;
-                    lastY      = currentY;
-                    currentX   = lastMoveX;
-                    currentY   = lastMoveY;
-                    pathIterator.next();
-                    if (pathLength > LENGTH) { return new Point(lastX, lastY); }
-                    break;
-                default:
-                    singleSegmentPathIterator.setPathIterator(pathIterator, currentX, currentY);
-                    FlatteningPathIterator fpi = new FlatteningPathIterator(singleSegmentPathIterator, 0.001);
-                    while (!fpi.isDone()) {
-                        segType = fpi.currentSegment(seg);
-                        if (segType == PathIterator.LINE_TO) {
-                            pathLength += Point.distance(currentX, currentY, seg[0], seg[1]);
-                            lastX      = currentX;
-                            lastY      = currentY;
-                            currentX   = seg[0];
-                            currentY   = seg[1];
-                            if (pathLength > LENGTH) { return new Point(lastX, lastY); }
-                        }
-                        fpi.next();
-                    }
+    // Fills POSES with x, y, unit tangent x, unit tangent y and arc length of the points at OFFSET + k * SPACING in a single walk along the path
+    public int getPoses(final double OFFSET, final double SPACING, final double[] POSES) {
+        int numPoses = getNumPoses(OFFSET, SPACING);
+        if (POSES.length < numPoses * POSE_SIZE) { throw new IllegalArgumentException("Poses array needs room for " + numPoses + " poses"); }
+        Point  point   = new Point();
+        int    index   = 0;
+        int    segment = 0;
+        double t       = 0;
+        double tLength = 0;
+        for (int i = 0 ; i < numPoses ; i++) {
+            double length = Math.min(pathLength, Math.max(0, OFFSET) + i * SPACING);
+            while (segment < numSegments - 1 && segmentLengths[segment] < length) {
+                segment++;
+                t       = 0;
+                tLength = 0;
             }
+            AbstractSegment seg         = getSegment(segment);
+            double          localLength = length - getSegmentStartLength(segment);
+            t       = seg.advance(t, localLength - tLength, maxError);
+            tLength = localLength;
+            seg.eval(t, point);
+            POSES[index]     = point.x;
+            POSES[index + 1] = point.y;
+            POSES[index + 4] = length;
+            seg.evalDt(t, point);
+            double norm = Math.sqrt(point.x * point.x + point.y * point.y);
+            if (norm == 0) {
+                // Degenerate derivative (e.g. coinciding control points), fall back to the chord
+                int offset = segment * COORDS_PER_SEG;
+                point.set(segmentCoords[offset + 6] - segmentCoords[offset], segmentCoords[offset + 7] - segmentCoords[offset + 1]);
+                norm = Math.sqrt(point.x * point.x + point.y * point.y);
+            }
+            POSES[index + 2] = norm > 0 ? point.x / norm : 1;
+            POSES[index + 3] = norm > 0 ? point.y / norm : 0;
+            index += POSE_SIZE;
         }
-        return null;
+        return numPoses;
     }
 
-
-    // ******************** Inner Classes *************************************
-    protected static class SingleSegmentPathIterator implements PathIterator {
-        protected PathIterator pathIterator;
-        protected boolean      done;
-        protected boolean      moveDone;
-        protected double       x;
-        protected double       y;
-
-
-        public void setPathIterator(final PathIterator PATH_ITERATOR, final double X, final double Y) {
-            pathIterator = PATH_ITERATOR;
-            x            = X;
-            y            = Y;
-            done         = false;
-            moveDone     = false;
-        }
-
-        public int currentSegment(final double[] COORDINATES) {
-            int type = pathIterator.currentSegment(COORDINATES);
-            if (!moveDone) {
-                COORDINATES[0] = x;
-                COORDINATES[1] = y;
-                return MOVE_TO;
+    public Path extract(final double START_LENGTH, final double END_LENGTH) { return extract(START_LENGTH, END_LENGTH, new Path()); }
+    public Path extract(final double START_LENGTH, final double END_LENGTH, final Path OUT) {
+        OUT.reset();
+        validate();
+        double start = Helper.clamp(0, pathLength, START_LENGTH);
+        double end   = Helper.clamp(0, pathLength, END_LENGTH);
+        if (numSegments == 0 || start > end) { return OUT; }
+
+        int first = findSegmentIndex(start);
+        int last  = findSegmentIndex(end);
+        // Skip segments that end exactly at the start length
+        while (first < last && segmentLengths[first] <= start) { first++; }
+
+        double  t0       = getSegment(first).getTAtLength(start - getSegmentStartLength(first), getLengthOfSegment(first), maxError);
+        double  t1       = getSegment(last).getTAtLength(end - getSegmentStartLength(last), getLengthOfSegment(last), maxError);
+        boolean bulkCopy = path instanceof Path;
+        boolean complete = false;
+        Point   point    = new Point();
+        for (int index = first ; index <= last ; index++) {
+            double  tStart       = index == first ? t0 : 0.0;
+            double  tEnd         = index == last  ? t1 : 1.0;
+            boolean startsSubpath = (segmentFlags[index] & FLAG_MOVE) != 0;
+            if (bulkCopy && startsSubpath && index > first && index < last) {
+                // Whole subpaths are copied verbatim up to the last segment (incl. a moveTo in front of it)
+                int fromCommand = segmentCommands[index] - 1;
+                OUT.append((Path) path, fromCommand, segmentCommandCoords[index] - 2, segmentCommands[last] - fromCommand);
+                complete = true;
+                index    = last - 1;
+                continue;
             }
-            return type;
-        }
-
-        public WindingRule getWindingRule() { return pathIterator.getWindingRule(); }
-
-        public boolean isDone() { return done || pathIterator.isDone(); }
-
-        public void next() {
-            if (!done) {
-                if (!moveDone) {
-                    moveDone = true;
-                } else {
-                    pathIterator.next();
-                    done = true;
-                }
+            if (index == first || startsSubpath) {
+                getSegment(index).eval(tStart, point);
+                OUT.moveTo(point.x, point.y);
+                complete = startsSubpath && tStart == 0.0;
             }
+            appendSegment(index, tStart, tEnd, complete, OUT);
         }
+        return OUT;
     }
 
-    protected static class PathSegment {
-        protected final int segmentType;
-        protected double    x;
-        protected double    y;
-        protected double    length;
-        protected int       index;
-
-
-        PathSegment(final int SEGMENT_TYPE, final double X, final double Y, final double LENGTH, final int INDEX) {
-            segmentType = SEGMENT_TYPE;
-            x           = X;
-            y           = Y;
-            length      = LENGTH;
-            index       = INDEX;
+    // Appends the part [T_START, T_END] of the given segment, curves are split exactly at the parameter values
+    private void appendSegment(final int INDEX, final double T_START, final double T_END, final boolean SUBPATH_COMPLETE, final Path OUT) {
+        int offset = INDEX * COORDS_PER_SEG;
+        switch (segmentTypes[INDEX]) {
+            case QUAD:
+                quadCurve.setCurve(segmentCoords[offset], segmentCoords[offset + 1], segmentCoords[offset + 2], segmentCoords[offset + 3], segmentCoords[offset + 6], segmentCoords[offset + 7]);
+                if (T_START > 0.0) { quadCurve.subdivide(T_START, null, quadCurve); }
+                if (T_END < 1.0)   { quadCurve.subdivide((T_END - T_START) / (1.0 - T_START), quadCurve, null); }
+                OUT.quadraticCurveTo(quadCurve.ctrlx, quadCurve.ctrly, quadCurve.x2, quadCurve.y2);
+                break;
+            case CUBIC:
+                bezierCurve.setCurve(segmentCoords, offset);
+                if (T_START > 0.0) { bezierCurve.subdivide(T_START, null, bezierCurve); }
+                if (T_END < 1.0)   { bezierCurve.subdivide((T_END - T_START) / (1.0 - T_START), bezierCurve, null); }
+                OUT.bezierCurveTo(bezierCurve.ctrlx1, bezierCurve.ctrly1, bezierCurve.ctrlx2, bezierCurve.ctrly2, bezierCurve.x2, bezierCurve.y2);
+                break;
+            case LINE:
+            default:
+                if (T_END == 1.0 && SUBPATH_COMPLETE && (segmentFlags[INDEX] & FLAG_CLOSE) != 0) {
+                    OUT.closePath();
+                } else {
+                    double x1 = segmentCoords[offset];
+                    double y1 = segmentCoords[offset + 1];
+                    OUT.lineTo(x1 + T_END * (segmentCoords[offset + 6] - x1), y1 + T_END * (segmentCoords[offset + 7] - y1));
+                }
+                break;
         }
-
-        public int getSegmentType() { return segmentType; }
-
-        public double getX() { return x; }
-        public void setX(final double X) { x = X; }
-
-        public double getY() { return y; }
-        public void setY(final double Y) { y = Y; }
-
-        public double getLength() { return length; }
-        public void setLength(final double LENGTH) { length = LENGTH; }
-
-        public int getIndex() { return index; }
-        public void setIndex(final int INDEX) { index = INDEX; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Rect;
+import eu.hansolo.fx.geomfx.RectBounds;
+
+
+public class QuadSegment extends AbstractSegment {
+    public double x1;
+    public double y1;
+    public double ctrlx;
+    public double ctrly;
+    public double x2;
+    public double y2;
+
+
+    // ******************** Constructors **************************************
+    public QuadSegment() { }
+    public QuadSegment(final double X1, final double Y1, final double CTRL_X, final double CTRL_Y, final double X2, final double Y2) {
+        setSegment(X1, Y1, CTRL_X, CTRL_Y, X2, Y2);
+    }
+
+
+    // ******************** Methods *******************************************
+    public void setSegment(final double[] COORDS, final int OFFSET) {
+        setSegment(COORDS[OFFSET], COORDS[OFFSET + 1], COORDS[OFFSET + 2], COORDS[OFFSET + 3], COORDS[OFFSET + 4], COORDS[OFFSET + 5]);
+    }
+    public void setSegment(final double X1, final double Y1, final double CTRL_X, final double CTRL_Y, final double X2, final double Y2) {
+        x1    = X1;
+        y1    = Y1;
+        ctrlx = CTRL_X;
+        ctrly = CTRL_Y;
+        x2    = X2;
+        y2    = Y2;
+    }
+
+    public double minX() { return Math.min(Math.min(x1, ctrlx), x2); }
+    public double maxX() { return Math.max(Math.max(x1, ctrlx), x2); }
+
+    public double minY() { return Math.min(Math.min(y1, ctrly), y2); }
+    public double maxY() { return Math.max(Math.max(y1, ctrly), y2); }
+
+    public Rect getBounds2D() { return new Rect(new RectBounds(minX(), minY(), maxX(), maxY())); }
+
+    public Point eval(final double T) {
+        Point result = new Point();
+        eval(T, result);
+        return result;
+    }
+    public void eval(final double T, final Point RESULT) {
+        double u  = 1 - T;
+        double b0 = u * u;
+        double b1 = 2 * u * T;
+        double b2 = T * T;
+        RESULT.set(b0 * x1 + b1 * ctrlx + b2 * x2, b0 * y1 + b1 * ctrly + b2 * y2);
+    }
+
+    public Point evalDt(final double T) {
+        Point result = new Point();
+        evalDt(T, result);
+        return result;
+    }
+    public void evalDt(final double T, final Point RESULT) {
+        double u = 1 - T;
+        RESULT.set(2 * (u * (ctrlx - x1) + T * (x2 - ctrlx)), 2 * (u * (ctrly - y1) + T * (y2 - ctrly)));
+    }
+
+    @Override protected double getSpeed(final double T) {
+        double u  = 1 - T;
+        double dx = 2 * (u * (ctrlx - x1) + T * (x2 - ctrlx));
+        double dy = 2 * (u * (ctrly - y1) + T * (y2 - ctrly));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public Segment getSegment(final double T0, final double T1) {
+        double dt = (T1 - T0) * 0.5;
+        Point  p0 = eval(T0);
+        Point  d0 = evalDt(T0);
+        Point  p1 = eval(T1);
+        return new QuadSegment(p0.x, p0.y, p0.x + d0.x * dt, p0.y + d0.y * dt, p1.x, p1.y);
+    }
+
+    @Override protected int findRoots(final double Y, final double[] ROOTS) {
+        double a0 = y1 - Y;
+        double a1 = 2 * (ctrly - y1);
+        double a2 = y1 - 2 * ctrly + y2;
+        return solveQuad(a2, a1, a0, ROOTS);
+    }
+
+    public void subdivide(final Segment S0, final Segment S1) { subdivide(0.5, S0, S1); }
+    public void subdivide(final double T, final Segment S0, final Segment S1) {
+        double x12  = x1 + (ctrlx - x1) * T;
+        double y12  = y1 + (ctrly - y1) * T;
+        double x23  = ctrlx + (x2 - ctrlx) * T;
+        double y23  = ctrly + (y2 - ctrly) * T;
+        double xMid = x12 + (x23 - x12) * T;
+        double yMid = y12 + (y23 - y12) * T;
+        double xEnd = x2;
+        double yEnd = y2;
+        if (null != S0) { ((QuadSegment) S0).setSegment(x1, y1, x12, y12, xMid, yMid); }
+        if (null != S1) { ((QuadSegment) S1).setSegment(xMid, yMid, x23, y23, xEnd, yEnd); }
+    }
+
+    public QuadSegment copy() { return new QuadSegment(x1, y1, ctrlx, ctrly, x2, y2); }
+
+    @Override public String toString() {
+        return new StringBuilder().append("[").append(x1).append(", ").append(y1).append(", ").append(ctrlx).append(", ").append(ctrly).append(", ")
+                                  .append(x2).append(", ").append(y2).append("]").toString();
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.RectBounds;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.List;
+
+
+// Static R-tree over the bounds of many shapes, bulk loaded with Sort-Tile-Recursive and stored in primitive arrays.
+// Shapes are identified by their index in the list the tree was built from. Query methods return the number of hits
+// and write at most RESULT.length ids, so a caller supplied buffer keeps queries allocation free. Not thread safe.
+public class RTree {
+    public  static final int DEFAULT_NODE_CAPACITY = 16;
+    private final int        nodeCapacity;
+    private Shape[]          shapes;
+    private int              numItems;
+    // Items in leaf order
+    private int[]            itemIds;
+    private double[]         itemMinX;
+    private double[]         itemMinY;
+    private double[]         itemMaxX;
+    private double[]         itemMaxY;
+    // Nodes level by level starting with the leaves, the root is the last node
+    private int              numNodes;
+    private int              numLeaves;
+    private double[]         nodeMinX;
+    private double[]         nodeMinY;
+    private double[]         nodeMaxX;
+    private double[]         nodeMaxY;
+    private int[]            nodeStart;
+    private int[]            nodeCount;
+    private int[]            stack;
+    private int[]            heapNodes;
+    private double[]         heapDistances;
+
+
+    // ******************** Constructors **************************************
+    public RTree(final List<? extends Shape> SHAPES) {
+        this(SHAPES, DEFAULT_NODE_CAPACITY);
+    }
+    public RTree(final List<? extends Shape> SHAPES, final int NODE_CAPACITY) {
+        if (NODE_CAPACITY < 2) { throw new IllegalArgumentException("Node capacity must be >= 2"); }
+        nodeCapacity = NODE_CAPACITY;
+        setShapes(SHAPES);
+    }
+
+
+    // ******************** Methods *******************************************
+    public void setShapes(final List<? extends Shape> SHAPES) {
+        shapes   = SHAPES.toArray(new Shape[0]);
+        numItems = shapes.length;
+        build();
+    }
+
+    public int size() { return numItems; }
+
+    public Shape getShape(final int ID) { return shapes[ID]; }
+
+    // Ids of all shapes whose bounds overlap the given rectangle
+    public int query(final double X, final double Y, final double WIDTH, final double HEIGHT, final int[] RESULT) {
+        return search(X, Y, X + WIDTH, Y + HEIGHT, RESULT, null);
+    }
+    public int query(final RectBounds BOUNDS, final int[] RESULT) {
+        return search(BOUNDS.getMinX(), BOUNDS.getMinY(), BOUNDS.getMaxX(), BOUNDS.getMaxY(), RESULT, null);
+    }
+    // Ids of all shapes whose bounds contain the given point
+    public int query(final double X, final double Y, final int[] RESULT) { return search(X, Y, X, Y, RESULT, null); }
+
+    // Same as the bounds queries but only returns the shapes that pass the exact Shape.intersects() test
+    public int getIntersecting(final double X, final double Y, final double WIDTH, final double HEIGHT, final int[] RESULT) {
+        return search(X, Y, X + WIDTH, Y + HEIGHT, RESULT, Refinement.INTERSECTS);
+    }
+    // Shapes that pass the exact Shape.contains() test, i.e. the candidates for picking
+    public int getContaining(final double X, final double Y, final int[] RESULT) {
+        return search(X, Y, X, Y, RESULT, Refinement.CONTAINS);
+    }
+
+    // Up to K shapes ordered by the distance of their bounds to the given point, returns the number of shapes found
+    public int getNearest(final double X, final double Y, final int K, final int[] RESULT, final double[] DISTANCES) {
+        if (RESULT.length < K || DISTANCES.length < K) { throw new IllegalArgumentException("Result buffers must hold k elements"); }
+        if (K <= 0 || numItems == 0) { return 0; }
+        int found    = 0;
+        int heapSize = 0;
+        heapSize = pushNode(heapSize, numNodes - 1, nodeDistanceSq(numNodes - 1, X, Y));
+        while (heapSize > 0) {
+            int    node     = heapNodes[0];
+            double distance = heapDistances[0];
+            heapSize = popNode(heapSize);
+            if (found == K && distance > DISTANCES[0]) { break; }
+            if (node < numLeaves) {
+                for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                    double d = distanceSq(itemMinX[i], itemMinY[i], itemMaxX[i], itemMaxY[i], X, Y);
+                    if (found < K) {
+                        RESULT[found]    = itemIds[i];
+                        DISTANCES[found] = d;
+                        siftUp(RESULT, DISTANCES, found++);
+                    } else if (d < DISTANCES[0]) {
+                        RESULT[0]    = itemIds[i];
+                        DISTANCES[0] = d;
+                        siftDown(RESULT, DISTANCES, 0, found);
+                    }
+                }
+            } else {
+                for (int child = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; child < end ; child++) {
+                    double d = nodeDistanceSq(child, X, Y);
+                    if (found < K || d < DISTANCES[0]) { heapSize = pushNode(heapSize, child, d); }
+                }
+            }
+        }
+        // Heap sort the max heap into ascending order
+        for (int end = found - 1 ; end > 0 ; end--) {
+            swap(RESULT, DISTANCES, 0, end);
+            siftDown(RESULT, DISTANCES, 0, end);
+        }
+        for (int i = 0 ; i < found ; i++) { DISTANCES[i] = Math.sqrt(DISTANCES[i]); }
+        return found;
+    }
+
+    private int search(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final int[] RESULT, final Refinement REFINEMENT) {
+        if (numItems == 0) { return 0; }
+        double width  = MAX_X - MIN_X;
+        double height = MAX_Y - MIN_Y;
+        int    hits   = 0;
+        int    top    = 0;
+        stack[top++] = numNodes - 1;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeMaxX[node] < MIN_X || nodeMinX[node] > MAX_X || nodeMaxY[node] < MIN_Y || nodeMinY[node] > MAX_Y) { continue; }
+            if (node < numLeaves) {
+                for (int i = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; i < end ; i++) {
+                    if (itemMaxX[i] < MIN_X || itemMinX[i] > MAX_X || itemMaxY[i] < MIN_Y || itemMinY[i] > MAX_Y) { continue; }
+                    int id = itemIds[i];
+                    if (null != REFINEMENT) {
+                        boolean hit = Refinement.CONTAINS == REFINEMENT ? shapes[id].contains(MIN_X, MIN_Y) : shapes[id].intersects(MIN_X, MIN_Y, width, height);
+                        if (!hit) { continue; }
+                    }
+                    if (null != RESULT && hits < RESULT.length) { RESULT[hits] = id; }
+                    hits++;
+                }
+            } else {
+                for (int child = nodeStart[node], end = nodeStart[node] + nodeCount[node] ; child < end ; child++) { stack[top++] = child; }
+            }
+        }
+        return hits;
+    }
+
+    private double nodeDistanceSq(final int NODE, final double X, final double Y) {
+        return distanceSq(nodeMinX[NODE], nodeMinY[NODE], nodeMaxX[NODE], nodeMaxY[NODE], X, Y);
+    }
+
+    private static double distanceSq(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final double X, final double Y) {
+        double dx = X < MIN_X ? MIN_X - X : (X > MAX_X ? X - MAX_X : 0);
+        double dy = Y < MIN_Y ? MIN_Y - Y : (Y > MAX_Y ? Y - MAX_Y : 0);
+        return dx * dx + dy * dy;
+    }
+
+    // Min heap of nodes to visit, every node is pushed at most once so numNodes entries are enough
+    private int pushNode(final int SIZE, final int NODE, final double DISTANCE) {
+        int i = SIZE;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapDistances[parent] <= DISTANCE) { break; }
+            heapNodes[i]     = heapNodes[parent];
+            heapDistances[i] = heapDistances[parent];
+            i = parent;
+        }
+        heapNodes[i]     = NODE;
+        heapDistances[i] = DISTANCE;
+        return SIZE + 1;
+    }
+    private int popNode(final int SIZE) {
+        int    size     = SIZE - 1;
+        int    node     = heapNodes[size];
+        double distance = heapDistances[size];
+        int    i        = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) { break; }
+            if (child + 1 < size && heapDistances[child + 1] < heapDistances[child]) { child++; }
+            if (heapDistances[child] >= distance) { break; }
+            heapNodes[i]     = heapNodes[child];
+            heapDistances[i] = heapDistances[child];
+            i = child;
+        }
+        heapNodes[i]     = node;
+        heapDistances[i] = distance;
+        return size;
+    }
+
+    // Max heap on the caller's buffers, the root holds the current k-th distance
+    private static void siftUp(final int[] IDS, final double[] DISTANCES, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (DISTANCES[parent] >= DISTANCES[i]) { break; }
+            swap(IDS, DISTANCES, parent, i);
+            i = parent;
+        }
+    }
+    private static void siftDown(final int[] IDS, final double[] DISTANCES, int i, final int SIZE) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= SIZE) { break; }
+            if (child + 1 < SIZE && DISTANCES[child + 1] > DISTANCES[child]) { child++; }
+            if (DISTANCES[i] >= DISTANCES[child]) { break; }
+            swap(IDS, DISTANCES, i, child);
+            i = child;
+        }
+    }
+    private static void swap(final int[] IDS, final double[] DISTANCES, final int A, final int B) {
+        int    id = IDS[A];
+        double d  = DISTANCES[A];
+        IDS[A]       = IDS[B];
+        DISTANCES[A] = DISTANCES[B];
+        IDS[B]       = id;
+        DISTANCES[B] = d;
+    }
+
+    private void build() {
+        int      n       = numItems;
+        double[] minX    = new double[n];
+        double[] minY    = new double[n];
+        double[] maxX    = new double[n];
+        double[] maxY    = new double[n];
+        double[] centerX = new double[n];
+        double[] centerY = new double[n];
+        int[]    order   = new int[n];
+        for (int i = 0 ; i < n ; i++) {
+            RectBounds bounds = shapes[i].getBounds();
+            minX[i]    = bounds.getMinX();
+            minY[i]    = bounds.getMinY();
+            maxX[i]    = bounds.getMaxX();
+            maxY[i]    = bounds.getMaxY();
+            centerX[i] = (minX[i] + maxX[i]) * 0.5;
+            centerY[i] = (minY[i] + maxY[i]) * 0.5;
+            order[i]   = i;
+        }
+        sortTileRecursive(order, centerX, centerY, n);
+
+        itemIds  = order;
+        itemMinX = new double[n];
+        itemMinY = new double[n];
+        itemMaxX = new double[n];
+        itemMaxY = new double[n];
+        for (int i = 0 ; i < n ; i++) {
+            int id = order[i];
+            itemMinX[i] = minX[id];
+            itemMinY[i] = minY[id];
+            itemMaxX[i] = maxX[id];
+            itemMaxY[i] = maxY[id];
+        }
+
+        // Size all levels up front, a tree without items still gets an empty root
+        int total  = 0;
+        int levels = 0;
+        int count  = Math.max(1, (n + nodeCapacity - 1) / nodeCapacity);
+        while (true) {
+            total += count;
+            levels++;
+            if (count == 1) { break; }
+            count = (count + nodeCapacity - 1) / nodeCapacity;
+        }
+        nodeMinX  = new double[total];
+        nodeMinY  = new double[total];
+        nodeMaxX  = new double[total];
+        nodeMaxY  = new double[total];
+        nodeStart = new int[total];
+        nodeCount = new int[total];
+
+        numLeaves = Math.max(1, (n + nodeCapacity - 1) / nodeCapacity);
+        for (int leaf = 0 ; leaf < numLeaves ; leaf++) {
+            int start = leaf * nodeCapacity;
+            int end   = Math.min(n, start + nodeCapacity);
+            nodeStart[leaf] = start;
+            nodeCount[leaf] = end - start;
+            setNodeBounds(leaf, itemMinX, itemMinY, itemMaxX, itemMaxY, start, end);
+        }
+        numNodes = numLeaves;
+
+        // Pack every level with the same tiling, the children of a node have to be contiguous so each level is reordered first
+        int levelStart = 0;
+        int levelSize  = numLeaves;
+        while (levelSize > 1) {
+            int[]    levelOrder = new int[levelSize];
+            double[] levelX     = new double[levelSize];
+            double[] levelY     = new double[levelSize];
+            for (int i = 0 ; i < levelSize ; i++) {
+                int node = levelStart + i;
+                levelOrder[i] = i;
+                levelX[i]     = (nodeMinX[node] + nodeMaxX[node]) * 0.5;
+                levelY[i]     = (nodeMinY[node] + nodeMaxY[node]) * 0.5;
+            }
+            sortTileRecursive(levelOrder, levelX, levelY, levelSize);
+            permuteLevel(levelStart, levelSize, levelOrder);
+
+            int parents = (levelSize + nodeCapacity - 1) / nodeCapacity;
+            for (int p = 0 ; p < parents ; p++) {
+                int parent = numNodes + p;
+                int start  = levelStart + p * nodeCapacity;
+                int end    = Math.min(levelStart + levelSize, start + nodeCapacity);
+                nodeStart[parent] = start;
+                nodeCount[parent] = end - start;
+                setNodeBounds(parent, nodeMinX, nodeMinY, nodeMaxX, nodeMaxY, start, end);
+            }
+            levelStart = numNodes;
+            levelSize  = parents;
+            numNodes  += parents;
+        }
+
+        stack         = new int[levels * nodeCapacity + 1];
+        heapNodes     = new int[numNodes];
+        heapDistances = new double[numNodes];
+    }
+
+    private void setNodeBounds(final int NODE, final double[] MIN_X, final double[] MIN_Y, final double[] MAX_X, final double[] MAX_Y, final int START, final int END) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = START ; i < END ; i++) {
+            if (MIN_X[i] < minX) { minX = MIN_X[i]; }
+            if (MIN_Y[i] < minY) { minY = MIN_Y[i]; }
+            if (MAX_X[i] > maxX) { maxX = MAX_X[i]; }
+            if (MAX_Y[i] > maxY) { maxY = MAX_Y[i]; }
+        }
+        nodeMinX[NODE] = minX;
+        nodeMinY[NODE] = minY;
+        nodeMaxX[NODE] = maxX;
+        nodeMaxY[NODE] = maxY;
+    }
+
+    private void permuteLevel(final int LEVEL_START, final int LEVEL_SIZE, final int[] ORDER) {
+        double[] minX  = new double[LEVEL_SIZE];
+        double[] minY  = new double[LEVEL_SIZE];
+        double[] maxX  = new double[LEVEL_SIZE];
+        double[] maxY  = new double[LEVEL_SIZE];
+        int[]    start = new int[LEVEL_SIZE];
+        int[]    count = new int[LEVEL_SIZE];
+        for (int i = 0 ; i < LEVEL_SIZE ; i++) {
+            int node = LEVEL_START + ORDER[i];
+            minX[i]  = nodeMinX[node];
+            minY[i]  = nodeMinY[node];
+            maxX[i]  = nodeMaxX[node];
+            maxY[i]  = nodeMaxY[node];
+            start[i] = nodeStart[node];
+            count[i] = nodeCount[node];
+        }
+        System.arraycopy(minX, 0, nodeMinX, LEVEL_START, LEVEL_SIZE);
+        System.arraycopy(minY, 0, nodeMinY, LEVEL_START, LEVEL_SIZE);
+        System.arraycopy(maxX, 0, nodeMaxX, LEVEL_START, LEVEL_SIZE);
+        System.arraycopy(maxY, 0, nodeMaxY, LEVEL_START, LEVEL_SIZE);
+        System.arraycopy(start, 0, nodeStart, LEVEL_START, LEVEL_SIZE);
+        System.arraycopy(count, 0, nodeCount, LEVEL_START, LEVEL_SIZE);
+    }
+
+    // Orders the entries into vertical slabs of about sqrt(n / capacity) runs by x and every slab into runs of capacity by y
+    private void sortTileRecursive(final int[] ORDER, final double[] X, final double[] Y, final int N) {
+        int numRuns  = (N + nodeCapacity - 1) / nodeCapacity;
+        int numSlabs = (int) Math.ceil(Math.sqrt(numRuns));
+        if (numSlabs <= 0) { return; }
+        int slabSize = ((numRuns + numSlabs - 1) / numSlabs) * nodeCapacity;
+        partition(ORDER, X, 0, N, slabSize);
+        for (int start = 0 ; start < N ; start += slabSize) {
+            partition(ORDER, Y, start, Math.min(N, start + slabSize), nodeCapacity);
+        }
+    }
+
+    // Splits ORDER[START..END) into runs of CHUNK entries where every run only holds keys <= the keys of the next run
+    private static void partition(final int[] ORDER, final double[] KEYS, final int START, final int END, final int CHUNK) {
+        int runs = (END - START + CHUNK - 1) / CHUNK;
+        if (runs <= 1) { return; }
+        int mid = START + (runs / 2) * CHUNK;
+        select(ORDER, KEYS, START, END - 1, mid);
+        partition(ORDER, KEYS, START, mid, CHUNK);
+        partition(ORDER, KEYS, mid, END, CHUNK);
+    }
+
+    // Partially sorts ORDER[LEFT..RIGHT] by key so that the element at K is in its final position
+    private static void select(final int[] ORDER, final double[] KEYS, int left, int right, final int K) {
+        while (right > left) {
+            double pivot = KEYS[ORDER[(left + right) >>> 1]];
+            int    i     = left;
+            int    j     = right;
+            while (i <= j) {
+                while (KEYS[ORDER[i]] < pivot) { i++; }
+                while (KEYS[ORDER[j]] > pivot) { j--; }
+                if (i <= j) {
+                    int tmp  = ORDER[i];
+                    ORDER[i] = ORDER[j];
+                    ORDER[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (K <= j) {
+                right = j;
+            } else if (K >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private enum Refinement { INTERSECTS, CONTAINS }
+}
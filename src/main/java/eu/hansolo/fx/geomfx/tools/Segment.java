@@ -44,6 +44,9 @@ public interface Segment extends Cloneable {
     double getLength();
     double getLength(double maxErr);
 
+    double getTAtLength(double length);
+    double getTAtLength(double length, double maxErr);
+
 
     class SplitResults {
         Segment[] above;
@@ -0,0 +1,523 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.FlatteningPathIterator;
+import eu.hansolo.fx.geomfx.Line;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.RectBounds;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+// Signed distance of the pixel centers of a grid to the outline of a shape, negative inside by the winding rule of the
+// shape. Pixels within BAND pixels of the outline get the exact distance to the lines and curves (closing lines
+// included), the nearest outline points of those pixels are spread to all other pixels by jump flooding.
+// All passes are split by rows and run in parallel on the given pool.
+public class SignedDistanceField {
+    public  static final double BAND           = 2.0;
+    private static final double PIECE_SIZE     = 4.0;
+    private static final int    MAX_SPLITS     = 10;
+    private static final int    CURVE_SAMPLES  = 8;
+    private static final int    NEWTON_STEPS   = 6;
+    private static final int    ROWS_PER_TASK  = 8;
+    private static final int    FLATTEN_LIMIT  = 16;
+    private static final int    LINE           = 0;
+    private static final int    CUBIC          = 1;
+    private final double        minX;
+    private final double        minY;
+    private final double        pixelSize;
+    private final int           width;
+    private final int           height;
+    private final float[]       distances;
+    // Lines and cubics (quads are elevated), curves are split until their control points span at most PIECE_SIZE pixels
+    private int                 numPieces;
+    private byte[]              pieceType;
+    private double[]            pieceCoords;
+    private double[]            pieceBounds;
+    // Nearest outline point of every pixel, NaN if there is none yet
+    private float[]             nearX;
+    private float[]             nearY;
+
+
+    // ******************** Constructors **************************************
+    // Grid over the bounds of the shape grown by PADDING on all sides
+    public SignedDistanceField(final Shape SHAPE, final double PIXEL_SIZE, final double PADDING) {
+        this(SHAPE, SHAPE.getBounds().getMinX() - PADDING, SHAPE.getBounds().getMinY() - PADDING, PIXEL_SIZE,
+             Math.max(1, (int) Math.ceil((SHAPE.getBounds().getWidth() + 2 * PADDING) / PIXEL_SIZE)),
+             Math.max(1, (int) Math.ceil((SHAPE.getBounds().getHeight() + 2 * PADDING) / PIXEL_SIZE)), ForkJoinPool.commonPool());
+    }
+    public SignedDistanceField(final Shape SHAPE, final double MIN_X, final double MIN_Y, final double PIXEL_SIZE, final int WIDTH, final int HEIGHT) {
+        this(SHAPE, MIN_X, MIN_Y, PIXEL_SIZE, WIDTH, HEIGHT, ForkJoinPool.commonPool());
+    }
+    public SignedDistanceField(final Shape SHAPE, final double MIN_X, final double MIN_Y, final double PIXEL_SIZE, final int WIDTH, final int HEIGHT, final ForkJoinPool POOL) {
+        if (PIXEL_SIZE <= 0) { throw new IllegalArgumentException("Pixel size must be > 0"); }
+        if (WIDTH <= 0 || HEIGHT <= 0) { throw new IllegalArgumentException("Width and height must be > 0"); }
+        minX      = MIN_X;
+        minY      = MIN_Y;
+        pixelSize = PIXEL_SIZE;
+        width     = WIDTH;
+        height    = HEIGHT;
+        distances = new float[WIDTH * HEIGHT];
+        compute(SHAPE, POOL);
+    }
+
+
+    // ******************** Methods *******************************************
+    public double getMinX() { return minX; }
+
+    public double getMinY() { return minY; }
+
+    public double getPixelSize() { return pixelSize; }
+
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    // Row by row, the distance of pixel (COL, ROW) is measured at (minX + (COL + 0.5) * pixelSize, minY + (ROW + 0.5) * pixelSize)
+    public float[] getDistances() { return distances; }
+
+    public float getDistance(final int COL, final int ROW) { return distances[ROW * width + COL]; }
+
+    // Bilinear interpolation between the pixel centers, clamped at the border of the grid
+    public double getDistanceAt(final double X, final double Y) {
+        double fx  = Math.max(0, Math.min(width - 1, (X - minX) / pixelSize - 0.5));
+        double fy  = Math.max(0, Math.min(height - 1, (Y - minY) / pixelSize - 0.5));
+        int    col = Math.min(width - 2, (int) fx);
+        int    row = Math.min(height - 2, (int) fy);
+        if (col < 0 || row < 0) { return distances[(int) fy * width + (int) fx]; }
+        double tx  = fx - col;
+        double ty  = fy - row;
+        int    i   = row * width + col;
+        double top = distances[i] + (distances[i + 1] - distances[i]) * tx;
+        double bot = distances[i + width] + (distances[i + width + 1] - distances[i + width]) * tx;
+        return top + (bot - top) * ty;
+    }
+
+    private void compute(final Shape SHAPE, final ForkJoinPool POOL) {
+        collectPieces(SHAPE.getPathIterator(null));
+        if (numPieces == 0) {
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            return;
+        }
+        nearX = new float[width * height];
+        nearY = new float[width * height];
+        Arrays.fill(nearX, Float.NaN);
+        Arrays.fill(nearY, Float.NaN);
+
+        // Exact band, the squared distances are kept in the result until the sign is known
+        double band   = BAND * pixelSize;
+        float  bandSq = (float) (band * band);
+        Arrays.fill(distances, bandSq);
+        int[]  rowStart  = new int[height + 1];
+        for (int p = 0 ; p < numPieces ; p++) {
+            for (int row = firstRow(pieceBounds[4 * p + 1] - band), last = lastRow(pieceBounds[4 * p + 3] + band) ; row <= last ; row++) { rowStart[row + 1]++; }
+        }
+        for (int row = 0 ; row < height ; row++) { rowStart[row + 1] += rowStart[row]; }
+        int[] rowPieces = new int[rowStart[height]];
+        int[] fill      = Arrays.copyOf(rowStart, height);
+        for (int p = 0 ; p < numPieces ; p++) {
+            for (int row = firstRow(pieceBounds[4 * p + 1] - band), last = lastRow(pieceBounds[4 * p + 3] + band) ; row <= last ; row++) { rowPieces[fill[row]++] = p; }
+        }
+        POOL.invoke(new RowTask((FROM, TO) -> {
+            double[] point = new double[2];
+            for (int row = FROM ; row < TO ; row++) { fillBand(row, rowPieces, rowStart[row], rowStart[row + 1], band, point); }
+        }, 0, height));
+
+        boolean seeded = false;
+        for (int i = 0 ; i < nearX.length && !seeded ; i++) { seeded = !Float.isNaN(nearX[i]); }
+        if (seeded) {
+            jumpFlood(bandSq, POOL);
+        } else {
+            // The outline does not come close to any pixel, measure every pixel against every piece
+            POOL.invoke(new RowTask((FROM, TO) -> {
+                double[] point = new double[2];
+                for (int row = FROM ; row < TO ; row++) { fillExact(row, point); }
+            }, 0, height));
+        }
+
+        applySign(SHAPE, POOL);
+        nearX = null;
+        nearY = null;
+    }
+
+    private void fillBand(final int ROW, final int[] ROW_PIECES, final int FROM, final int TO, final double BAND_WIDTH, final double[] POINT) {
+        double y    = minY + (ROW + 0.5) * pixelSize;
+        int    base = ROW * width;
+        for (int k = FROM ; k < TO ; k++) {
+            int    p = ROW_PIECES[k];
+            int    o = 8 * p;
+            double x0, x1;
+            if (pieceType[p] == LINE) {
+                // Only the part of the line within the band around the row
+                double ax = pieceCoords[o], ay = pieceCoords[o + 1], bx = pieceCoords[o + 2], by = pieceCoords[o + 3];
+                double lo = Math.max(Math.min(ay, by), y - BAND_WIDTH);
+                double hi = Math.min(Math.max(ay, by), y + BAND_WIDTH);
+                if (lo > hi) { continue; }
+                if (ay == by) {
+                    x0 = Math.min(ax, bx);
+                    x1 = Math.max(ax, bx);
+                } else {
+                    double xa = ax + (lo - ay) * (bx - ax) / (by - ay);
+                    double xb = ax + (hi - ay) * (bx - ax) / (by - ay);
+                    x0 = Math.min(xa, xb);
+                    x1 = Math.max(xa, xb);
+                }
+            } else {
+                x0 = pieceBounds[4 * p];
+                x1 = pieceBounds[4 * p + 2];
+            }
+            for (int col = firstCol(x0 - BAND_WIDTH), last = lastCol(x1 + BAND_WIDTH) ; col <= last ; col++) {
+                double x      = minX + (col + 0.5) * pixelSize;
+                double distSq = pieceDistanceSq(p, x, y, distances[base + col], POINT);
+                if (distSq < distances[base + col]) {
+                    distances[base + col] = (float) distSq;
+                    nearX[base + col]     = (float) POINT[0];
+                    nearY[base + col]     = (float) POINT[1];
+                }
+            }
+        }
+    }
+
+    private void fillExact(final int ROW, final double[] POINT) {
+        double y = minY + (ROW + 0.5) * pixelSize;
+        for (int col = 0, i = ROW * width ; col < width ; col++, i++) {
+            double x    = minX + (col + 0.5) * pixelSize;
+            double best = Double.POSITIVE_INFINITY;
+            for (int p = 0 ; p < numPieces ; p++) {
+                double distSq = pieceDistanceSq(p, x, y, best, POINT);
+                if (distSq < best) { best = distSq; }
+            }
+            distances[i] = (float) best;
+        }
+    }
+
+    // Squared distance to the piece, the closest point is only written to POINT if the distance is below LIMIT_SQ
+    private double pieceDistanceSq(final int PIECE, final double X, final double Y, final double LIMIT_SQ, final double[] POINT) {
+        double[] c = pieceCoords;
+        int      o = 8 * PIECE;
+        if (pieceType[PIECE] == LINE) {
+            double distSq = Line.ptSegDistSq(c[o], c[o + 1], c[o + 2], c[o + 3], X, Y);
+            if (distSq < LIMIT_SQ) {
+                double dx    = c[o + 2] - c[o];
+                double dy    = c[o + 3] - c[o + 1];
+                double lenSq = dx * dx + dy * dy;
+                double t     = lenSq > 0 ? Math.max(0, Math.min(1, ((X - c[o]) * dx + (Y - c[o + 1]) * dy) / lenSq)) : 0;
+                POINT[0] = c[o] + t * dx;
+                POINT[1] = c[o + 1] + t * dy;
+            }
+            return distSq;
+        }
+        // Cubic in power basis B(t) = a t^3 + b t^2 + c t + d relative to the point
+        double ax = -c[o] + 3 * (c[o + 2] - c[o + 4]) + c[o + 6], ay = -c[o + 1] + 3 * (c[o + 3] - c[o + 5]) + c[o + 7];
+        double bx = 3 * (c[o] - 2 * c[o + 2] + c[o + 4]),       by = 3 * (c[o + 1] - 2 * c[o + 3] + c[o + 5]);
+        double cx = 3 * (c[o + 2] - c[o]),                      cy = 3 * (c[o + 3] - c[o + 1]);
+        double dx = c[o] - X,                                   dy = c[o + 1] - Y;
+        double bestT  = 0;
+        double bestSq = Double.POSITIVE_INFINITY;
+        for (int i = 0 ; i <= CURVE_SAMPLES ; i++) {
+            double t  = (double) i / CURVE_SAMPLES;
+            double px = ((ax * t + bx) * t + cx) * t + dx;
+            double py = ((ay * t + by) * t + cy) * t + dy;
+            double sq = px * px + py * py;
+            if (sq < bestSq) { bestSq = sq; bestT = t; }
+        }
+        // Newton on (B(t) - P) . B'(t) = 0 starting at the closest sample
+        double t = bestT;
+        for (int i = 0 ; i < NEWTON_STEPS ; i++) {
+            double px  = ((ax * t + bx) * t + cx) * t + dx;
+            double py  = ((ay * t + by) * t + cy) * t + dy;
+            double d1x = (3 * ax * t + 2 * bx) * t + cx;
+            double d1y = (3 * ay * t + 2 * by) * t + cy;
+            double d2x = 6 * ax * t + 2 * bx;
+            double d2y = 6 * ay * t + 2 * by;
+            double f   = px * d1x + py * d1y;
+            double df  = d1x * d1x + d1y * d1y + px * d2x + py * d2y;
+            if (df <= 0) { break; }
+            t = Math.max(0, Math.min(1, t - f / df));
+            double qx = ((ax * t + bx) * t + cx) * t + dx;
+            double qy = ((ay * t + by) * t + cy) * t + dy;
+            double sq = qx * qx + qy * qy;
+            if (sq < bestSq) { bestSq = sq; bestT = t; }
+        }
+        if (bestSq < LIMIT_SQ) {
+            POINT[0] = ((ax * bestT + bx) * bestT + cx) * bestT + c[o];
+            POINT[1] = ((ay * bestT + by) * bestT + cy) * bestT + c[o + 1];
+        }
+        return bestSq;
+    }
+
+    // Jump flooding with halving steps plus one extra pass with step 1, every pass reads the last and writes the next buffer
+    private void jumpFlood(final float BAND_SQ, final ForkJoinPool POOL) {
+        float[] srcX = nearX, srcY = nearY;
+        float[] dstX = new float[srcX.length], dstY = new float[srcY.length];
+        int step = Integer.highestOneBit(Math.max(width, height) - 1 | 1);
+        boolean extra = true;
+        while (step > 0) {
+            final float[] fromX = srcX, fromY = srcY, toX = dstX, toY = dstY;
+            final int     s     = step;
+            POOL.invoke(new RowTask((FROM, TO) -> {
+                for (int row = FROM ; row < TO ; row++) { floodRow(row, s, fromX, fromY, toX, toY); }
+            }, 0, height));
+            srcX = toX; srcY = toY;
+            dstX = fromX; dstY = fromY;
+            if (step == 1 && extra) {
+                extra = false;
+            } else {
+                step >>= 1;
+            }
+        }
+        nearX = srcX;
+        nearY = srcY;
+        POOL.invoke(new RowTask((FROM, TO) -> {
+            for (int row = FROM ; row < TO ; row++) {
+                double y = minY + (row + 0.5) * pixelSize;
+                for (int col = 0, i = row * width ; col < width ; col++, i++) {
+                    double dx = nearX[i] - (minX + (col + 0.5) * pixelSize);
+                    double dy = nearY[i] - y;
+                    // Band pixels keep their exact distance
+                    if (distances[i] >= BAND_SQ) { distances[i] = (float) (dx * dx + dy * dy); }
+                }
+            }
+        }, 0, height));
+    }
+
+    private void floodRow(final int ROW, final int STEP, final float[] FROM_X, final float[] FROM_Y, final float[] TO_X, final float[] TO_Y) {
+        double y = minY + (ROW + 0.5) * pixelSize;
+        for (int col = 0, i = ROW * width ; col < width ; col++, i++) {
+            double x      = minX + (col + 0.5) * pixelSize;
+            float  bestX  = FROM_X[i];
+            float  bestY  = FROM_Y[i];
+            double bestSq = Float.isNaN(bestX) ? Double.POSITIVE_INFINITY : (bestX - x) * (bestX - x) + (bestY - y) * (bestY - y);
+            for (int r = ROW - STEP ; r <= ROW + STEP ; r += STEP) {
+                if (r < 0 || r >= height) { continue; }
+                for (int c = col - STEP ; c <= col + STEP ; c += STEP) {
+                    if (c < 0 || c >= width) { continue; }
+                    float sx = FROM_X[r * width + c];
+                    if (Float.isNaN(sx)) { continue; }
+                    float  sy = FROM_Y[r * width + c];
+                    double sq = (sx - x) * (sx - x) + (sy - y) * (sy - y);
+                    if (sq < bestSq) {
+                        bestSq = sq;
+                        bestX  = sx;
+                        bestY  = sy;
+                    }
+                }
+            }
+            TO_X[i] = bestX;
+            TO_Y[i] = bestY;
+        }
+    }
+
+    // Winding at every pixel center from the crossings of the finely flattened outline with the row center
+    private void applySign(final Shape SHAPE, final ForkJoinPool POOL) {
+        PathIterator iterator = new FlatteningPathIterator(SHAPE.getPathIterator(null), pixelSize * 0.01, FLATTEN_LIMIT);
+        WindingRule  rule     = iterator.getWindingRule();
+        double[]     edges    = new double[64];
+        int          numEdges = 0;
+        double[]     coords   = new double[6];
+        double       movX = 0, movY = 0, curX = 0, curY = 0;
+        while (true) {
+            boolean done = iterator.isDone();
+            int     type = done ? PathIterator.CLOSE : iterator.currentSegment(coords);
+            double  toX  = type == PathIterator.LINE_TO ? coords[0] : movX;
+            double  toY  = type == PathIterator.LINE_TO ? coords[1] : movY;
+            if (curY != toY) {
+                if (4 * numEdges == edges.length) { edges = Arrays.copyOf(edges, edges.length * 2); }
+                edges[4 * numEdges]     = curX;
+                edges[4 * numEdges + 1] = curY;
+                edges[4 * numEdges + 2] = toX;
+                edges[4 * numEdges + 3] = toY;
+                numEdges++;
+            }
+            if (done) { break; }
+            if (type == PathIterator.MOVE_TO) {
+                movX = toX = coords[0];
+                movY = toY = coords[1];
+            }
+            curX = toX;
+            curY = toY;
+            iterator.next();
+        }
+
+        int[] rowStart = new int[height + 1];
+        for (int e = 0 ; e < numEdges ; e++) {
+            for (int row = firstRow(Math.min(edges[4 * e + 1], edges[4 * e + 3])), end = firstRow(Math.max(edges[4 * e + 1], edges[4 * e + 3])) ; row < end ; row++) { rowStart[row + 1]++; }
+        }
+        for (int row = 0 ; row < height ; row++) { rowStart[row + 1] += rowStart[row]; }
+        double[] xs   = new double[rowStart[height]];
+        int[]    dirs = new int[rowStart[height]];
+        int[]    fill = Arrays.copyOf(rowStart, height);
+        for (int e = 0 ; e < numEdges ; e++) {
+            double x0 = edges[4 * e], y0 = edges[4 * e + 1], x1 = edges[4 * e + 2], y1 = edges[4 * e + 3];
+            for (int row = firstRow(Math.min(y0, y1)), end = firstRow(Math.max(y0, y1)) ; row < end ; row++) {
+                double y = minY + (row + 0.5) * pixelSize;
+                xs[fill[row]]     = x0 + (y - y0) * (x1 - x0) / (y1 - y0);
+                dirs[fill[row]++] = y1 > y0 ? 1 : -1;
+            }
+        }
+
+        int mask = rule == WindingRule.WIND_NON_ZERO ? -1 : 1;
+        POOL.invoke(new RowTask((FROM, TO) -> {
+            for (int row = FROM ; row < TO ; row++) {
+                int from = rowStart[row];
+                int to   = rowStart[row + 1];
+                ContainmentMask.sort(xs, dirs, from, to);
+                int winding = 0;
+                int k       = from;
+                for (int col = 0, i = row * width ; col < width ; col++, i++) {
+                    double x = minX + (col + 0.5) * pixelSize;
+                    while (k < to && xs[k] < x) { winding += dirs[k++]; }
+                    double distance = Math.sqrt(distances[i]);
+                    distances[i] = (float) ((winding & mask) != 0 ? -distance : distance);
+                }
+            }
+        }, 0, height));
+    }
+
+    private void collectPieces(final PathIterator ITERATOR) {
+        numPieces   = 0;
+        pieceType   = new byte[64];
+        pieceCoords = new double[8 * 64];
+        double[] coords = new double[6];
+        double   movX = 0, movY = 0, curX = 0, curY = 0;
+        while (!ITERATOR.isDone()) {
+            switch (ITERATOR.currentSegment(coords)) {
+                case PathIterator.MOVE_TO:
+                    if (curX != movX || curY != movY) { addPiece(LINE, curX, curY, movX, movY, 0, 0, 0, 0); }
+                    movX = curX = coords[0];
+                    movY = curY = coords[1];
+                    break;
+                case PathIterator.LINE_TO:
+                    addPiece(LINE, curX, curY, coords[0], coords[1], 0, 0, 0, 0);
+                    curX = coords[0];
+                    curY = coords[1];
+                    break;
+                case PathIterator.QUAD_TO:
+                    addCubic(curX, curY, curX + 2.0 / 3.0 * (coords[0] - curX), curY + 2.0 / 3.0 * (coords[1] - curY),
+                             coords[2] + 2.0 / 3.0 * (coords[0] - coords[2]), coords[3] + 2.0 / 3.0 * (coords[1] - coords[3]), coords[2], coords[3], 0);
+                    curX = coords[2];
+                    curY = coords[3];
+                    break;
+                case PathIterator.BEZIER_TO:
+                    addCubic(curX, curY, coords[0], coords[1], coords[2], coords[3], coords[4], coords[5], 0);
+                    curX = coords[4];
+                    curY = coords[5];
+                    break;
+                case PathIterator.CLOSE:
+                    if (curX != movX || curY != movY) { addPiece(LINE, curX, curY, movX, movY, 0, 0, 0, 0); }
+                    curX = movX;
+                    curY = movY;
+                    break;
+            }
+            ITERATOR.next();
+        }
+        if (curX != movX || curY != movY) { addPiece(LINE, curX, curY, movX, movY, 0, 0, 0, 0); }
+
+        pieceBounds = new double[4 * numPieces];
+        for (int p = 0 ; p < numPieces ; p++) {
+            int    o      = 8 * p;
+            int    points = pieceType[p] == LINE ? 2 : 4;
+            double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY, x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+            for (int i = 0 ; i < points ; i++) {
+                x0 = Math.min(x0, pieceCoords[o + 2 * i]);
+                y0 = Math.min(y0, pieceCoords[o + 2 * i + 1]);
+                x1 = Math.max(x1, pieceCoords[o + 2 * i]);
+                y1 = Math.max(y1, pieceCoords[o + 2 * i + 1]);
+            }
+            pieceBounds[4 * p]     = x0;
+            pieceBounds[4 * p + 1] = y0;
+            pieceBounds[4 * p + 2] = x1;
+            pieceBounds[4 * p + 3] = y1;
+        }
+    }
+
+    // Splits the cubic in halves until its control points span at most PIECE_SIZE pixels
+    private void addCubic(final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3, final int LEVEL) {
+        double spanX = Math.max(Math.max(X0, X1), Math.max(X2, X3)) - Math.min(Math.min(X0, X1), Math.min(X2, X3));
+        double spanY = Math.max(Math.max(Y0, Y1), Math.max(Y2, Y3)) - Math.min(Math.min(Y0, Y1), Math.min(Y2, Y3));
+        if (LEVEL >= MAX_SPLITS || Math.max(spanX, spanY) <= PIECE_SIZE * pixelSize) {
+            addPiece(CUBIC, X0, Y0, X1, Y1, X2, Y2, X3, Y3);
+            return;
+        }
+        double x01  = (X0 + X1) * 0.5,    y01  = (Y0 + Y1) * 0.5;
+        double x12  = (X1 + X2) * 0.5,    y12  = (Y1 + Y2) * 0.5;
+        double x23  = (X2 + X3) * 0.5,    y23  = (Y2 + Y3) * 0.5;
+        double x012 = (x01 + x12) * 0.5,  y012 = (y01 + y12) * 0.5;
+        double x123 = (x12 + x23) * 0.5,  y123 = (y12 + y23) * 0.5;
+        double xm   = (x012 + x123) * 0.5, ym  = (y012 + y123) * 0.5;
+        addCubic(X0, Y0, x01, y01, x012, y012, xm, ym, LEVEL + 1);
+        addCubic(xm, ym, x123, y123, x23, y23, X3, Y3, LEVEL + 1);
+    }
+
+    private void addPiece(final int TYPE, final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3) {
+        if (numPieces == pieceType.length) {
+            pieceType   = Arrays.copyOf(pieceType, numPieces * 2);
+            pieceCoords = Arrays.copyOf(pieceCoords, 8 * numPieces * 2);
+        }
+        int o = 8 * numPieces;
+        pieceType[numPieces++] = (byte) TYPE;
+        pieceCoords[o]     = X0;
+        pieceCoords[o + 1] = Y0;
+        pieceCoords[o + 2] = X1;
+        pieceCoords[o + 3] = Y1;
+        pieceCoords[o + 4] = X2;
+        pieceCoords[o + 5] = Y2;
+        pieceCoords[o + 6] = X3;
+        pieceCoords[o + 7] = Y3;
+    }
+
+    // Rows and columns whose pixel centers lie in the given range, an empty range gives last < first
+    private int firstRow(final double Y) { return (int) Math.max(0, Math.min(height, Math.ceil((Y - minY) / pixelSize - 0.5))); }
+    private int lastRow(final double Y) { return (int) Math.max(-1, Math.min(height - 1, Math.floor((Y - minY) / pixelSize - 0.5))); }
+    private int firstCol(final double X) { return (int) Math.max(0, Math.min(width, Math.ceil((X - minX) / pixelSize - 0.5))); }
+    private int lastCol(final double X) { return (int) Math.max(-1, Math.min(width - 1, Math.floor((X - minX) / pixelSize - 0.5))); }
+
+
+    // ******************** Inner Classes *************************************
+    private interface RowRange {
+        void run(int FROM, int TO);
+    }
+
+    // Splits the rows until at most ROWS_PER_TASK rows are left
+    private static class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RowRange range;
+        private final int      from;
+        private final int      to;
+
+
+        RowTask(final RowRange RANGE, final int FROM, final int TO) {
+            range = RANGE;
+            from  = FROM;
+            to    = TO;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                range.run(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowTask(range, from, mid), new RowTask(range, mid, to));
+            }
+        }
+    }
+}
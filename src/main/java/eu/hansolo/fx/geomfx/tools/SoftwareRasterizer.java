@@ -0,0 +1,709 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.FlatteningPathIterator;
+import eu.hansolo.fx.geomfx.Path.WindingRule;
+import eu.hansolo.fx.geomfx.PathIterator;
+import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.transform.BaseTransform;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+// Scanline rasterizer that fills and strokes shapes into a non premultiplied ARGB surface without a JavaFX toolkit.
+// Anti aliasing uses SUBSAMPLES sub scanlines per pixel row with exact horizontal coverage of the spans.
+public class SoftwareRasterizer {
+    public  static final int    SUBSAMPLES      = 8;
+    public  static final double FLATNESS        = 0.1;
+    public  static final double MITER_LIMIT     = 10.0;
+    public  static final int    DEFAULT_TILE_SIZE = 128;
+    static  final        int    FULL_COVERAGE   = 256;
+    private final int           width;
+    private final int           height;
+    private final int[]         pixels;
+    private final IntBuffer     buffer;
+    private boolean             antiAliasing;
+    // Flattened edges in device space, always oriented from top to bottom
+    int                         numEdges;
+    double[]                    edgeX;
+    double[]                    edgeY0;
+    double[]                    edgeY1;
+    double[]                    edgeSlope;
+    int[]                       edgeDir;
+    double[]                    edgeLeft;
+    double[]                    edgeRight;
+    // Consecutive edge ranges that are painted with one color, used by the tiled renderer
+    int                         numLayers;
+    int[]                       layerEnd;
+    int[]                       layerArgb;
+    WindingRule[]               layerRule;
+    private final Worker        worker;
+    private int                 tileSize;
+    private ThreadLocal<Worker> tileWorkers;
+    private final double[]      polygon;
+    private double[]            points;
+
+
+    // ******************** Constructors **************************************
+    public SoftwareRasterizer(final int WIDTH, final int HEIGHT) {
+        this(new int[WIDTH * HEIGHT], WIDTH, HEIGHT);
+    }
+    public SoftwareRasterizer(final int[] PIXELS, final int WIDTH, final int HEIGHT) {
+        this(PIXELS, null, WIDTH, HEIGHT);
+    }
+    public SoftwareRasterizer(final IntBuffer BUFFER, final int WIDTH, final int HEIGHT) {
+        this(BUFFER.hasArray() && BUFFER.arrayOffset() == 0 ? BUFFER.array() : null, BUFFER.hasArray() && BUFFER.arrayOffset() == 0 ? null : BUFFER, WIDTH, HEIGHT);
+    }
+    private SoftwareRasterizer(final int[] PIXELS, final IntBuffer BUFFER, final int WIDTH, final int HEIGHT) {
+        if (WIDTH <= 0 || HEIGHT <= 0) { throw new IllegalArgumentException("Width and height must be > 0"); }
+        if ((null != PIXELS ? PIXELS.length : BUFFER.capacity()) < WIDTH * HEIGHT) { throw new IllegalArgumentException("Surface is smaller than " + WIDTH + " x " + HEIGHT); }
+        width        = WIDTH;
+        height       = HEIGHT;
+        pixels       = PIXELS;
+        buffer       = BUFFER;
+        antiAliasing = true;
+        edgeX        = new double[64];
+        edgeY0       = new double[64];
+        edgeY1       = new double[64];
+        edgeSlope    = new double[64];
+        edgeDir      = new int[64];
+        edgeLeft     = new double[64];
+        edgeRight    = new double[64];
+        layerEnd     = new int[16];
+        layerArgb    = new int[16];
+        layerRule    = new WindingRule[16];
+        worker       = new Worker(WIDTH);
+        polygon      = new double[8];
+        points       = new double[64];
+        tileSize     = DEFAULT_TILE_SIZE;
+        tileWorkers  = ThreadLocal.withInitial(() -> new Worker(tileSize));
+    }
+
+
+    // ******************** Methods *******************************************
+    public int getWidth() { return width; }
+
+    public int getHeight() { return height; }
+
+    // The backing array or null if the surface is a direct IntBuffer
+    public int[] getPixels() { return pixels; }
+
+    public boolean isAntiAliasing() { return antiAliasing; }
+    public void setAntiAliasing(final boolean ANTI_ALIASING) { antiAliasing = ANTI_ALIASING; }
+
+    public int getTileSize() { return tileSize; }
+    public void setTileSize(final int TILE_SIZE) {
+        if (TILE_SIZE < 8) { throw new IllegalArgumentException("Tile size must be >= 8"); }
+        tileSize    = TILE_SIZE;
+        tileWorkers = ThreadLocal.withInitial(() -> new Worker(TILE_SIZE));
+    }
+
+    public void clear(final int ARGB) {
+        if (null != pixels) {
+            Arrays.fill(pixels, 0, width * height, ARGB);
+        } else {
+            for (int i = 0 ; i < width * height ; i++) { buffer.put(i, ARGB); }
+        }
+    }
+
+    public void fill(final Shape SHAPE) { fill(SHAPE, null); }
+    public void fill(final Shape SHAPE, final BaseTransform TRANSFORM) { fill(SHAPE, TRANSFORM, toArgb(SHAPE.getFill())); }
+    public void fill(final Shape SHAPE, final BaseTransform TRANSFORM, final int ARGB) {
+        resetEdges();
+        WindingRule rule = prepareFill(SHAPE, TRANSFORM);
+        render(rule, ARGB, null, 0, 0, 0, 0);
+    }
+    // Linear gradient from (START_X, START_Y) to (END_X, END_Y) in device space
+    public void fill(final Shape SHAPE, final BaseTransform TRANSFORM, final GradientLookup GRADIENT, final double START_X, final double START_Y, final double END_X, final double END_Y) {
+        resetEdges();
+        WindingRule rule = prepareFill(SHAPE, TRANSFORM);
+        render(rule, 0, GRADIENT, START_X, START_Y, END_X, END_Y);
+    }
+
+    public void stroke(final Shape SHAPE) { stroke(SHAPE, null); }
+    public void stroke(final Shape SHAPE, final BaseTransform TRANSFORM) { stroke(SHAPE, TRANSFORM, toArgb(SHAPE.getStroke())); }
+    public void stroke(final Shape SHAPE, final BaseTransform TRANSFORM, final int ARGB) {
+        resetEdges();
+        prepareStroke(SHAPE, TRANSFORM);
+        render(WindingRule.WIND_NON_ZERO, ARGB, null, 0, 0, 0, 0);
+    }
+    public void stroke(final Shape SHAPE, final BaseTransform TRANSFORM, final GradientLookup GRADIENT, final double START_X, final double START_Y, final double END_X, final double END_Y) {
+        resetEdges();
+        prepareStroke(SHAPE, TRANSFORM);
+        render(WindingRule.WIND_NON_ZERO, 0, GRADIENT, START_X, START_Y, END_X, END_Y);
+    }
+
+    static int toArgb(final Paint PAINT) { return PAINT instanceof Color ? GradientLookup.toArgb((Color) PAINT) : 0xFF000000; }
+
+    private void render(final WindingRule RULE, final int ARGB, final GradientLookup GRADIENT, final double START_X, final double START_Y, final double END_X, final double END_Y) {
+        if (numEdges == 0) { return; }
+        worker.setPaint(ARGB, GRADIENT, START_X, START_Y, END_X, END_Y);
+        worker.rasterize(this, null, numEdges, RULE, 0, 0, width, height);
+    }
+
+    // Writes ARGB with the given coverage (0 - FULL_COVERAGE) over the pixel at INDEX
+    void blend(final int INDEX, final int ARGB, final int COVERAGE) {
+        int srcA = ((ARGB >>> 24) * COVERAGE) >> 8;
+        if (srcA == 0) { return; }
+        if (srcA == 255) {
+            if (null != pixels) { pixels[INDEX] = ARGB; } else { buffer.put(INDEX, ARGB); }
+            return;
+        }
+        int dst  = null != pixels ? pixels[INDEX] : buffer.get(INDEX);
+        int dstA = dst >>> 24;
+        // Source over on non premultiplied colors
+        int dstF = (dstA * (255 - srcA) + 127) / 255;
+        int outA = srcA + dstF;
+        int r    = (((ARGB >> 16) & 0xFF) * srcA + ((dst >> 16) & 0xFF) * dstF) / outA;
+        int g    = (((ARGB >> 8) & 0xFF) * srcA + ((dst >> 8) & 0xFF) * dstF) / outA;
+        int b    = ((ARGB & 0xFF) * srcA + (dst & 0xFF) * dstF) / outA;
+        int out  = (outA << 24) | (r << 16) | (g << 8) | b;
+        if (null != pixels) { pixels[INDEX] = out; } else { buffer.put(INDEX, out); }
+    }
+
+    int getSubsamples() { return antiAliasing ? SUBSAMPLES : 1; }
+
+
+    // ******************** Tiled rendering ***********************************
+    // Fills and strokes the shapes in order like Shape.draw() does, only Color paints are supported
+    public void draw(final List<? extends Shape> SHAPES, final BaseTransform TRANSFORM) {
+        for (Shape shape : SHAPES) {
+            if (shape.getFill() instanceof Color) { fill(shape, TRANSFORM); }
+            if (shape.getStroke() instanceof Color && shape.getLineWidth() > 0) { stroke(shape, TRANSFORM); }
+        }
+    }
+    // Same as draw(SHAPES, TRANSFORM) but the surface is split in tiles that are rasterized in parallel on the given pool.
+    // Every tile is owned by exactly one task which keeps the painting order inside the tile and needs no locking.
+    public void draw(final List<? extends Shape> SHAPES, final BaseTransform TRANSFORM, final ForkJoinPool POOL) {
+        resetEdges();
+        for (Shape shape : SHAPES) {
+            if (shape.getFill() instanceof Color) { addLayer(prepareFill(shape, TRANSFORM), toArgb(shape.getFill())); }
+            if (shape.getStroke() instanceof Color && shape.getLineWidth() > 0) {
+                prepareStroke(shape, TRANSFORM);
+                addLayer(WindingRule.WIND_NON_ZERO, toArgb(shape.getStroke()));
+            }
+        }
+        if (numEdges == 0) { return; }
+
+        // Bin the edges into rows of tiles by their vertical bounds, the lists stay sorted by edge index and so by layer
+        int   rows        = (height + tileSize - 1) / tileSize;
+        int   cols        = (width + tileSize - 1) / tileSize;
+        int[] bandOffsets = new int[rows + 1];
+        for (int e = 0 ; e < numEdges ; e++) {
+            int r0 = getBand(edgeY0[e], rows);
+            int r1 = getBand(edgeY1[e], rows);
+            for (int r = r0 ; r <= r1 ; r++) { bandOffsets[r + 1]++; }
+        }
+        for (int r = 0 ; r < rows ; r++) { bandOffsets[r + 1] += bandOffsets[r]; }
+        int[] bandEdges = new int[bandOffsets[rows]];
+        int[] fill      = Arrays.copyOf(bandOffsets, rows);
+        for (int e = 0 ; e < numEdges ; e++) {
+            int r0 = getBand(edgeY0[e], rows);
+            int r1 = getBand(edgeY1[e], rows);
+            for (int r = r0 ; r <= r1 ; r++) { bandEdges[fill[r]++] = e; }
+        }
+        POOL.invoke(new TileTask(bandOffsets, bandEdges, cols, 0, rows * cols));
+    }
+
+    private int getBand(final double Y, final int ROWS) { return Math.max(0, Math.min(ROWS - 1, (int) Math.floor(Y) / tileSize)); }
+
+    private void renderTile(final int[] BAND_OFFSETS, final int[] BAND_EDGES, final int TILE, final int COLS) {
+        int    row     = TILE / COLS;
+        int    minX    = (TILE % COLS) * tileSize;
+        int    minY    = row * tileSize;
+        int    maxX    = Math.min(width, minX + tileSize);
+        int    maxY    = Math.min(height, minY + tileSize);
+        Worker worker  = tileWorkers.get();
+        int[]  edges   = worker.tileEdges;
+        int    count   = 0;
+        // A layer can only cover the tile if one of its edges reaches into it or lies right of it
+        boolean visible = false;
+        int    layer   = 0;
+        int    end     = BAND_OFFSETS[row + 1];
+        for (int i = BAND_OFFSETS[row] ; i <= end ; i++) {
+            int e = i < end ? BAND_EDGES[i] : numEdges;
+            while (layer < numLayers && e >= layerEnd[layer]) {
+                if (visible && count > 0) {
+                    worker.setPaint(layerArgb[layer], null, 0, 0, 0, 0);
+                    worker.rasterize(this, edges, count, layerRule[layer], minX, minY, maxX, maxY);
+                }
+                count   = 0;
+                visible = false;
+                layer++;
+            }
+            if (i == end) { break; }
+            if (edgeRight[e] > minX) { visible = true; }
+            // Edges to the left of the tile still add to the winding, edges to the right never do
+            if (edgeLeft[e] >= maxX) { continue; }
+            if (count == edges.length) { edges = worker.tileEdges = Arrays.copyOf(edges, count * 2); }
+            edges[count++] = e;
+        }
+    }
+
+
+    // ******************** Edge list *****************************************
+    // The prepare methods append to the current edge list
+    WindingRule prepareFill(final Shape SHAPE, final BaseTransform TRANSFORM) {
+        PathIterator pi     = new FlatteningPathIterator(SHAPE.getPathIterator(TRANSFORM), FLATNESS);
+        double[]     coords = new double[6];
+        double       moveX  = 0, moveY = 0, lastX = 0, lastY = 0;
+        while (!pi.isDone()) {
+            switch (pi.currentSegment(coords)) {
+                case PathIterator.MOVE_TO:
+                    addEdge(lastX, lastY, moveX, moveY, 1);
+                    moveX = lastX = coords[0];
+                    moveY = lastY = coords[1];
+                    break;
+                case PathIterator.LINE_TO:
+                    addEdge(lastX, lastY, coords[0], coords[1], 1);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.CLOSE:
+                    addEdge(lastX, lastY, moveX, moveY, 1);
+                    lastX = moveX;
+                    lastY = moveY;
+                    break;
+            }
+            pi.next();
+        }
+        // Fills close open subpaths implicitly
+        addEdge(lastX, lastY, moveX, moveY, 1);
+        return pi.getWindingRule();
+    }
+
+    // Converts the outline of the stroke into positively oriented polygons that are united by the non zero rule
+    void prepareStroke(final Shape SHAPE, final BaseTransform TRANSFORM) {
+        double         lineWidth = SHAPE.getLineWidth();
+        if (lineWidth <= 0) { return; }
+        // The line width is scaled by the mean scale factor of the transform
+        if (null != TRANSFORM && !TRANSFORM.isIdentity()) { lineWidth *= Math.sqrt(Math.abs(TRANSFORM.getDeterminant())); }
+        double         halfWidth = lineWidth * 0.5;
+        StrokeLineJoin join      = SHAPE.getLineJoin();
+        StrokeLineCap  cap       = SHAPE.getLineCap();
+        PathIterator   pi        = new FlatteningPathIterator(SHAPE.getPathIterator(TRANSFORM), FLATNESS);
+        double[]       coords    = new double[6];
+        int            numPoints = 0;
+        // A segment after a close starts a new subpath at the start of the closed one
+        boolean        afterClose = false;
+        double         startX     = 0, startY = 0;
+        while (!pi.isDone()) {
+            switch (pi.currentSegment(coords)) {
+                case PathIterator.MOVE_TO:
+                    strokeSubpath(numPoints, false, halfWidth, join, cap);
+                    numPoints  = addPoint(0, coords[0], coords[1]);
+                    afterClose = false;
+                    break;
+                case PathIterator.LINE_TO:
+                    if (numPoints == 0 && afterClose) { numPoints = addPoint(0, startX, startY); }
+                    if (numPoints > 0) { numPoints = addPoint(numPoints, coords[0], coords[1]); }
+                    break;
+                case PathIterator.CLOSE:
+                    if (numPoints > 0) {
+                        startX     = points[0];
+                        startY     = points[1];
+                        afterClose = true;
+                    }
+                    strokeSubpath(numPoints, true, halfWidth, join, cap);
+                    numPoints = 0;
+                    break;
+            }
+            pi.next();
+        }
+        strokeSubpath(numPoints, false, halfWidth, join, cap);
+    }
+
+    private int addPoint(final int NUM_POINTS, final double X, final double Y) {
+        // Skip duplicate points, they have no direction
+        if (NUM_POINTS > 0 && points[2 * NUM_POINTS - 2] == X && points[2 * NUM_POINTS - 1] == Y) { return NUM_POINTS; }
+        if (2 * NUM_POINTS + 2 > points.length) { points = Arrays.copyOf(points, points.length * 2); }
+        points[2 * NUM_POINTS]     = X;
+        points[2 * NUM_POINTS + 1] = Y;
+        return NUM_POINTS + 1;
+    }
+
+    private void strokeSubpath(final int NUM_POINTS, final boolean CLOSED, final double HALF_WIDTH, final StrokeLineJoin JOIN, final StrokeLineCap CAP) {
+        if (NUM_POINTS == 0) { return; }
+        int numPoints = NUM_POINTS;
+        if (CLOSED && numPoints > 1 && points[0] == points[2 * numPoints - 2] && points[1] == points[2 * numPoints - 1]) { numPoints--; }
+        if (numPoints == 1) {
+            // Zero length subpaths only show their caps
+            if (CAP == StrokeLineCap.ROUND) {
+                addCircle(points[0], points[1], HALF_WIDTH);
+            } else if (CAP == StrokeLineCap.SQUARE) {
+                addQuad(points[0] - HALF_WIDTH, points[1] - HALF_WIDTH, points[0] + HALF_WIDTH, points[1] - HALF_WIDTH,
+                        points[0] + HALF_WIDTH, points[1] + HALF_WIDTH, points[0] - HALF_WIDTH, points[1] + HALF_WIDTH);
+            }
+            return;
+        }
+        int numSegments = CLOSED ? numPoints : numPoints - 1;
+        for (int i = 0 ; i < numSegments ; i++) {
+            int    j  = (i + 1) % numPoints;
+            double x0 = points[2 * i], y0 = points[2 * i + 1];
+            double x1 = points[2 * j], y1 = points[2 * j + 1];
+            double len = Math.hypot(x1 - x0, y1 - y0);
+            double nx  = -(y1 - y0) / len * HALF_WIDTH;
+            double ny  =  (x1 - x0) / len * HALF_WIDTH;
+            addQuad(x0 + nx, y0 + ny, x1 + nx, y1 + ny, x1 - nx, y1 - ny, x0 - nx, y0 - ny);
+            if (CLOSED || j < numPoints - 1) {
+                int k = (j + 1) % numPoints;
+                addJoin(x0, y0, x1, y1, points[2 * k], points[2 * k + 1], HALF_WIDTH, JOIN);
+            }
+        }
+        if (!CLOSED) {
+            addCap(points[2], points[3], points[0], points[1], HALF_WIDTH, CAP);
+            addCap(points[2 * numPoints - 4], points[2 * numPoints - 3], points[2 * numPoints - 2], points[2 * numPoints - 1], HALF_WIDTH, CAP);
+        }
+    }
+
+    // Join at (X1, Y1) between the segments from (X0, Y0) and to (X2, Y2)
+    private void addJoin(final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double HALF_WIDTH, final StrokeLineJoin JOIN) {
+        if (JOIN == StrokeLineJoin.ROUND) {
+            addCircle(X1, Y1, HALF_WIDTH);
+            return;
+        }
+        double d1x   = X1 - X0, d1y = Y1 - Y0;
+        double d2x   = X2 - X1, d2y = Y2 - Y1;
+        double len1  = Math.hypot(d1x, d1y);
+        double len2  = Math.hypot(d2x, d2y);
+        double n1x   = -d1y / len1, n1y = d1x / len1;
+        double n2x   = -d2y / len2, n2y = d2x / len2;
+        double cross = d1x * d2y - d1y * d2x;
+        if (cross == 0) { return; }
+        // The join is needed on the outer side of the turn
+        double side  = cross > 0 ? -HALF_WIDTH : HALF_WIDTH;
+        double ax    = X1 + n1x * side, ay = Y1 + n1y * side;
+        double bx    = X1 + n2x * side, by = Y1 + n2y * side;
+        if (JOIN == StrokeLineJoin.MITER) {
+            double mx  = n1x + n2x, my = n1y + n2y;
+            double mLen = Math.hypot(mx, my);
+            if (mLen > 0) {
+                mx /= mLen;
+                my /= mLen;
+                double cos = mx * n1x + my * n1y;
+                if (cos > 0 && 1.0 / cos <= MITER_LIMIT) {
+                    double dist = side / cos;
+                    addQuad(X1, Y1, ax, ay, X1 + mx * dist, Y1 + my * dist, bx, by);
+                    return;
+                }
+            }
+        }
+        addTriangle(X1, Y1, ax, ay, bx, by);
+    }
+
+    // Cap at (X1, Y1) of the segment coming from (X0, Y0)
+    private void addCap(final double X0, final double Y0, final double X1, final double Y1, final double HALF_WIDTH, final StrokeLineCap CAP) {
+        if (CAP == StrokeLineCap.ROUND) {
+            addCircle(X1, Y1, HALF_WIDTH);
+        } else if (CAP == StrokeLineCap.SQUARE) {
+            double len = Math.hypot(X1 - X0, Y1 - Y0);
+            double dx  = (X1 - X0) / len * HALF_WIDTH;
+            double dy  = (Y1 - Y0) / len * HALF_WIDTH;
+            addQuad(X1 - dy, Y1 + dx, X1 + dx - dy, Y1 + dy + dx, X1 + dx + dy, Y1 + dy - dx, X1 + dy, Y1 - dx);
+        }
+    }
+
+    private void addCircle(final double CX, final double CY, final double RADIUS) {
+        // Enough segments to keep the chord error below the flatness
+        int    steps = RADIUS > FLATNESS ? (int) Math.ceil(Math.PI / Math.acos(1 - FLATNESS / RADIUS)) : 4;
+        steps        = Math.max(8, Math.min(steps, 256));
+        double step  = 2 * Math.PI / steps;
+        double px    = CX + RADIUS, py = CY;
+        for (int i = 1 ; i <= steps ; i++) {
+            double x = CX + RADIUS * Math.cos(i * step);
+            double y = CY + RADIUS * Math.sin(i * step);
+            addEdge(px, py, x, y, 1);
+            px = x;
+            py = y;
+        }
+    }
+
+    private void addTriangle(final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2) {
+        int dir = ((X1 - X0) * (Y2 - Y0) - (Y1 - Y0) * (X2 - X0)) >= 0 ? 1 : -1;
+        addEdge(X0, Y0, X1, Y1, dir);
+        addEdge(X1, Y1, X2, Y2, dir);
+        addEdge(X2, Y2, X0, Y0, dir);
+    }
+
+    private void addQuad(final double X0, final double Y0, final double X1, final double Y1, final double X2, final double Y2, final double X3, final double Y3) {
+        polygon[0] = X0; polygon[1] = Y0;
+        polygon[2] = X1; polygon[3] = Y1;
+        polygon[4] = X2; polygon[5] = Y2;
+        polygon[6] = X3; polygon[7] = Y3;
+        double area = 0;
+        for (int i = 0 ; i < 4 ; i++) {
+            int j = (i + 1) & 3;
+            area += polygon[2 * i] * polygon[2 * j + 1] - polygon[2 * j] * polygon[2 * i + 1];
+        }
+        int dir = area >= 0 ? 1 : -1;
+        for (int i = 0 ; i < 4 ; i++) {
+            int j = (i + 1) & 3;
+            addEdge(polygon[2 * i], polygon[2 * i + 1], polygon[2 * j], polygon[2 * j + 1], dir);
+        }
+    }
+
+    void resetEdges() {
+        numEdges  = 0;
+        numLayers = 0;
+    }
+
+    private void addLayer(final WindingRule RULE, final int ARGB) {
+        if (numLayers > 0 && layerEnd[numLayers - 1] == numEdges) { return; }
+        if (numLayers == layerEnd.length) {
+            layerEnd  = Arrays.copyOf(layerEnd, numLayers * 2);
+            layerArgb = Arrays.copyOf(layerArgb, numLayers * 2);
+            layerRule = Arrays.copyOf(layerRule, numLayers * 2);
+        }
+        layerEnd[numLayers]  = numEdges;
+        layerArgb[numLayers] = ARGB;
+        layerRule[numLayers] = RULE;
+        numLayers++;
+    }
+
+    // DIR flips the winding of the edge, used to give every stroke polygon the same orientation
+    void addEdge(final double X0, final double Y0, final double X1, final double Y1, final int DIR) {
+        if (Y0 == Y1 || Double.isNaN(X0 + Y0 + X1 + Y1)) { return; }
+        if (numEdges == edgeX.length) {
+            int newSize = numEdges * 2;
+            edgeX     = Arrays.copyOf(edgeX, newSize);
+            edgeY0    = Arrays.copyOf(edgeY0, newSize);
+            edgeY1    = Arrays.copyOf(edgeY1, newSize);
+            edgeSlope = Arrays.copyOf(edgeSlope, newSize);
+            edgeDir   = Arrays.copyOf(edgeDir, newSize);
+            edgeLeft  = Arrays.copyOf(edgeLeft, newSize);
+            edgeRight = Arrays.copyOf(edgeRight, newSize);
+        }
+        double slope = (X1 - X0) / (Y1 - Y0);
+        if (Y0 < Y1) {
+            edgeX[numEdges]   = X0;
+            edgeY0[numEdges]  = Y0;
+            edgeY1[numEdges]  = Y1;
+            edgeDir[numEdges] = DIR;
+        } else {
+            edgeX[numEdges]   = X1;
+            edgeY0[numEdges]  = Y1;
+            edgeY1[numEdges]  = Y0;
+            edgeDir[numEdges] = -DIR;
+        }
+        edgeSlope[numEdges] = slope;
+        edgeLeft[numEdges]  = Math.min(X0, X1);
+        edgeRight[numEdges] = Math.max(X0, X1);
+        numEdges++;
+    }
+
+
+    // ******************** Inner Classes *************************************
+    // Splits the range of tiles until single tiles are left
+    private class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int[] bandOffsets;
+        private final int[] bandEdges;
+        private final int   cols;
+        private final int   from;
+        private final int   to;
+
+
+        TileTask(final int[] BAND_OFFSETS, final int[] BAND_EDGES, final int COLS, final int FROM, final int TO) {
+            bandOffsets = BAND_OFFSETS;
+            bandEdges   = BAND_EDGES;
+            cols        = COLS;
+            from        = FROM;
+            to          = TO;
+        }
+
+        @Override protected void compute() {
+            if (to - from == 1) {
+                renderTile(bandOffsets, bandEdges, from, cols);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TileTask(bandOffsets, bandEdges, cols, from, mid), new TileTask(bandOffsets, bandEdges, cols, mid, to));
+            }
+        }
+    }
+
+    // Scratch buffers and the scanline loop, one worker per thread
+    static class Worker {
+        private int[]          cells;
+        private int[]          deltas;
+        private int[]          order;
+        private int[]          active;
+        private double[]       crossX;
+        private int[]          crossDir;
+        private int            argb;
+        private GradientLookup gradient;
+        private double         gradientX;
+        private double         gradientY;
+        private double         gradientDx;
+        private double         gradientDy;
+        int[]                  tileEdges;
+
+
+        Worker(final int WIDTH) {
+            cells    = new int[WIDTH + 2];
+            deltas   = new int[WIDTH + 2];
+            order    = new int[64];
+            active   = new int[64];
+            crossX   = new double[64];
+            crossDir = new int[64];
+            tileEdges = new int[64];
+        }
+
+        void setPaint(final int ARGB, final GradientLookup GRADIENT, final double START_X, final double START_Y, final double END_X, final double END_Y) {
+            argb     = ARGB;
+            gradient = GRADIENT;
+            if (null != GRADIENT) {
+                double dx    = END_X - START_X;
+                double dy    = END_Y - START_Y;
+                double lenSq = dx * dx + dy * dy;
+                gradientX  = START_X;
+                gradientY  = START_Y;
+                gradientDx = lenSq > 0 ? dx / lenSq : 0;
+                gradientDy = lenSq > 0 ? dy / lenSq : 0;
+            }
+        }
+
+        // Rasterizes the given edges (all edges if EDGES is null) clipped to [MIN_X, MAX_X) x [MIN_Y, MAX_Y)
+        void rasterize(final SoftwareRasterizer R, final int[] EDGES, final int NUM_EDGES, final WindingRule RULE, final int MIN_X, final int MIN_Y, final int MAX_X, final int MAX_Y) {
+            if (NUM_EDGES == 0) { return; }
+            if (cells.length < MAX_X - MIN_X + 2) {
+                cells  = new int[MAX_X - MIN_X + 2];
+                deltas = new int[MAX_X - MIN_X + 2];
+            }
+            if (order.length < NUM_EDGES) {
+                order  = new int[NUM_EDGES];
+                active = new int[NUM_EDGES];
+                crossX = new double[NUM_EDGES];
+                crossDir = new int[NUM_EDGES];
+            }
+            double[] ey0 = R.edgeY0;
+            for (int i = 0 ; i < NUM_EDGES ; i++) { order[i] = null == EDGES ? i : EDGES[i]; }
+            sortByY0(order, NUM_EDGES, ey0);
+
+            int    subsamples = R.getSubsamples();
+            int    unit       = FULL_COVERAGE;
+            int    mask       = RULE == WindingRule.WIND_NON_ZERO ? -1 : 1;
+            double minEdgeY   = ey0[order[0]];
+            double maxEdgeY   = Double.NEGATIVE_INFINITY;
+            for (int i = 0 ; i < NUM_EDGES ; i++) { maxEdgeY = Math.max(maxEdgeY, R.edgeY1[order[i]]); }
+            int    firstRow   = Math.max(MIN_Y, (int) Math.floor(minEdgeY));
+            int    lastRow    = Math.min(MAX_Y - 1, (int) Math.ceil(maxEdgeY));
+            int    next       = 0;
+            int    numActive  = 0;
+            int    clipWidth  = MAX_X - MIN_X;
+
+            for (int row = firstRow ; row <= lastRow ; row++) {
+                int rowMin = Integer.MAX_VALUE;
+                int rowMax = Integer.MIN_VALUE;
+                for (int s = 0 ; s < subsamples ; s++) {
+                    double y = row + (s + 0.5) / subsamples;
+                    // Activate new edges and drop finished ones
+                    while (next < NUM_EDGES && ey0[order[next]] <= y) { active[numActive++] = order[next++]; }
+                    int numCross = 0;
+                    for (int i = 0 ; i < numActive ; i++) {
+                        int e = active[i];
+                        if (R.edgeY1[e] <= y) {
+                            active[i--] = active[--numActive];
+                            continue;
+                        }
+                        if (ey0[e] > y) { continue; }
+                        double x   = R.edgeX[e] + (y - ey0[e]) * R.edgeSlope[e];
+                        int    dir = R.edgeDir[e];
+                        // Insertion sort by x, the lists are short
+                        int j = numCross++;
+                        while (j > 0 && crossX[j - 1] > x) {
+                            crossX[j]   = crossX[j - 1];
+                            crossDir[j] = crossDir[j - 1];
+                            j--;
+                        }
+                        crossX[j]   = x;
+                        crossDir[j] = dir;
+                    }
+                    int winding = 0;
+                    for (int i = 0 ; i < numCross ; i++) {
+                        winding += crossDir[i];
+                        if ((winding & mask) == 0) { continue; }
+                        // Edges right of the clip may be left out, the span then runs to the end of the clip
+                        double a = Math.max(crossX[i] - MIN_X, 0);
+                        double b = i < numCross - 1 ? Math.min(crossX[i + 1] - MIN_X, clipWidth) : clipWidth;
+                        if (b <= a) { continue; }
+                        int ia = (int) a;
+                        int ib = (int) b;
+                        if (ia == ib) {
+                            cells[ia] += (int) ((b - a) * unit);
+                        } else {
+                            cells[ia]      += (int) ((ia + 1 - a) * unit);
+                            deltas[ia + 1] += unit;
+                            deltas[ib]     -= unit;
+                            cells[ib]      += (int) ((b - ib) * unit);
+                        }
+                        if (ia < rowMin) { rowMin = ia; }
+                        if (ib > rowMax) { rowMax = ib; }
+                    }
+                }
+                if (rowMin <= rowMax) { flushRow(R, row, MIN_X, rowMin, Math.min(rowMax, clipWidth - 1), subsamples); }
+                if (rowMax >= 0 && rowMax >= rowMin) {
+                    Arrays.fill(cells, rowMin, Math.min(rowMax + 2, cells.length), 0);
+                    Arrays.fill(deltas, rowMin, Math.min(rowMax + 2, deltas.length), 0);
+                }
+                if (next >= NUM_EDGES && numActive == 0) { break; }
+            }
+        }
+
+        private void flushRow(final SoftwareRasterizer R, final int ROW, final int MIN_X, final int FROM, final int TO, final int SUBSAMPLES) {
+            int     running     = 0;
+            int     index       = ROW * R.width + MIN_X + FROM;
+            boolean aa          = SUBSAMPLES > 1;
+            double  fraction    = 0;
+            if (null != gradient) { fraction = (MIN_X + FROM + 0.5 - gradientX) * gradientDx + (ROW + 0.5 - gradientY) * gradientDy; }
+            for (int x = FROM ; x <= TO ; x++, index++) {
+                running += deltas[x];
+                int coverage = (running + cells[x]) / SUBSAMPLES;
+                if (!aa) { coverage = coverage >= FULL_COVERAGE / 2 ? FULL_COVERAGE : 0; }
+                if (coverage > 0) {
+                    int color = null == gradient ? argb : gradient.getArgbAt(fraction);
+                    R.blend(index, color, Math.min(coverage, FULL_COVERAGE));
+                }
+                fraction += gradientDx;
+            }
+        }
+
+        // Shell sort of the edge indices by their top y
+        private static void sortByY0(final int[] ORDER, final int COUNT, final double[] Y0) {
+            for (int gap = COUNT / 2 ; gap > 0 ; gap /= 2) {
+                for (int i = gap ; i < COUNT ; i++) {
+                    int    e = ORDER[i];
+                    double y = Y0[e];
+                    int    j = i;
+                    while (j >= gap && Y0[ORDER[j - gap]] > y) {
+                        ORDER[j] = ORDER[j - gap];
+                        j -= gap;
+                    }
+                    ORDER[j] = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.RectBounds;
+import eu.hansolo.fx.geomfx.Shape;
+
+import java.util.Arrays;
+
+
+// Uniform grid over the bounds of shapes that change every frame. Cells are hashed into a fixed number of buckets and
+// every bucket is a doubly linked list of entries in int arrays, so add, move and remove only touch the cells a shape
+// covers. Shapes that cover more than MAX_CELLS_PER_SHAPE cells are kept in one extra list that every query scans.
+// Query methods return the number of hits and write at most RESULT.length ids. Not thread safe.
+public class SpatialHash {
+    public  static final int DEFAULT_NUM_BUCKETS = 4096;
+    public  static final int MAX_CELLS_PER_SHAPE = 16;
+    private static final int INITIAL_CAPACITY    = 64;
+    private static final int NONE                = -1;
+    private final double     cellSize;
+    private final int        bucketMask;
+    private final int        largeBucket;
+    private final int[]      bucketHead;
+    // Per shape id
+    private Shape[]          shapes;
+    private double[]         shapeMinX;
+    private double[]         shapeMinY;
+    private double[]         shapeMaxX;
+    private double[]         shapeMaxY;
+    private int[]            shapeCellMinX;
+    private int[]            shapeCellMinY;
+    private int[]            shapeCellMaxX;
+    private int[]            shapeCellMaxY;
+    private int[]            shapeFirstEntry;
+    private int[]            shapeStamp;
+    private int              numIds;
+    private int              freeId;
+    private int              size;
+    // Per entry, one entry per shape and covered cell
+    private int[]            entryShape;
+    private int[]            entryBucket;
+    private int[]            entryNext;
+    private int[]            entryPrev;
+    private int[]            entryNextOfShape;
+    private int              numEntries;
+    private int              freeEntry;
+    private int              stamp;
+
+
+    // ******************** Constructors **************************************
+    public SpatialHash(final double CELL_SIZE) {
+        this(CELL_SIZE, DEFAULT_NUM_BUCKETS);
+    }
+    public SpatialHash(final double CELL_SIZE, final int NUM_BUCKETS) {
+        if (CELL_SIZE <= 0) { throw new IllegalArgumentException("Cell size must be > 0"); }
+        if (NUM_BUCKETS <= 0) { throw new IllegalArgumentException("Number of buckets must be > 0"); }
+        cellSize    = CELL_SIZE;
+        int buckets = Integer.highestOneBit(NUM_BUCKETS);
+        if (buckets < NUM_BUCKETS) { buckets <<= 1; }
+        bucketMask  = buckets - 1;
+        largeBucket = buckets;
+        bucketHead  = new int[buckets + 1];
+        shapes      = new Shape[INITIAL_CAPACITY];
+        growIds(INITIAL_CAPACITY);
+        growEntries(INITIAL_CAPACITY);
+        clear();
+    }
+
+
+    // ******************** Methods *******************************************
+    public double getCellSize() { return cellSize; }
+
+    public int size() { return size; }
+
+    public Shape getShape(final int ID) { return shapes[ID]; }
+
+    public void clear() {
+        Arrays.fill(bucketHead, NONE);
+        Arrays.fill(shapes, null);
+        numIds     = 0;
+        freeId     = NONE;
+        size       = 0;
+        numEntries = 0;
+        freeEntry  = NONE;
+    }
+
+    // Returns the id of the shape, ids of removed shapes are reused
+    public int add(final Shape SHAPE) {
+        int id;
+        if (freeId != NONE) {
+            id     = freeId;
+            freeId = shapeFirstEntry[id];
+        } else {
+            if (numIds == shapes.length) {
+                shapes = Arrays.copyOf(shapes, numIds * 2);
+                growIds(numIds * 2);
+            }
+            id = numIds++;
+        }
+        shapes[id]          = SHAPE;
+        shapeFirstEntry[id] = NONE;
+        shapeStamp[id]      = 0;
+        size++;
+        setBounds(id, SHAPE.getBounds());
+        insertEntries(id);
+        return id;
+    }
+
+    // Call after the shape with the given id changed, only the cells that differ are touched
+    public void move(final int ID) {
+        checkId(ID);
+        RectBounds bounds   = shapes[ID].getBounds();
+        int        cellMinX = cell(bounds.getMinX());
+        int        cellMinY = cell(bounds.getMinY());
+        int        cellMaxX = cell(bounds.getMaxX());
+        int        cellMaxY = cell(bounds.getMaxY());
+        if (cellMinX == shapeCellMinX[ID] && cellMinY == shapeCellMinY[ID] && cellMaxX == shapeCellMaxX[ID] && cellMaxY == shapeCellMaxY[ID]) {
+            shapeMinX[ID] = bounds.getMinX();
+            shapeMinY[ID] = bounds.getMinY();
+            shapeMaxX[ID] = bounds.getMaxX();
+            shapeMaxY[ID] = bounds.getMaxY();
+            return;
+        }
+        removeEntries(ID);
+        setBounds(ID, bounds);
+        insertEntries(ID);
+    }
+
+    public void remove(final int ID) {
+        checkId(ID);
+        removeEntries(ID);
+        shapes[ID]          = null;
+        shapeFirstEntry[ID] = freeId;
+        freeId              = ID;
+        size--;
+    }
+
+    // Ids of all shapes whose bounds overlap the given rectangle
+    public int query(final double X, final double Y, final double WIDTH, final double HEIGHT, final int[] RESULT) {
+        return search(X, Y, X + WIDTH, Y + HEIGHT, RESULT, null);
+    }
+    public int query(final RectBounds BOUNDS, final int[] RESULT) {
+        return search(BOUNDS.getMinX(), BOUNDS.getMinY(), BOUNDS.getMaxX(), BOUNDS.getMaxY(), RESULT, null);
+    }
+    // Ids of all shapes whose bounds contain the given point
+    public int query(final double X, final double Y, final int[] RESULT) { return search(X, Y, X, Y, RESULT, null); }
+
+    // Same as the bounds queries but only returns the shapes that pass the exact Shape.intersects() test
+    public int getIntersecting(final double X, final double Y, final double WIDTH, final double HEIGHT, final int[] RESULT) {
+        return search(X, Y, X + WIDTH, Y + HEIGHT, RESULT, Refinement.INTERSECTS);
+    }
+    // Shapes that pass the exact Shape.contains() test, i.e. the candidates for picking
+    public int getContaining(final double X, final double Y, final int[] RESULT) {
+        return search(X, Y, X, Y, RESULT, Refinement.CONTAINS);
+    }
+
+    private int search(final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final int[] RESULT, final Refinement REFINEMENT) {
+        if (size == 0) { return 0; }
+        if (++stamp == 0) {
+            Arrays.fill(shapeStamp, 0, numIds, 0);
+            stamp = 1;
+        }
+        int  hits     = scanBucket(largeBucket, MIN_X, MIN_Y, MAX_X, MAX_Y, RESULT, REFINEMENT, 0);
+        int  cellMinX = cell(MIN_X);
+        int  cellMinY = cell(MIN_Y);
+        int  cellMaxX = cell(MAX_X);
+        int  cellMaxY = cell(MAX_Y);
+        long numCells = ((long) cellMaxX - cellMinX + 1) * ((long) cellMaxY - cellMinY + 1);
+        if (numCells > largeBucket) {
+            // Visiting every bucket once is cheaper than hashing more cells than there are buckets
+            for (int bucket = 0 ; bucket < largeBucket ; bucket++) {
+                hits = scanBucket(bucket, MIN_X, MIN_Y, MAX_X, MAX_Y, RESULT, REFINEMENT, hits);
+            }
+        } else {
+            for (int cy = cellMinY ; cy <= cellMaxY ; cy++) {
+                for (int cx = cellMinX ; cx <= cellMaxX ; cx++) {
+                    hits = scanBucket(bucket(cx, cy), MIN_X, MIN_Y, MAX_X, MAX_Y, RESULT, REFINEMENT, hits);
+                }
+            }
+        }
+        return hits;
+    }
+
+    private int scanBucket(final int BUCKET, final double MIN_X, final double MIN_Y, final double MAX_X, final double MAX_Y, final int[] RESULT, final Refinement REFINEMENT, int hits) {
+        for (int entry = bucketHead[BUCKET] ; entry != NONE ; entry = entryNext[entry]) {
+            // Buckets are shared by several cells, so the bounds test also drops entries of other cells
+            int id = entryShape[entry];
+            if (shapeStamp[id] == stamp) { continue; }
+            if (shapeMaxX[id] < MIN_X || shapeMinX[id] > MAX_X || shapeMaxY[id] < MIN_Y || shapeMinY[id] > MAX_Y) { continue; }
+            shapeStamp[id] = stamp;
+            if (null != REFINEMENT) {
+                boolean hit = Refinement.CONTAINS == REFINEMENT ? shapes[id].contains(MIN_X, MIN_Y) : shapes[id].intersects(MIN_X, MIN_Y, MAX_X - MIN_X, MAX_Y - MIN_Y);
+                if (!hit) { continue; }
+            }
+            if (null != RESULT && hits < RESULT.length) { RESULT[hits] = id; }
+            hits++;
+        }
+        return hits;
+    }
+
+    private void setBounds(final int ID, final RectBounds BOUNDS) {
+        shapeMinX[ID]     = BOUNDS.getMinX();
+        shapeMinY[ID]     = BOUNDS.getMinY();
+        shapeMaxX[ID]     = BOUNDS.getMaxX();
+        shapeMaxY[ID]     = BOUNDS.getMaxY();
+        shapeCellMinX[ID] = cell(shapeMinX[ID]);
+        shapeCellMinY[ID] = cell(shapeMinY[ID]);
+        shapeCellMaxX[ID] = cell(shapeMaxX[ID]);
+        shapeCellMaxY[ID] = cell(shapeMaxY[ID]);
+    }
+
+    private void insertEntries(final int ID) {
+        int  cellMinX = shapeCellMinX[ID];
+        int  cellMinY = shapeCellMinY[ID];
+        int  cellMaxX = shapeCellMaxX[ID];
+        int  cellMaxY = shapeCellMaxY[ID];
+        long numCells = ((long) cellMaxX - cellMinX + 1) * ((long) cellMaxY - cellMinY + 1);
+        if (numCells > MAX_CELLS_PER_SHAPE || numCells <= 0) {
+            insertEntry(ID, largeBucket);
+            return;
+        }
+        for (int cy = cellMinY ; cy <= cellMaxY ; cy++) {
+            for (int cx = cellMinX ; cx <= cellMaxX ; cx++) { insertEntry(ID, bucket(cx, cy)); }
+        }
+    }
+
+    private void insertEntry(final int ID, final int BUCKET) {
+        int entry;
+        if (freeEntry != NONE) {
+            entry     = freeEntry;
+            freeEntry = entryNext[entry];
+        } else {
+            if (numEntries == entryShape.length) { growEntries(numEntries * 2); }
+            entry = numEntries++;
+        }
+        int head = bucketHead[BUCKET];
+        entryShape[entry]       = ID;
+        entryBucket[entry]      = BUCKET;
+        entryPrev[entry]        = NONE;
+        entryNext[entry]        = head;
+        if (head != NONE) { entryPrev[head] = entry; }
+        bucketHead[BUCKET]      = entry;
+        entryNextOfShape[entry] = shapeFirstEntry[ID];
+        shapeFirstEntry[ID]     = entry;
+    }
+
+    private void removeEntries(final int ID) {
+        int entry = shapeFirstEntry[ID];
+        while (entry != NONE) {
+            int next = entryNext[entry];
+            int prev = entryPrev[entry];
+            if (prev != NONE) {
+                entryNext[prev] = next;
+            } else {
+                bucketHead[entryBucket[entry]] = next;
+            }
+            if (next != NONE) { entryPrev[next] = prev; }
+            int nextOfShape  = entryNextOfShape[entry];
+            entryNext[entry] = freeEntry;
+            freeEntry        = entry;
+            entry            = nextOfShape;
+        }
+        shapeFirstEntry[ID] = NONE;
+    }
+
+    private int cell(final double VALUE) { return (int) Math.floor(VALUE / cellSize); }
+
+    private int bucket(final int CELL_X, final int CELL_Y) { return ((CELL_X * 73856093) ^ (CELL_Y * 19349663)) & bucketMask; }
+
+    private void checkId(final int ID) {
+        if (ID < 0 || ID >= numIds || null == shapes[ID]) { throw new IllegalArgumentException("Unknown shape id " + ID); }
+    }
+
+    private void growIds(final int CAPACITY) {
+        shapeMinX       = null == shapeMinX ? new double[CAPACITY] : Arrays.copyOf(shapeMinX, CAPACITY);
+        shapeMinY       = null == shapeMinY ? new double[CAPACITY] : Arrays.copyOf(shapeMinY, CAPACITY);
+        shapeMaxX       = null == shapeMaxX ? new double[CAPACITY] : Arrays.copyOf(shapeMaxX, CAPACITY);
+        shapeMaxY       = null == shapeMaxY ? new double[CAPACITY] : Arrays.copyOf(shapeMaxY, CAPACITY);
+        shapeCellMinX   = null == shapeCellMinX ? new int[CAPACITY] : Arrays.copyOf(shapeCellMinX, CAPACITY);
+        shapeCellMinY   = null == shapeCellMinY ? new int[CAPACITY] : Arrays.copyOf(shapeCellMinY, CAPACITY);
+        shapeCellMaxX   = null == shapeCellMaxX ? new int[CAPACITY] : Arrays.copyOf(shapeCellMaxX, CAPACITY);
+        shapeCellMaxY   = null == shapeCellMaxY ? new int[CAPACITY] : Arrays.copyOf(shapeCellMaxY, CAPACITY);
+        shapeFirstEntry = null == shapeFirstEntry ? new int[CAPACITY] : Arrays.copyOf(shapeFirstEntry, CAPACITY);
+        shapeStamp      = null == shapeStamp ? new int[CAPACITY] : Arrays.copyOf(shapeStamp, CAPACITY);
+    }
+
+    private void growEntries(final int CAPACITY) {
+        entryShape       = null == entryShape ? new int[CAPACITY] : Arrays.copyOf(entryShape, CAPACITY);
+        entryBucket      = null == entryBucket ? new int[CAPACITY] : Arrays.copyOf(entryBucket, CAPACITY);
+        entryNext        = null == entryNext ? new int[CAPACITY] : Arrays.copyOf(entryNext, CAPACITY);
+        entryPrev        = null == entryPrev ? new int[CAPACITY] : Arrays.copyOf(entryPrev, CAPACITY);
+        entryNextOfShape = null == entryNextOfShape ? new int[CAPACITY] : Arrays.copyOf(entryNextOfShape, CAPACITY);
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private enum Refinement { INTERSECTS, CONTAINS }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.tools;
+
+import eu.hansolo.fx.geomfx.Shape;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+import java.util.Arrays;
+
+
+// Converts a gradient stroke into a triangle mesh with x/y float vertices, triangle indices and one ARGB color per vertex.
+// The arrays are reused by following calls and are only valid up to getNumVertices() and getNumIndices().
+// They map directly to the points and faces of a TriangleMesh or to vertex buffers of a web client.
+public class StrokeTessellator {
+    public  static final double DEFAULT_SPACING = 2.0;
+    public  static final double MITER_LIMIT     = 10.0;
+    // Tangents that differ less than this (cosine) are treated as a smooth continuation without a join
+    private static final double SMOOTH_COS      = 0.9999;
+    private static final double ROUND_STEP      = Math.PI / 16;
+    private final PathTool      pathTool;
+    private final Point         point;
+    private final Point         tangent;
+    private float[]             vertices;
+    private int[]               colors;
+    private int[]               indices;
+    private int                 numVertices;
+    private int                 numIndices;
+    // State of the subpath that is currently tessellated
+    private double              halfWidth;
+    private StrokeLineJoin      join;
+    private StrokeLineCap       cap;
+    private GradientLookup      gradient;
+    private double              pathLength;
+    private int                 firstLeft;
+    private double              firstX, firstY, firstTx, firstTy;
+    private int                 firstArgb;
+    private int                 lastLeft;
+    private double              lastX, lastY, lastTx, lastTy;
+    private int                 lastArgb;
+
+
+    // ******************** Constructors **************************************
+    public StrokeTessellator() {
+        pathTool = new PathTool(null);
+        point    = new Point();
+        tangent  = new Point();
+        vertices = new float[256];
+        colors   = new int[128];
+        indices  = new int[384];
+    }
+
+
+    // ******************** Methods *******************************************
+    public float[] getVertices() { return vertices; }
+
+    public int[] getColors() { return colors; }
+
+    public int[] getIndices() { return indices; }
+
+    public int getNumVertices() { return numVertices; }
+
+    public int getNumIndices() { return numIndices; }
+
+    public int getNumTriangles() { return numIndices / 3; }
+
+    public void clear() {
+        numVertices = 0;
+        numIndices  = 0;
+    }
+
+    public int tessellate(final Shape SHAPE, final GradientLookup GRADIENT) {
+        return tessellate(SHAPE, SHAPE.getLineWidth(), SHAPE.getLineJoin(), SHAPE.getLineCap(), GRADIENT, DEFAULT_SPACING);
+    }
+    // Walks the arc length parametrization once and emits a vertex pair every SPACING units and at every segment end.
+    // The color of a vertex is taken from the gradient at its arc length relative to the length of the whole path.
+    // Returns the number of triangles
+    public int tessellate(final Shape SHAPE, final double LINE_WIDTH, final StrokeLineJoin JOIN, final StrokeLineCap CAP, final GradientLookup GRADIENT, final double SPACING) {
+        if (SPACING <= 0) { throw new IllegalArgumentException("Spacing must be > 0"); }
+        clear();
+        pathTool.setPath(SHAPE);
+        int segments = pathTool.getNumSegments();
+        pathLength   = pathTool.getLengthOfPath();
+        halfWidth    = LINE_WIDTH * 0.5;
+        join         = null == JOIN ? StrokeLineJoin.MITER : JOIN;
+        cap          = null == CAP ? StrokeLineCap.SQUARE : CAP;
+        gradient     = GRADIENT;
+        if (segments == 0 || halfWidth <= 0) { return 0; }
+
+        double   maxError  = pathTool.getMaxError();
+        double   position  = 0;
+        boolean  started   = false;
+        for (int i = 0 ; i < segments ; i++) {
+            byte flags = pathTool.segmentFlags[i];
+            if (i > 0 && ((flags & PathTool.FLAG_MOVE) != 0 || (pathTool.segmentFlags[i - 1] & PathTool.FLAG_CLOSE) != 0)) {
+                endSubpath(i - 1, started);
+                started = false;
+            }
+            AbstractSegment segment       = pathTool.getSegment(i);
+            double          segmentStart  = pathTool.getSegmentStartLength(i);
+            double          segmentLength = pathTool.segmentLengths[i] - segmentStart;
+            if (segmentLength <= 0) {
+                if (!started && (i + 1 == segments || (pathTool.segmentFlags[i + 1] & PathTool.FLAG_MOVE) != 0 || (flags & PathTool.FLAG_CLOSE) != 0)) {
+                    // Zero length subpaths only show their caps
+                    segment.eval(0, point);
+                    addDot(point.x, point.y, getArgb(segmentStart));
+                }
+                continue;
+            }
+
+            // Start of the segment
+            getTangent(segment, 0);
+            segment.eval(0, point);
+            int argb = getArgb(segmentStart);
+            if (!started) {
+                int left  = addPair(point.x, point.y, tangent.x, tangent.y, argb);
+                firstLeft = left;
+                firstX    = point.x;
+                firstY    = point.y;
+                firstTx   = tangent.x;
+                firstTy   = tangent.y;
+                firstArgb = argb;
+                setLast(left, point.x, point.y, tangent.x, tangent.y, argb);
+                started   = true;
+            } else if (lastTx * tangent.x + lastTy * tangent.y < SMOOTH_COS) {
+                int left = addPair(point.x, point.y, tangent.x, tangent.y, argb);
+                addJoin(lastLeft, lastTx, lastTy, left, tangent.x, tangent.y, point.x, point.y, argb);
+                setLast(left, point.x, point.y, tangent.x, tangent.y, argb);
+            }
+
+            // Samples at multiples of the spacing along the whole path, the segment end is always added
+            double t       = 0;
+            double tLength = 0;
+            while (position <= segmentStart) { position += SPACING; }
+            for (;;) {
+                boolean atEnd = position >= segmentStart + segmentLength;
+                double  at    = atEnd ? segmentStart + segmentLength : position;
+                t       = atEnd ? 1.0 : segment.advance(t, at - segmentStart - tLength, maxError);
+                tLength = at - segmentStart;
+                segment.eval(t, point);
+                getTangent(segment, t);
+                argb = getArgb(at);
+                int left = addPair(point.x, point.y, tangent.x, tangent.y, argb);
+                addQuad(lastLeft, left);
+                setLast(left, point.x, point.y, tangent.x, tangent.y, argb);
+                if (atEnd) { break; }
+                position += SPACING;
+            }
+        }
+        endSubpath(segments - 1, started);
+        return numIndices / 3;
+    }
+
+    private void endSubpath(final int LAST_SEGMENT, final boolean STARTED) {
+        if (!STARTED) { return; }
+        if ((pathTool.segmentFlags[LAST_SEGMENT] & PathTool.FLAG_CLOSE) != 0) {
+            if (lastTx * firstTx + lastTy * firstTy < SMOOTH_COS) {
+                addJoin(lastLeft, lastTx, lastTy, firstLeft, firstTx, firstTy, firstX, firstY, lastArgb);
+            }
+        } else {
+            addCap(firstLeft, firstX, firstY, -firstTx, -firstTy, firstArgb, false);
+            addCap(lastLeft, lastX, lastY, lastTx, lastTy, lastArgb, true);
+        }
+    }
+
+    private void setLast(final int LEFT, final double X, final double Y, final double TX, final double TY, final int ARGB) {
+        lastLeft = LEFT;
+        lastX    = X;
+        lastY    = Y;
+        lastTx   = TX;
+        lastTy   = TY;
+        lastArgb = ARGB;
+    }
+
+    private int getArgb(final double LENGTH) { return gradient.getArgbAt(pathLength > 0 ? LENGTH / pathLength : 0); }
+
+    // Unit tangent in the tangent point, falls back to a finite difference where the derivative vanishes
+    private void getTangent(final AbstractSegment SEGMENT, final double T) {
+        SEGMENT.evalDt(T, tangent);
+        double len = Math.hypot(tangent.x, tangent.y);
+        if (len < 1e-9) {
+            SEGMENT.eval(Math.max(0, T - 1e-3), tangent);
+            double x0 = tangent.x;
+            double y0 = tangent.y;
+            SEGMENT.eval(Math.min(1, T + 1e-3), tangent);
+            tangent.x -= x0;
+            tangent.y -= y0;
+            len = Math.hypot(tangent.x, tangent.y);
+        }
+        if (len > 0) {
+            tangent.x /= len;
+            tangent.y /= len;
+        }
+    }
+
+    // Adds the left (index returned) and the right vertex of the stroke at the given point
+    private int addPair(final double X, final double Y, final double TX, final double TY, final int ARGB) {
+        int left = addVertex(X - TY * halfWidth, Y + TX * halfWidth, ARGB);
+        addVertex(X + TY * halfWidth, Y - TX * halfWidth, ARGB);
+        return left;
+    }
+
+    private int addVertex(final double X, final double Y, final int ARGB) {
+        if (numVertices == colors.length) {
+            vertices = Arrays.copyOf(vertices, numVertices * 4);
+            colors   = Arrays.copyOf(colors, numVertices * 2);
+        }
+        vertices[2 * numVertices]     = (float) X;
+        vertices[2 * numVertices + 1] = (float) Y;
+        colors[numVertices]           = ARGB;
+        return numVertices++;
+    }
+
+    // All triangles get the same orientation so that meshes are not partly removed by back face culling
+    private void addTriangle(final int A, final int B, final int C) {
+        if (numIndices + 3 > indices.length) { indices = Arrays.copyOf(indices, indices.length * 2); }
+        double area = (vertices[2 * B] - vertices[2 * A]) * (vertices[2 * C + 1] - vertices[2 * A + 1]) - (vertices[2 * B + 1] - vertices[2 * A + 1]) * (vertices[2 * C] - vertices[2 * A]);
+        indices[numIndices++] = A;
+        indices[numIndices++] = area < 0 ? C : B;
+        indices[numIndices++] = area < 0 ? B : C;
+    }
+
+    // Two triangles between consecutive vertex pairs
+    private void addQuad(final int LEFT0, final int LEFT1) {
+        addTriangle(LEFT0, LEFT0 + 1, LEFT1);
+        addTriangle(LEFT1, LEFT0 + 1, LEFT1 + 1);
+    }
+
+    // Fills the gap on the outer side of the turn between the pair LEFT0 (tangent T0) and the pair LEFT1 (tangent T1) at (X, Y)
+    private void addJoin(final int LEFT0, final double T0X, final double T0Y, final int LEFT1, final double T1X, final double T1Y, final double X, final double Y, final int ARGB) {
+        double cross = T0X * T1Y - T0Y * T1X;
+        if (cross == 0 && T0X * T1X + T0Y * T1Y > 0) { return; }
+        // The left vertex is the point shifted by the tangent rotated by +90 degrees, turning towards it puts the outer side on the right
+        boolean outerRight = cross > 0;
+        int     outer0     = outerRight ? LEFT0 + 1 : LEFT0;
+        int     outer1     = outerRight ? LEFT1 + 1 : LEFT1;
+        int     center     = addVertex(X, Y, ARGB);
+        if (join == StrokeLineJoin.ROUND) {
+            addArc(center, X, Y, outer0, outer1, outerRight ? 1 : -1, ARGB);
+            return;
+        }
+        if (join == StrokeLineJoin.MITER) {
+            double ox0 = vertices[2 * outer0] - X, oy0 = vertices[2 * outer0 + 1] - Y;
+            double ox1 = vertices[2 * outer1] - X, oy1 = vertices[2 * outer1 + 1] - Y;
+            double mx  = ox0 + ox1, my = oy0 + oy1;
+            double mLen = Math.hypot(mx, my);
+            if (mLen > 0) {
+                double cos = (mx * ox0 + my * oy0) / (mLen * halfWidth);
+                if (cos > 0 && 1.0 / cos <= MITER_LIMIT) {
+                    double dist  = halfWidth / cos / mLen;
+                    int    miter = addVertex(X + mx * dist, Y + my * dist, ARGB);
+                    addTriangle(center, outer0, miter);
+                    addTriangle(center, miter, outer1);
+                    return;
+                }
+            }
+        }
+        addTriangle(center, outer0, outer1);
+    }
+
+    // Cap at the end of a stroke going in direction (TX, TY), LEFT is the pair at the end point
+    private void addCap(final int LEFT, final double X, final double Y, final double TX, final double TY, final int ARGB, final boolean AT_END) {
+        if (cap == StrokeLineCap.BUTT) { return; }
+        if (cap == StrokeLineCap.SQUARE) {
+            double ex = TX * halfWidth, ey = TY * halfWidth;
+            int    a  = addVertex(vertices[2 * LEFT] + ex, vertices[2 * LEFT + 1] + ey, ARGB);
+            addVertex(vertices[2 * LEFT + 2] + ex, vertices[2 * LEFT + 3] + ey, ARGB);
+            addQuad(LEFT, a);
+        } else {
+            int center = addVertex(X, Y, ARGB);
+            // Half circle from one side of the stroke around the front to the other
+            addArc(center, X, Y, LEFT, LEFT + 1, AT_END ? -1 : 1, ARGB);
+        }
+    }
+
+    // Triangle fan around CENTER from vertex FROM to vertex TO, DIR selects the direction of rotation
+    private void addArc(final int CENTER, final double X, final double Y, final int FROM, final int TO, final int DIR, final int ARGB) {
+        double a0    = Math.atan2(vertices[2 * FROM + 1] - Y, vertices[2 * FROM] - X);
+        double a1    = Math.atan2(vertices[2 * TO + 1] - Y, vertices[2 * TO] - X);
+        double sweep = a1 - a0;
+        if (DIR > 0) { while (sweep < 0) { sweep += 2 * Math.PI; } } else { while (sweep > 0) { sweep -= 2 * Math.PI; } }
+        int    steps = Math.max(1, (int) Math.ceil(Math.abs(sweep) / ROUND_STEP));
+        int    prev  = FROM;
+        for (int i = 1 ; i < steps ; i++) {
+            double angle = a0 + sweep * i / steps;
+            int    next  = addVertex(X + Math.cos(angle) * halfWidth, Y + Math.sin(angle) * halfWidth, ARGB);
+            addTriangle(CENTER, prev, next);
+            prev = next;
+        }
+        addTriangle(CENTER, prev, TO);
+    }
+
+    private void addDot(final double X, final double Y, final int ARGB) {
+        if (cap == StrokeLineCap.BUTT) { return; }
+        if (cap == StrokeLineCap.SQUARE) {
+            int a = addVertex(X - halfWidth, Y - halfWidth, ARGB);
+            addVertex(X - halfWidth, Y + halfWidth, ARGB);
+            int b = addVertex(X + halfWidth, Y - halfWidth, ARGB);
+            addVertex(X + halfWidth, Y + halfWidth, ARGB);
+            addQuad(a, b);
+        } else {
+            int left   = addPair(X, Y, 1, 0, ARGB);
+            int center = addVertex(X, Y, ARGB);
+            addArc(center, X, Y, left, left + 1, 1, ARGB);
+            addArc(center, X, Y, left + 1, left, 1, ARGB);
+        }
+    }
+}
@@ -59,6 +59,7 @@ public class Affine extends AffineBase {
         translate(-anchorx, -anchory);
     }
     public void rotate(double vecx, double vecy) {
+        inverseValid = false;
         if (vecy == 0.0) {
             if (vecx < 0.0) { rotate180(); }
         } else if (vecx == 0.0) {
@@ -127,6 +128,7 @@ public class Affine extends AffineBase {
     }
 
     public void setToTranslation(double tx, double ty) {
+        inverseValid = false;
         mxx = 1.0;
         myx = 0.0;
         mxy = 0.0;
@@ -143,6 +145,7 @@ public class Affine extends AffineBase {
     }
 
     public void setToRotation(double theta) {
+        inverseValid = false;
         double sin = Math.sin(theta);
         double cos;
         if (sin == 1.0 || sin == -1.0) {
@@ -172,6 +175,7 @@ public class Affine extends AffineBase {
         myt =  0.0;
     }
     public void setToRotation(double theta, double anchorx, double anchory) {
+        inverseValid = false;
         setToRotation(theta);
         double sin = myx;
         double oneMinusCos = 1.0 - mxx;
@@ -183,6 +187,7 @@ public class Affine extends AffineBase {
         }
     }
     public void setToRotation(double vecx, double vecy) {
+        inverseValid = false;
         double sin, cos;
         if (vecy == 0) {
             sin = 0.0;
@@ -215,6 +220,7 @@ public class Affine extends AffineBase {
         myt =  0.0;
     }
     public void setToRotation(double vecx, double vecy, double anchorx, double anchory) {
+        inverseValid = false;
         setToRotation(vecx, vecy);
         double sin = myx;
         double oneMinusCos = 1.0 - mxx;
@@ -227,6 +233,7 @@ public class Affine extends AffineBase {
     }
 
     public void setToQuadrantRotation(int numquadrants) {
+        inverseValid = false;
         switch (numquadrants & 3) {
             case 0:
                 mxx =  1.0;
@@ -271,6 +278,7 @@ public class Affine extends AffineBase {
         }
     }
     public void setToQuadrantRotation(int numquadrants, double anchorx, double anchory) {
+        inverseValid = false;
         switch (numquadrants & 3) {
             case 0:
                 mxx =  1.0;
@@ -331,6 +339,7 @@ public class Affine extends AffineBase {
     }
 
     public void setToScale(double sx, double sy) {
+        inverseValid = false;
         mxx = sx;
         myx = 0.0;
         mxy = 0.0;
@@ -346,30 +355,18 @@ public class Affine extends AffineBase {
         }
     }
 
+    // A Projective without perspective is copied as the Affine it equals, one with perspective throws an IllegalArgumentException
     public void setTransform(BaseTransform Tx) {
+        inverseValid = false;
         switch (Tx.getDegree()) {
             case IDENTITY : setToIdentity(); break;
             case TRANSLATE: setToTranslation(Tx.getMxt(), Tx.getMyt()); break;
             default       :
-                if (Tx.getType() > TYPE_AFFINE2D_MASK) {
-                    System.out.println(Tx+" is "+Tx.getType());
-                    System.out.print("  "+Tx.getMxx());
-                    System.out.print(", "+Tx.getMxy());
-                    System.out.print(", "+Tx.getMxz());
-                    System.out.print(", "+Tx.getMxt());
-                    System.out.println();
-                    System.out.print("  "+Tx.getMyx());
-                    System.out.print(", "+Tx.getMyy());
-                    System.out.print(", "+Tx.getMyz());
-                    System.out.print(", "+Tx.getMyt());
-                    System.out.println();
-                    System.out.print("  "+Tx.getMzx());
-                    System.out.print(", "+Tx.getMzy());
-                    System.out.print(", "+Tx.getMzz());
-                    System.out.print(", "+Tx.getMzt());
-                    System.out.println();
-                    degreeError(Degree.AFFINE);
+                if (Tx instanceof Projective) {
+                    setTransform(((Projective) Tx).toAffine());
+                    break;
                 }
+                if (Tx.getType() > TYPE_AFFINE2D_MASK) { degreeError(Degree.AFFINE); }
             case AFFINE:
                 this.mxx = Tx.getMxx();
                 this.myx = Tx.getMyx();
@@ -387,12 +384,22 @@ public class Affine extends AffineBase {
         }
     }
 
+    // Same as concatenate() for a Projective
     public void preConcatenate(BaseTransform Tx) {
+        inverseValid = false;
         switch (Tx.getDegree()) {
             case IDENTITY : return;
             case TRANSLATE: translate(Tx.getMxt(), Tx.getMyt());return;
+            case SCALE    :
+                // Tx * this for an axis aligned Tx
+                double sx = Tx.getMxx(), sy = Tx.getMyy();
+                restoreTransform(sx * mxx, sy * myx, sx * mxy, sy * myy, sx * mxt + Tx.getMxt(), sy * myt + Tx.getMyt());
+                return;
             case AFFINE   : break;
-            default       : degreeError(Degree.AFFINE);
+            default       :
+                if (!(Tx instanceof Projective)) { degreeError(Degree.AFFINE); }
+                Tx = ((Projective) Tx).toAffine();
+                break;
         }
         double M0, M1;
         double Txx, Txy, Tyx, Tyy;
@@ -572,23 +579,20 @@ public class Affine extends AffineBase {
     }
 
     public Affine createInverse() throws NonInvertibleTransformException {
-        double det;
         switch (state) {
             default:
                 stateError();
             case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
-                det = mxx * myy - mxy * myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
-                return new Affine(myy / det, -myx / det,
-                                     -mxy / det,  mxx / det,
-                                     (mxy * myt - myy * mxt) / det,
-                                     (myx * mxt - mxx * myt) / det,
+                updateInverse();
+                return new Affine(ixx, iyx,
+                                  ixy, iyy,
+                                  -(ixx * mxt + ixy * myt),
+                                  -(iyx * mxt + iyy * myt),
                                   (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE));
             case (APPLY_SHEAR | APPLY_SCALE):
-                det = mxx * myy - mxy * myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
-                return new Affine(myy / det, -myx / det,
-                                     -mxy / det,  mxx / det,
+                updateInverse();
+                return new Affine(ixx, iyx,
+                                  ixy, iyy,
                                   0.0, 0.0,
                                   (APPLY_SHEAR | APPLY_SCALE));
             case (APPLY_SHEAR | APPLY_TRANSLATE):
@@ -734,16 +738,19 @@ public class Affine extends AffineBase {
         return this;
     }
     @Override public BaseTransform deriveWithConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithConcatenation(tx); }
         concatenate(tx);
         return this;
     }
 
     @Override public BaseTransform deriveWithPreConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithPreConcatenation(tx); }
         preConcatenate(tx);
         return this;
     }
 
     @Override public BaseTransform deriveWithNewTransform(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(tx); }
         setTransform(tx);
         return this;
     }
@@ -17,10 +17,10 @@
 package eu.hansolo.fx.geomfx.transform;
 
 import eu.hansolo.fx.geomfx.BaseBounds;
-import eu.hansolo.fx.geomfx.Path;
 import eu.hansolo.fx.geomfx.RectBounds;
 import eu.hansolo.fx.geomfx.Rect;
 import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.TransformedShape;
 import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
 import eu.hansolo.fx.geomfx.tools.Point;
 
@@ -45,6 +45,12 @@ public abstract class AffineBase extends BaseTransform {
     protected double myt;
     protected transient int state;
     protected transient int type;
+    // Linear part of the inverse, translations leave it unchanged so only mutators of the 2x2 part invalidate it
+    protected transient double  ixx;
+    protected transient double  ixy;
+    protected transient double  iyx;
+    protected transient double  iyy;
+    protected transient boolean inverseValid;
     private static final int rot90conversion[] = {
         /* IDENTITY => */        APPLY_SHEAR,
         /* TRANSLATE (TR) => */  APPLY_SHEAR | APPLY_TRANSLATE,
@@ -59,6 +65,28 @@ public abstract class AffineBase extends BaseTransform {
 
     protected static void stateError() { throw new InternalError("missing case in transform state switch"); }
 
+    protected final void updateInverse() throws NonInvertibleTransformException {
+        if (inverseValid) { return; }
+        double det = mxx * myy - mxy * myx;
+        if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+        ixx =  myy / det;
+        ixy = -mxy / det;
+        iyx = -myx / det;
+        iyy =  mxx / det;
+        inverseValid = true;
+    }
+
+    // The state updateState() sets for the given coefficients
+    static int calculateState(double mxx, double mxy, double mxt, double myx, double myy, double myt) {
+        int state = (mxt == 0.0 && myt == 0.0) ? APPLY_IDENTITY : APPLY_TRANSLATE;
+        if (mxy == 0.0 && myx == 0.0) {
+            if (mxx != 1.0 || myy != 1.0) { state |= APPLY_SCALE; }
+        } else {
+            state |= (mxx == 0.0 && myy == 0.0) ? APPLY_SHEAR : (APPLY_SHEAR | APPLY_SCALE);
+        }
+        return state;
+    }
+
     protected void updateState() {
         if (mxy == 0.0 && myx == 0.0) {
             if (mxx == 1.0 && myy == 1.0) {
@@ -103,7 +131,10 @@ public abstract class AffineBase extends BaseTransform {
         return type;
     }
 
-    protected int calculateType() {
+    protected int calculateType() { return calculateType(state, mxx, mxy, myx, myy); }
+
+    // Static so Projective can get the type of its normalized coefficients without creating an Affine
+    static int calculateType(int state, double mxx, double mxy, double myx, double myy) {
         int ret = TYPE_IDENTITY;
         boolean sgn0, sgn1;
         switch (state & APPLY_2D_MASK) {
@@ -233,6 +264,7 @@ public abstract class AffineBase extends BaseTransform {
     }
     
     public void setToIdentity() {
+        inverseValid = false;
         mxx = myy = 1.0;
         myx = mxy = mxt = myt = 0.0;
         state = APPLY_IDENTITY;
@@ -240,6 +272,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void setTransform(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        inverseValid = false;
         this.mxx = mxx;
         this.myx = myx;
         this.mxy = mxy;
@@ -250,6 +283,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void setToShear(double shx, double shy) {
+        inverseValid = false;
         mxx = 1.0;
         mxy = shx;
         myx = shy;
@@ -324,77 +358,9 @@ public abstract class AffineBase extends BaseTransform {
                 return;
         }
     }
+    // Shares the loops with deltaTransform, which also handles overlapping source and destination ranges
     public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
-        double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
-        switch (state & APPLY_2D_MASK) {
-            default:
-                stateError();
-            case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
-                Mxx = mxx; Mxy = mxy; Mxt = mxt;
-                Myx = myx; Myy = myy; Myt = myt;
-                while (--numPts >= 0) {
-                    double x = srcPts[srcOff++];
-                    double y = srcPts[srcOff++];
-                    dstPts[dstOff++] = (Mxx * x + Mxy * y + Mxt);
-                    dstPts[dstOff++] = (Myx * x + Myy * y + Myt);
-                }
-                return;
-            case (APPLY_SHEAR | APPLY_SCALE):
-                Mxx = mxx; Mxy = mxy;
-                Myx = myx; Myy = myy;
-                while (--numPts >= 0) {
-                    double x = srcPts[srcOff++];
-                    double y = srcPts[srcOff++];
-                    dstPts[dstOff++] = (Mxx * x + Mxy * y);
-                    dstPts[dstOff++] = (Myx * x + Myy * y);
-                }
-                return;
-            case (APPLY_SHEAR | APPLY_TRANSLATE):
-                Mxy = mxy; Mxt = mxt;
-                Myx = myx; Myt = myt;
-                while (--numPts >= 0) {
-                    double x = srcPts[srcOff++];
-                    dstPts[dstOff++] = (Mxy * srcPts[srcOff++] + Mxt);
-                    dstPts[dstOff++] = (Myx * x + Myt);
-                }
-                return;
-            case (APPLY_SHEAR):
-                Mxy = mxy; Myx = myx;
-                while (--numPts >= 0) {
-                    double x = srcPts[srcOff++];
-                    dstPts[dstOff++] = (Mxy * srcPts[srcOff++]);
-                    dstPts[dstOff++] = (Myx * x);
-                }
-                return;
-            case (APPLY_SCALE | APPLY_TRANSLATE):
-                Mxx = mxx; Mxt = mxt;
-                Myy = myy; Myt = myt;
-                while (--numPts >= 0) {
-                    dstPts[dstOff++] = (Mxx * srcPts[srcOff++] + Mxt);
-                    dstPts[dstOff++] = (Myy * srcPts[srcOff++] + Myt);
-                }
-                return;
-            case (APPLY_SCALE):
-                Mxx = mxx; Myy = myy;
-                while (--numPts >= 0) {
-                    dstPts[dstOff++] = (Mxx * srcPts[srcOff++]);
-                    dstPts[dstOff++] = (Myy * srcPts[srcOff++]);
-                }
-                return;
-            case (APPLY_TRANSLATE):
-                Mxt = mxt; Myt = myt;
-                while (--numPts >= 0) {
-                    dstPts[dstOff++] = (srcPts[srcOff++] + Mxt);
-                    dstPts[dstOff++] = (srcPts[srcOff++] + Myt);
-                }
-                return;
-            case (APPLY_IDENTITY):
-                while (--numPts >= 0) {
-                    dstPts[dstOff++] = (srcPts[srcOff++]);
-                    dstPts[dstOff++] = (srcPts[srcOff++]);
-                }
-                return;
-        }
+        doTransform(srcPts, srcOff, dstPts, dstOff, numPts, (this.state & APPLY_2D_MASK));
     }
 
     private BaseBounds transform2DBounds(RectBounds src, RectBounds dst) {
@@ -440,6 +406,7 @@ public abstract class AffineBase extends BaseTransform {
 
     private void doTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts, int thestate) {
         double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
+        PointKernel kernel = PointKernel.INSTANCE;
         if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
             System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
             srcOff = dstOff;
@@ -450,6 +417,10 @@ public abstract class AffineBase extends BaseTransform {
             case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
                 Mxx = mxx; Mxy = mxy; Mxt = mxt;
                 Myx = myx; Myy = myy; Myt = myt;
+                if (null != kernel && numPts >= PointKernel.MIN_POINTS) {
+                    kernel.affine(Mxx, Mxy, Mxt, Myx, Myy, Myt, srcPts, srcOff, dstPts, dstOff, numPts);
+                    return;
+                }
                 while (--numPts >= 0) {
                     double x = srcPts[srcOff++];
                     double y = srcPts[srcOff++];
@@ -487,6 +458,10 @@ public abstract class AffineBase extends BaseTransform {
             case (APPLY_SCALE | APPLY_TRANSLATE):
                 Mxx = mxx; Mxt = mxt;
                 Myy = myy; Myt = myt;
+                if (null != kernel && numPts >= PointKernel.MIN_POINTS) {
+                    kernel.scaleTranslate(Mxx, Mxt, Myy, Myt, srcPts, srcOff, dstPts, dstOff, numPts);
+                    return;
+                }
                 while (--numPts >= 0) {
                     dstPts[dstOff++] = (Mxx * srcPts[srcOff++] + Mxt);
                     dstPts[dstOff++] = (Myy * srcPts[srcOff++] + Myt);
@@ -525,9 +500,8 @@ public abstract class AffineBase extends BaseTransform {
                 x -= mxt;
                 y -= myt;
             case (APPLY_SHEAR | APPLY_SCALE):
-                double det = mxx * myy - mxy * myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
-                ptDst.set(((x * myy - y * mxy) / det), ((y * mxx - x * myx) / det));
+                updateInverse();
+                ptDst.set((x * ixx + y * ixy), (x * iyx + y * iyy));
                 return ptDst;
             case (APPLY_SHEAR | APPLY_TRANSLATE):
                 x -= mxt;
@@ -558,20 +532,14 @@ public abstract class AffineBase extends BaseTransform {
                 stateError();
             case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
             case (APPLY_SHEAR | APPLY_SCALE):
-                double det = mxx * myy - mxy * myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+                updateInverse();
                 double x1 = src.getMinX() - mxt;
                 double y1 = src.getMinY() - myt;
                 double x2 = src.getMaxX() - mxt;
                 double y2 = src.getMaxY() - myt;
-                dst.setBoundsAndSort(((x1 * myy - y1 * mxy) / det),
-                                     ((y1 * mxx - x1 * myx) / det),
-                                     ((x2 * myy - y2 * mxy) / det),
-                                     ((y2 * mxx - x2 * myx) / det));
-                dst.add(((x2 * myy - y1 * mxy) / det),
-                        ((y1 * mxx - x2 * myx) / det));
-                dst.add(((x1 * myy - y2 * mxy) / det),
-                        ((y2 * mxx - x1 * myx) / det));
+                dst.setBoundsAndSort((x1 * ixx + y1 * ixy), (x1 * iyx + y1 * iyy), (x2 * ixx + y2 * ixy), (x2 * iyx + y2 * iyy));
+                dst.add((x2 * ixx + y1 * ixy), (x2 * iyx + y1 * iyy));
+                dst.add((x1 * ixx + y2 * ixy), (x1 * iyx + y2 * iyy));
                 return dst;
             case (APPLY_SHEAR | APPLY_TRANSLATE):
                 if (mxy == 0.0 || myx == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
@@ -641,7 +609,7 @@ public abstract class AffineBase extends BaseTransform {
     }
     public void inverseTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
         double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
-        double det;
+        double Ixx, Ixy, Iyx, Iyy;              // Inverse coefficients
         if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
             System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
             srcOff = dstOff;
@@ -652,25 +620,27 @@ public abstract class AffineBase extends BaseTransform {
             case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
                 Mxx = mxx; Mxy = mxy; Mxt = mxt;
                 Myx = myx; Myy = myy; Myt = myt;
-                det = Mxx * Myy - Mxy * Myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det);  }
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
                 while (--numPts >= 0) {
                     double x = srcPts[srcOff++] - Mxt;
                     double y = srcPts[srcOff++] - Myt;
-                    dstPts[dstOff++] = (x * Myy - y * Mxy) / det;
-                    dstPts[dstOff++] = (y * Mxx - x * Myx) / det;
+                    dstPts[dstOff++] = x * Ixx + y * Ixy;
+                    dstPts[dstOff++] = x * Iyx + y * Iyy;
                 }
                 return;
             case (APPLY_SHEAR | APPLY_SCALE):
                 Mxx = mxx; Mxy = mxy;
                 Myx = myx; Myy = myy;
-                det = Mxx * Myy - Mxy * Myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
                 while (--numPts >= 0) {
                     double x = srcPts[srcOff++];
                     double y = srcPts[srcOff++];
-                    dstPts[dstOff++] = (x * Myy - y * Mxy) / det;
-                    dstPts[dstOff++] = (y * Mxx - x * Myx) / det;
+                    dstPts[dstOff++] = x * Ixx + y * Ixy;
+                    dstPts[dstOff++] = x * Iyx + y * Iyy;
                 }
                 return;
             case (APPLY_SHEAR | APPLY_TRANSLATE):
@@ -696,17 +666,19 @@ public abstract class AffineBase extends BaseTransform {
                 Mxx = mxx; Mxt = mxt;
                 Myy = myy; Myt = myt;
                 if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
                 while (--numPts >= 0) {
-                    dstPts[dstOff++] = (srcPts[srcOff++] - Mxt) / Mxx;
-                    dstPts[dstOff++] = (srcPts[srcOff++] - Myt) / Myy;
+                    dstPts[dstOff++] = (srcPts[srcOff++] - Mxt) * Ixx;
+                    dstPts[dstOff++] = (srcPts[srcOff++] - Myt) * Iyy;
                 }
                 return;
             case (APPLY_SCALE):
                 Mxx = mxx; Myy = myy;
                 if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
                 while (--numPts >= 0) {
-                    dstPts[dstOff++] = srcPts[srcOff++] / Mxx;
-                    dstPts[dstOff++] = srcPts[srcOff++] / Myy;
+                    dstPts[dstOff++] = srcPts[srcOff++] * Ixx;
+                    dstPts[dstOff++] = srcPts[srcOff++] * Iyy;
                 }
                 return;
             case (APPLY_TRANSLATE):
@@ -730,7 +702,8 @@ public abstract class AffineBase extends BaseTransform {
     
     private void doInverseTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts, int thestate) throws NonInvertibleTransformException {
         double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
-        double det;
+        PointKernel kernel = PointKernel.INSTANCE;
+        double Ixx, Ixy, Iyx, Iyy;              // Inverse coefficients
         if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
             System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
             srcOff = dstOff;
@@ -741,25 +714,31 @@ public abstract class AffineBase extends BaseTransform {
             case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
                 Mxx = mxx; Mxy = mxy; Mxt = mxt;
                 Myx = myx; Myy = myy; Myt = myt;
-                det = Mxx * Myy - Mxy * Myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
+                if (null != kernel && numPts >= PointKernel.MIN_POINTS) {
+                    kernel.inverseAffine(Mxt, Myt, Ixx, Ixy, Iyx, Iyy, srcPts, srcOff, dstPts, dstOff, numPts);
+                    return;
+                }
                 while (--numPts >= 0) {
                     double x = srcPts[srcOff++] - Mxt;
                     double y = srcPts[srcOff++] - Myt;
-                    dstPts[dstOff++] = ((x * Myy - y * Mxy) / det);
-                    dstPts[dstOff++] = ((y * Mxx - x * Myx) / det);
+                    dstPts[dstOff++] = (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (x * Iyx + y * Iyy);
                 }
                 return;
             case (APPLY_SHEAR | APPLY_SCALE):
                 Mxx = mxx; Mxy = mxy;
                 Myx = myx; Myy = myy;
-                det = Mxx * Myy - Mxy * Myx;
-                if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
                 while (--numPts >= 0) {
                     double x = srcPts[srcOff++];
                     double y = srcPts[srcOff++];
-                    dstPts[dstOff++] = ((x * Myy - y * Mxy) / det);
-                    dstPts[dstOff++] = ((y * Mxx - x * Myx) / det);
+                    dstPts[dstOff++] = (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (x * Iyx + y * Iyy);
                 }
                 return;
             case (APPLY_SHEAR | APPLY_TRANSLATE):
@@ -785,17 +764,23 @@ public abstract class AffineBase extends BaseTransform {
                 Mxx = mxx; Mxt = mxt;
                 Myy = myy; Myt = myt;
                 if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
+                if (null != kernel && numPts >= PointKernel.MIN_POINTS) {
+                    kernel.inverseScaleTranslate(Mxt, Myt, Ixx, Iyy, srcPts, srcOff, dstPts, dstOff, numPts);
+                    return;
+                }
                 while (--numPts >= 0) {
-                    dstPts[dstOff++] = ((srcPts[srcOff++] - Mxt) / Mxx);
-                    dstPts[dstOff++] = ((srcPts[srcOff++] - Myt) / Myy);
+                    dstPts[dstOff++] = ((srcPts[srcOff++] - Mxt) * Ixx);
+                    dstPts[dstOff++] = ((srcPts[srcOff++] - Myt) * Iyy);
                 }
                 return;
             case (APPLY_SCALE):
                 Mxx = mxx; Myy = myy;
                 if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
                 while (--numPts >= 0) {
-                    dstPts[dstOff++] = (srcPts[srcOff++] / Mxx);
-                    dstPts[dstOff++] = (srcPts[srcOff++] / Myy);
+                    dstPts[dstOff++] = (srcPts[srcOff++] * Ixx);
+                    dstPts[dstOff++] = (srcPts[srcOff++] * Iyy);
                 }
                 return;
             case (APPLY_TRANSLATE):
@@ -813,9 +798,357 @@ public abstract class AffineBase extends BaseTransform {
         }
     }
 
+    // Same state specialized loops as the double[] versions, results are rounded to float
+    public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        doTransform(srcPts, srcOff, dstPts, dstOff, numPts, (this.state & APPLY_2D_MASK));
+    }
+    public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        doTransform(srcPts, srcOff, dstPts, dstOff, numPts, (this.state & APPLY_2D_MASK));
+    }
+
+    public void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        doTransform(srcPts, srcOff, dstPts, dstOff, numPts, (this.state & APPLY_2D_DELTA_MASK));
+    }
+    public void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        doTransform(srcPts, srcOff, dstPts, dstOff, numPts, (this.state & APPLY_2D_DELTA_MASK));
+    }
+
+    public void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        doInverseTransform(srcPts, srcOff, dstPts, dstOff, numPts, state);
+    }
+    public void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        doInverseTransform(srcPts, srcOff, dstPts, dstOff, numPts, state);
+    }
+
+    public void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        doInverseTransform(srcPts, srcOff, dstPts, dstOff, numPts, state & ~APPLY_TRANSLATE);
+    }
+    public void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        doInverseTransform(srcPts, srcOff, dstPts, dstOff, numPts, state & ~APPLY_TRANSLATE);
+    }
+
+    private void doTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, int thestate) {
+        double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        switch (thestate) {
+            default:
+                stateError();
+            case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myy = myy; Myt = myt;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxx * x + Mxy * y + Mxt);
+                    dstPts[dstOff++] = (float) (Myx * x + Myy * y + Myt);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_SCALE):
+                Mxx = mxx; Mxy = mxy;
+                Myx = myx; Myy = myy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxx * x + Mxy * y);
+                    dstPts[dstOff++] = (float) (Myx * x + Myy * y);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_TRANSLATE):
+                Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myt = myt;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxy * srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (Myx * x + Myt);
+                }
+                return;
+            case (APPLY_SHEAR):
+                Mxy = mxy; Myx = myx;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxy * srcPts[srcOff++]);
+                    dstPts[dstOff++] = (float) (Myx * x);
+                }
+                return;
+            case (APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxt = mxt;
+                Myy = myy; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (Mxx * srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (Myy * srcPts[srcOff++] + Myt);
+                }
+                return;
+            case (APPLY_SCALE):
+                Mxx = mxx; Myy = myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (Mxx * srcPts[srcOff++]);
+                    dstPts[dstOff++] = (float) (Myy * srcPts[srcOff++]);
+                }
+                return;
+            case (APPLY_TRANSLATE):
+                Mxt = mxt; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] + Myt);
+                }
+                return;
+            case (APPLY_IDENTITY):
+                if (srcPts != dstPts || srcOff != dstOff) {
+                    System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+                }
+                return;
+        }
+    }
+
+    private void doInverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, int thestate) throws NonInvertibleTransformException {
+        double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
+        double Ixx, Ixy, Iyx, Iyy;              // Inverse coefficients
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        switch (thestate) {
+            default:
+                stateError();
+            case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myy = myy; Myt = myt;
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++] - Mxt;
+                    double y = srcPts[srcOff++] - Myt;
+                    dstPts[dstOff++] = (float) (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (float) (x * Iyx + y * Iyy);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_SCALE):
+                Mxx = mxx; Mxy = mxy;
+                Myx = myx; Myy = myy;
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (float) (x * Iyx + y * Iyy);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_TRANSLATE):
+                Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myt = myt;
+                if (Mxy == 0.0 || Myx == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++] - Mxt;
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Myt) / Myx);
+                    dstPts[dstOff++] = (float) (x / Mxy);
+                }
+                return;
+            case (APPLY_SHEAR):
+                Mxy = mxy; Myx = myx;
+                if (Mxy == 0.0 || Myx == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] / Myx);
+                    dstPts[dstOff++] = (float) (x / Mxy);
+                }
+                return;
+            case (APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxt = mxt;
+                Myy = myy; Myt = myt;
+                if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Mxt) * Ixx);
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Myt) * Iyy);
+                }
+                return;
+            case (APPLY_SCALE):
+                Mxx = mxx; Myy = myy;
+                if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] * Ixx);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] * Iyy);
+                }
+                return;
+            case (APPLY_TRANSLATE):
+                Mxt = mxt; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] - Mxt);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] - Myt);
+                }
+                return;
+            case (APPLY_IDENTITY):
+                if (srcPts != dstPts || srcOff != dstOff) {
+                    System.arraycopy(srcPts, srcOff, dstPts, dstOff,numPts * 2);
+                }
+                return;
+        }
+    }
+
+    private void doTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, int thestate) {
+        double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
+        switch (thestate) {
+            default:
+                stateError();
+            case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myy = myy; Myt = myt;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxx * x + Mxy * y + Mxt);
+                    dstPts[dstOff++] = (float) (Myx * x + Myy * y + Myt);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_SCALE):
+                Mxx = mxx; Mxy = mxy;
+                Myx = myx; Myy = myy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxx * x + Mxy * y);
+                    dstPts[dstOff++] = (float) (Myx * x + Myy * y);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_TRANSLATE):
+                Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myt = myt;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxy * srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (Myx * x + Myt);
+                }
+                return;
+            case (APPLY_SHEAR):
+                Mxy = mxy; Myx = myx;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (Mxy * srcPts[srcOff++]);
+                    dstPts[dstOff++] = (float) (Myx * x);
+                }
+                return;
+            case (APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxt = mxt;
+                Myy = myy; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (Mxx * srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (Myy * srcPts[srcOff++] + Myt);
+                }
+                return;
+            case (APPLY_SCALE):
+                Mxx = mxx; Myy = myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (Mxx * srcPts[srcOff++]);
+                    dstPts[dstOff++] = (float) (Myy * srcPts[srcOff++]);
+                }
+                return;
+            case (APPLY_TRANSLATE):
+                Mxt = mxt; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] + Mxt);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] + Myt);
+                }
+                return;
+            case (APPLY_IDENTITY):
+                for (int i = 0 ; i < numPts * 2 ; i++) { dstPts[dstOff + i] = (float) srcPts[srcOff + i]; }
+                return;
+        }
+    }
+
+    private void doInverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, int thestate) throws NonInvertibleTransformException {
+        double Mxx, Mxy, Mxt, Myx, Myy, Myt;    // For caching
+        double Ixx, Ixy, Iyx, Iyy;              // Inverse coefficients
+        switch (thestate) {
+            default:
+                stateError();
+            case (APPLY_SHEAR | APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myy = myy; Myt = myt;
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++] - Mxt;
+                    double y = srcPts[srcOff++] - Myt;
+                    dstPts[dstOff++] = (float) (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (float) (x * Iyx + y * Iyy);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_SCALE):
+                Mxx = mxx; Mxy = mxy;
+                Myx = myx; Myy = myy;
+                updateInverse();
+                Ixx = ixx; Ixy = ixy;
+                Iyx = iyx; Iyy = iyy;
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    double y = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (x * Ixx + y * Ixy);
+                    dstPts[dstOff++] = (float) (x * Iyx + y * Iyy);
+                }
+                return;
+            case (APPLY_SHEAR | APPLY_TRANSLATE):
+                Mxy = mxy; Mxt = mxt;
+                Myx = myx; Myt = myt;
+                if (Mxy == 0.0 || Myx == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++] - Mxt;
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Myt) / Myx);
+                    dstPts[dstOff++] = (float) (x / Mxy);
+                }
+                return;
+            case (APPLY_SHEAR):
+                Mxy = mxy; Myx = myx;
+                if (Mxy == 0.0 || Myx == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                while (--numPts >= 0) {
+                    double x = srcPts[srcOff++];
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] / Myx);
+                    dstPts[dstOff++] = (float) (x / Mxy);
+                }
+                return;
+            case (APPLY_SCALE | APPLY_TRANSLATE):
+                Mxx = mxx; Mxt = mxt;
+                Myy = myy; Myt = myt;
+                if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Mxt) * Ixx);
+                    dstPts[dstOff++] = (float) ((srcPts[srcOff++] - Myt) * Iyy);
+                }
+                return;
+            case (APPLY_SCALE):
+                Mxx = mxx; Myy = myy;
+                if (Mxx == 0.0 || Myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+                Ixx = 1.0 / Mxx; Iyy = 1.0 / Myy;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] * Ixx);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] * Iyy);
+                }
+                return;
+            case (APPLY_TRANSLATE):
+                Mxt = mxt; Myt = myt;
+                while (--numPts >= 0) {
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] - Mxt);
+                    dstPts[dstOff++] = (float) (srcPts[srcOff++] - Myt);
+                }
+                return;
+            case (APPLY_IDENTITY):
+                for (int i = 0 ; i < numPts * 2 ; i++) { dstPts[dstOff + i] = (float) srcPts[srcOff + i]; }
+                return;
+        }
+    }
+
+
     public Shape createTransformedShape(Shape s) {
         if (s == null) { return null; }
-        return new Path(s, this);
+        return new TransformedShape(s, this);
     }
 
     public void translate(double tx, double ty) {
@@ -889,6 +1222,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     protected final void rotate90() {
+        inverseValid = false;
         double M0 = mxx;
         mxx = mxy;
         mxy = -M0;
@@ -905,6 +1239,7 @@ public abstract class AffineBase extends BaseTransform {
         type = TYPE_UNKNOWN;
     }
     protected final void rotate180() {
+        inverseValid = false;
         mxx = -mxx;
         myy = -myy;
         int oldstate = this.state;
@@ -925,6 +1260,7 @@ public abstract class AffineBase extends BaseTransform {
         type = TYPE_UNKNOWN;
     }
     protected final void rotate270() {
+        inverseValid = false;
         double M0 = mxx;
         mxx = -mxy;
         mxy = M0;
@@ -942,6 +1278,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void rotate(double theta) {
+        inverseValid = false;
         // assert(APPLY_3D was dealt with at a higher level)
         double sin = Math.sin(theta);
         if (sin == 1.0) {
@@ -968,6 +1305,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void scale(double sx, double sy) {
+        inverseValid = false;
         int mystate = this.state;
         // assert(APPLY_3D was dealt with at a higher level)
         switch (mystate) {
@@ -1022,6 +1360,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void shear(double shx, double shy) {
+        inverseValid = false;
         int mystate = this.state;
         // assert(APPLY_3D was dealt with at a higher level)
         switch (mystate) {
@@ -1072,18 +1411,24 @@ public abstract class AffineBase extends BaseTransform {
         }
     }
 
+    // A Projective without perspective is concatenated as the Affine it equals, one with perspective throws an IllegalArgumentException
     public void concatenate(BaseTransform Tx) {
+        inverseValid = false;
         switch (Tx.getDegree()) {
             case IDENTITY:
                 return;
             case TRANSLATE:
                 translate(Tx.getMxt(), Tx.getMyt());
                 return;
+            case SCALE:
+                translate(Tx.getMxt(), Tx.getMyt());
+                scale(Tx.getMxx(), Tx.getMyy());
+                return;
             case AFFINE:
                 break;
             default:
-                degreeError(Degree.AFFINE);
-                if (!(Tx instanceof AffineBase)) { Tx = new Affine(Tx); }
+                if (!(Tx instanceof Projective)) { degreeError(Degree.AFFINE); }
+                Tx = ((Projective) Tx).toAffine();
                 break;
         }
         double M0, M1;
@@ -1271,6 +1616,7 @@ public abstract class AffineBase extends BaseTransform {
     }
 
     public void invert() throws NonInvertibleTransformException {
+        inverseValid = false;
         double Mxx, Mxy, Mxt;
         double Myx, Myy, Myt;
         double det;
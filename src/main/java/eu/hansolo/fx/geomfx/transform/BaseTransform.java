@@ -27,7 +27,7 @@ public abstract class BaseTransform {
     public static final BaseTransform IDENTITY_TRANSFORM = new Identity();
 
     public enum Degree {
-        IDENTITY, TRANSLATE, AFFINE
+        IDENTITY, TRANSLATE, SCALE, AFFINE, PROJECTIVE
     }
 
     protected static final int TYPE_UNKNOWN        = -1;
@@ -43,6 +43,7 @@ public abstract class BaseTransform {
     public static final int TYPE_MASK_ROTATION     = (TYPE_QUADRANT_ROTATION | TYPE_GENERAL_ROTATION);
     public static final int TYPE_GENERAL_TRANSFORM = 32;
     public static final int TYPE_AFFINE_3D         = 128;
+    public static final int TYPE_PROJECTIVE        = 256;
     public static final int TYPE_AFFINE2D_MASK     =
         (TYPE_TRANSLATION |
          TYPE_UNIFORM_SCALE |
@@ -58,10 +59,14 @@ public abstract class BaseTransform {
     }
 
     public static BaseTransform getInstance(BaseTransform tx) {
-        if (tx.isIdentity()) {
+        if (tx.getDegree() == Degree.PROJECTIVE) {
+            return new Projective(tx);
+        } else if (tx.isIdentity()) {
             return IDENTITY_TRANSFORM;
         } else if (tx.isTranslateOrIdentity()) {
             return new Translate(tx);
+        } else if (tx.getMxy() == 0.0 && tx.getMyx() == 0.0) {
+            return ScaleTranslate.getInstance(tx.getMxx(), tx.getMyy(), tx.getMxt(), tx.getMyt());
         } else {
             return new Affine(tx);
         }
@@ -71,6 +76,8 @@ public abstract class BaseTransform {
     public static BaseTransform getInstance(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
         if (mxx == 1.0 && myx == 0.0 && mxy == 0.0 && myy == 1.0) {
             return getTranslateInstance(mxt, myt);
+        } else if (myx == 0.0 && mxy == 0.0) {
+            return ScaleTranslate.getInstance(mxx, myy, mxt, myt);
         } else {
             return new Affine(mxx, myx, mxy, myy, mxt, myt);
         }
@@ -85,7 +92,7 @@ public abstract class BaseTransform {
     }
 
     public static BaseTransform getScaleInstance(double mxx, double myy) {
-        return getInstance(mxx, 0, 0, myy, 0, 0);
+        return Scale.getInstance(mxx, myy);
     }
 
     public static BaseTransform getRotateInstance(double theta, double x, double y) {
@@ -130,6 +137,19 @@ public abstract class BaseTransform {
 
     public abstract void inverseDeltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException;
 
+    // float[] and double[] to float[] variants for vertex buffers
+    public abstract void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts);
+    public abstract void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts);
+
+    public abstract void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts);
+    public abstract void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts);
+
+    public abstract void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException;
+    public abstract void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException;
+
+    public abstract void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException;
+    public abstract void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException;
+
     public abstract BaseBounds transform(BaseBounds bounds, BaseBounds result);
 
     public abstract void transform(Rect rect, Rect result);
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import eu.hansolo.fx.geomfx.Path;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+// Applies one transform to large coordinate arrays or many paths, split into chunks on a ForkJoinPool.
+// Transforms are only read while the chunks run, so the transform must not be modified at the same time.
+public final class BatchTransform {
+    // Below this number of points everything runs in the calling thread
+    public static final int DEFAULT_THRESHOLD = 1 << 15;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+
+    // ******************** Constructors **************************************
+    private BatchTransform() {}
+
+
+    // ******************** Methods *******************************************
+    public static void transform(final BaseTransform TRANSFORM, final double[] SRC_PTS, final int SRC_OFF, final double[] DST_PTS, final int DST_OFF, final int NUM_PTS) {
+        transform(TRANSFORM, SRC_PTS, SRC_OFF, DST_PTS, DST_OFF, NUM_PTS, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+    public static void transform(final BaseTransform TRANSFORM, final double[] SRC_PTS, final int SRC_OFF, final double[] DST_PTS, final int DST_OFF, final int NUM_PTS, final ForkJoinPool POOL, final int THRESHOLD) {
+        if (NUM_PTS <= 0) { return; }
+        // Chunks of overlapping ranges with different offsets would read already transformed points
+        boolean overlapping = SRC_PTS == DST_PTS && SRC_OFF != DST_OFF;
+        if (NUM_PTS <= THRESHOLD || overlapping || POOL.getParallelism() == 1 || TRANSFORM.isIdentity() && SRC_PTS == DST_PTS) {
+            TRANSFORM.transform(SRC_PTS, SRC_OFF, DST_PTS, DST_OFF, NUM_PTS);
+            return;
+        }
+        int chunkSize = Math.max(THRESHOLD / 2, NUM_PTS / (POOL.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        POOL.invoke(new ArrayTask(TRANSFORM, SRC_PTS, SRC_OFF, DST_PTS, DST_OFF, 0, NUM_PTS, chunkSize));
+    }
+
+    // Transforms the paths in place, the work is split by the number of points of the paths. Under perspective
+    // Path.transform() flattens the curves, so the paths get more points than the split is based on.
+    public static void transform(final BaseTransform TRANSFORM, final List<? extends Path> PATHS) {
+        transform(TRANSFORM, PATHS, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+    public static void transform(final BaseTransform TRANSFORM, final List<? extends Path> PATHS, final ForkJoinPool POOL, final int THRESHOLD) {
+        int   numPaths  = PATHS.size();
+        if (numPaths == 0 || TRANSFORM.isIdentity()) { return; }
+        Path[] paths    = PATHS.toArray(new Path[0]);
+        // Prefix sums of the number of points to split the list in ranges of equal work
+        long[] points   = new long[numPaths + 1];
+        for (int i = 0 ; i < numPaths ; i++) { points[i + 1] = points[i] + paths[i].getNumCoords() / 2; }
+        long   total    = points[numPaths];
+        if (total <= THRESHOLD || POOL.getParallelism() == 1) {
+            for (Path path : paths) { path.transform(TRANSFORM); }
+            return;
+        }
+        long chunkSize = Math.max(THRESHOLD / 2, total / (POOL.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        POOL.invoke(new PathTask(TRANSFORM, paths, points, 0, numPaths, chunkSize));
+    }
+
+
+    // ******************** Inner Classes *************************************
+    private static class ArrayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BaseTransform transform;
+        private final double[]      srcPts;
+        private final int           srcOff;
+        private final double[]      dstPts;
+        private final int           dstOff;
+        private final int           from;
+        private final int           to;
+        private final int           chunkSize;
+
+
+        ArrayTask(final BaseTransform TRANSFORM, final double[] SRC_PTS, final int SRC_OFF, final double[] DST_PTS, final int DST_OFF, final int FROM, final int TO, final int CHUNK_SIZE) {
+            transform = TRANSFORM;
+            srcPts    = SRC_PTS;
+            srcOff    = SRC_OFF;
+            dstPts    = DST_PTS;
+            dstOff    = DST_OFF;
+            from      = FROM;
+            to        = TO;
+            chunkSize = CHUNK_SIZE;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= chunkSize) {
+                transform.transform(srcPts, srcOff + 2 * from, dstPts, dstOff + 2 * from, to - from);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ArrayTask(transform, srcPts, srcOff, dstPts, dstOff, from, mid, chunkSize),
+                          new ArrayTask(transform, srcPts, srcOff, dstPts, dstOff, mid, to, chunkSize));
+            }
+        }
+    }
+
+    private static class PathTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BaseTransform transform;
+        private final Path[]        paths;
+        private final long[]        points;
+        private final int           from;
+        private final int           to;
+        private final long          chunkSize;
+
+
+        PathTask(final BaseTransform TRANSFORM, final Path[] PATHS, final long[] POINTS, final int FROM, final int TO, final long CHUNK_SIZE) {
+            transform = TRANSFORM;
+            paths     = PATHS;
+            points    = POINTS;
+            from      = FROM;
+            to        = TO;
+            chunkSize = CHUNK_SIZE;
+        }
+
+        @Override protected void compute() {
+            if (to - from == 1 || points[to] - points[from] <= chunkSize) {
+                for (int i = from ; i < to ; i++) { paths[i].transform(transform); }
+            } else {
+                // Split where half of the points are reached
+                long half = (points[from] + points[to]) / 2;
+                int  lo   = from + 1;
+                int  hi   = to - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (points[mid] < half) { lo = mid + 1; } else { hi = mid; }
+                }
+                invokeAll(new PathTask(transform, paths, points, from, lo, chunkSize), new PathTask(transform, paths, points, lo, to, chunkSize));
+            }
+        }
+    }
+}
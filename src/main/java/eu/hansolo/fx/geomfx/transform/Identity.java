@@ -17,9 +17,9 @@
 package eu.hansolo.fx.geomfx.transform;
 
 import eu.hansolo.fx.geomfx.BaseBounds;
-import eu.hansolo.fx.geomfx.Path;
 import eu.hansolo.fx.geomfx.Rect;
 import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.TransformedShape;
 import eu.hansolo.fx.geomfx.tools.Point;
 
 
@@ -72,6 +72,22 @@ public final class Identity extends BaseTransform {
         if (srcPts != dstPts || srcOff != dstOff) { System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2); }
     }
 
+    @Override public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        if (srcPts != dstPts || srcOff != dstOff) { System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2); }
+    }
+    @Override public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        for (int i = 0 ; i < numPts * 2 ; i++) { dstPts[dstOff + i] = (float) srcPts[srcOff + i]; }
+    }
+
+    @Override public void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+    @Override public void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+
+    @Override public void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+    @Override public void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+
+    @Override public void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { transform(srcPts, srcOff, dstPts, dstOff, numPts); }
+
     @Override public BaseBounds transform(BaseBounds bounds, BaseBounds result) {
         if (result != bounds) { result = result.deriveWithNewBounds(bounds); }
         return result;
@@ -90,7 +106,7 @@ public final class Identity extends BaseTransform {
         if (result != rect) { result.setBounds(rect); }
     }
 
-    @Override public Shape createTransformedShape(Shape s) { return new Path(s); }
+    @Override public Shape createTransformedShape(Shape s) { return new TransformedShape(s, this); }
 
     @Override public void setToIdentity() { }
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import java.util.Optional;
+
+
+// Vectorized point loops for AffineBase. The implementation is compiled for Java 16+ into
+// META-INF/versions/16 of the jar and only used if jdk.incubator.vector is in the boot layer
+// (--add-modules jdk.incubator.vector), otherwise INSTANCE is null and the scalar loops are used.
+// Implementations must return bitwise the same results as the scalar loops in AffineBase.
+abstract class PointKernel {
+    static final int         MIN_POINTS = 64;
+    static final PointKernel INSTANCE   = load();
+
+
+    // ******************** Methods *******************************************
+    // dst = (m * src + t), x and y of each point are computed like AffineBase.doTransform
+    abstract void affine(double MXX, double MXY, double MXT, double MYX, double MYY, double MYT, double[] SRC, int SRC_OFF, double[] DST, int DST_OFF, int NUM_PTS);
+
+    abstract void scaleTranslate(double MXX, double MXT, double MYY, double MYT, double[] SRC, int SRC_OFF, double[] DST, int DST_OFF, int NUM_PTS);
+
+    // dst = i * (src - t), x and y of each point are computed like AffineBase.doInverseTransform
+    abstract void inverseAffine(double MXT, double MYT, double IXX, double IXY, double IYX, double IYY, double[] SRC, int SRC_OFF, double[] DST, int DST_OFF, int NUM_PTS);
+
+    abstract void inverseScaleTranslate(double MXT, double MYT, double IXX, double IYY, double[] SRC, int SRC_OFF, double[] DST, int DST_OFF, int NUM_PTS);
+
+    private static PointKernel load() {
+        Optional<Module> vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector");
+        if (vectorModule.isEmpty()) { return null; }
+        try {
+            PointKernel.class.getModule().addReads(vectorModule.get());
+            Class<?> kernelClass = Class.forName("eu.hansolo.fx.geomfx.transform.VectorPointKernel");
+            return (PointKernel) kernelClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // Running from the Java 11 classes only or on a vector species with less than 2 lanes
+            return null;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import eu.hansolo.fx.geomfx.BaseBounds;
+import eu.hansolo.fx.geomfx.Rect;
+import eu.hansolo.fx.geomfx.RectBounds;
+import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.TransformedShape;
+import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
+import eu.hansolo.fx.geomfx.tools.Point;
+
+
+// 3x3 homography, x' = (mxx * x + mxy * y + mxt) / w and y' = (myx * x + myy * y + myt) / w with w = mwx * x + mwy * y + mwt.
+// Lines stay lines but curves do not, so shape iterators flatten curves in device space when they get a perspective transform.
+public class Projective extends BaseTransform {
+    protected double mxx, mxy, mxt;
+    protected double myx, myy, myt;
+    protected double mwx, mwy, mwt;
+    // Adjugate of the matrix, a homography is only defined up to scale so the adjugate works as the inverse
+    private transient double  ixx, ixy, ixt;
+    private transient double  iyx, iyy, iyt;
+    private transient double  iwx, iwy, iwt;
+    private transient boolean inverseValid;
+
+    // Maps the unit square (0,0), (1,0), (1,1), (0,1) onto the quad given as x0, y0, ... x3, y3
+    public static Projective getSquareToQuadInstance(double[] quad) {
+        double x0 = quad[0], y0 = quad[1], x1 = quad[2], y1 = quad[3];
+        double x2 = quad[4], y2 = quad[5], x3 = quad[6], y3 = quad[7];
+        double sx = x0 - x1 + x2 - x3;
+        double sy = y0 - y1 + y2 - y3;
+        if (sx == 0.0 && sy == 0.0) {
+            return new Projective(x1 - x0, x2 - x1, x0,
+                                  y1 - y0, y2 - y1, y0,
+                                  0.0, 0.0, 1.0);
+        }
+        double dx1 = x1 - x2, dx2 = x3 - x2;
+        double dy1 = y1 - y2, dy2 = y3 - y2;
+        double den = dx1 * dy2 - dx2 * dy1;
+        if (den == 0.0) { throw new IllegalArgumentException("Degenerate quad"); }
+        double g = (sx * dy2 - dx2 * sy) / den;
+        double h = (dx1 * sy - sx * dy1) / den;
+        return new Projective(x1 - x0 + g * x1, x3 - x0 + h * x3, x0,
+                              y1 - y0 + g * y1, y3 - y0 + h * y3, y0,
+                              g, h, 1.0);
+    }
+
+    // Maps the quad src onto the quad dst, both given as x0, y0, ... x3, y3, e.g. a map tile onto its tilted footprint
+    public static Projective getQuadToQuadInstance(double[] src, double[] dst) throws NonInvertibleTransformException {
+        Projective projective = getSquareToQuadInstance(src);
+        projective.invert();
+        projective.preConcatenate(getSquareToQuadInstance(dst));
+        return projective;
+    }
+
+    public Projective() {
+        mxx = myy = mwt = 1.0;
+    }
+    public Projective(double mxx, double mxy, double mxt,
+                      double myx, double myy, double myt,
+                      double mwx, double mwy, double mwt) {
+        setTransform(mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt);
+    }
+    public Projective(BaseTransform tx) {
+        setTransform(tx);
+    }
+
+    @Override public Degree getDegree() { return Degree.PROJECTIVE; }
+
+    @Override public int getType() {
+        if (hasPerspective()) { return TYPE_PROJECTIVE; }
+        // Type of the Affine this transform equals, see toAffine()
+        double xx = mxx / mwt, xy = mxy / mwt;
+        double yx = myx / mwt, yy = myy / mwt;
+        return AffineBase.calculateType(AffineBase.calculateState(xx, xy, mxt / mwt, yx, yy, myt / mwt), xx, xy, yx, yy);
+    }
+
+    public boolean hasPerspective() { return mwx != 0.0 || mwy != 0.0; }
+
+    public static boolean isPerspective(BaseTransform tx) { return tx instanceof Projective && ((Projective) tx).hasPerspective(); }
+
+    // The Affine this transform equals without perspective, used where an Affine concatenates or copies a Projective
+    Affine toAffine() {
+        if (hasPerspective()) { throw new IllegalArgumentException("Perspective transform cannot be applied to an affine transform"); }
+        return new Affine(mxx / mwt, myx / mwt, mxy / mwt, myy / mwt, mxt / mwt, myt / mwt);
+    }
+
+    @Override public boolean isIdentity() {
+        return mxx == 1.0 && mxy == 0.0 && mxt == 0.0 && myx == 0.0 && myy == 1.0 && myt == 0.0 && mwx == 0.0 && mwy == 0.0 && mwt == 1.0;
+    }
+
+    @Override public boolean isTranslateOrIdentity() {
+        return mxx == 1.0 && mxy == 0.0 && myx == 0.0 && myy == 1.0 && mwx == 0.0 && mwy == 0.0 && mwt == 1.0;
+    }
+
+    @Override public double getDeterminant() {
+        return mxx * (myy * mwt - myt * mwy) - mxy * (myx * mwt - myt * mwx) + mxt * (myx * mwy - myy * mwx);
+    }
+
+    @Override public double getMxx() { return mxx; }
+    @Override public double getMxy() { return mxy; }
+    @Override public double getMxt() { return mxt; }
+    @Override public double getMyx() { return myx; }
+    @Override public double getMyy() { return myy; }
+    @Override public double getMyt() { return myt; }
+    public double getMwx() { return mwx; }
+    public double getMwy() { return mwy; }
+    public double getMwt() { return mwt; }
+
+    private void updateInverse() throws NonInvertibleTransformException {
+        if (inverseValid) { return; }
+        double det = getDeterminant();
+        if (det == 0 || Math.abs(det) <= Double.MIN_VALUE) { throw new NonInvertibleTransformException("Determinant is " + det); }
+        ixx = myy * mwt - myt * mwy; ixy = mxt * mwy - mxy * mwt; ixt = mxy * myt - mxt * myy;
+        iyx = myt * mwx - myx * mwt; iyy = mxx * mwt - mxt * mwx; iyt = mxt * myx - mxx * myt;
+        iwx = myx * mwy - myy * mwx; iwy = mxy * mwx - mxx * mwy; iwt = mxx * myy - mxy * myx;
+        inverseValid = true;
+    }
+
+    @Override public Point transform(Point src, Point dst) {
+        if (dst == null) dst = makePoint(src, dst);
+        double x = src.x;
+        double y = src.y;
+        double w = mwx * x + mwy * y + mwt;
+        dst.set((mxx * x + mxy * y + mxt) / w, (myx * x + myy * y + myt) / w);
+        return dst;
+    }
+
+    @Override public Point inverseTransform(Point src, Point dst) throws NonInvertibleTransformException {
+        updateInverse();
+        if (dst == null) dst = makePoint(src, dst);
+        double x = src.x;
+        double y = src.y;
+        double w = iwx * x + iwy * y + iwt;
+        dst.set((ixx * x + ixy * y + ixt) / w, (iyx * x + iyy * y + iyt) / w);
+        return dst;
+    }
+
+    @Override public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt);
+    }
+    @Override public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt);
+    }
+    @Override public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt);
+    }
+
+    @Override public void inverseTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, ixt, iyx, iyy, iyt, iwx, iwy, iwt);
+    }
+    @Override public void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, ixt, iyx, iyy, iyt, iwx, iwy, iwt);
+    }
+    @Override public void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, ixt, iyx, iyy, iyt, iwx, iwy, iwt);
+    }
+
+    // The image of a vector depends on where it starts under perspective, so deltas are only defined for the affine case
+    @Override public void deltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        checkAffine();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, 0, myx, myy, 0, 0, 0, mwt);
+    }
+    @Override public void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        checkAffine();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, 0, myx, myy, 0, 0, 0, mwt);
+    }
+    @Override public void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        checkAffine();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, mxx, mxy, 0, myx, myy, 0, 0, 0, mwt);
+    }
+
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkAffine();
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, 0, iyx, iyy, 0, 0, 0, iwt);
+    }
+    @Override public void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkAffine();
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, 0, iyx, iyy, 0, 0, 0, iwt);
+    }
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkAffine();
+        updateInverse();
+        project(srcPts, srcOff, dstPts, dstOff, numPts, ixx, ixy, 0, iyx, iyy, 0, 0, 0, iwt);
+    }
+
+    private void checkAffine() {
+        if (hasPerspective()) { degreeError(Degree.AFFINE); }
+    }
+
+    static void project(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts,
+                        double mxx, double mxy, double mxt, double myx, double myy, double myt, double mwx, double mwy, double mwt) {
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        for (int i = 0; i < numPts; i++) {
+            double x = srcPts[srcOff++];
+            double y = srcPts[srcOff++];
+            double w = mwx * x + mwy * y + mwt;
+            dstPts[dstOff++] = (mxx * x + mxy * y + mxt) / w;
+            dstPts[dstOff++] = (myx * x + myy * y + myt) / w;
+        }
+    }
+    static void project(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts,
+                        double mxx, double mxy, double mxt, double myx, double myy, double myt, double mwx, double mwy, double mwt) {
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        for (int i = 0; i < numPts; i++) {
+            double x = srcPts[srcOff++];
+            double y = srcPts[srcOff++];
+            double w = mwx * x + mwy * y + mwt;
+            dstPts[dstOff++] = (float) ((mxx * x + mxy * y + mxt) / w);
+            dstPts[dstOff++] = (float) ((myx * x + myy * y + myt) / w);
+        }
+    }
+    static void project(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts,
+                        double mxx, double mxy, double mxt, double myx, double myy, double myt, double mwx, double mwy, double mwt) {
+        for (int i = 0; i < numPts; i++) {
+            double x = srcPts[srcOff++];
+            double y = srcPts[srcOff++];
+            double w = mwx * x + mwy * y + mwt;
+            dstPts[dstOff++] = (float) ((mxx * x + mxy * y + mxt) / w);
+            dstPts[dstOff++] = (float) ((myx * x + myy * y + myt) / w);
+        }
+    }
+
+    // The image of a rectangle is a convex quad as long as w keeps its sign on all corners, otherwise it reaches through the horizon and is unbounded
+    @Override public BaseBounds transform(BaseBounds bounds, BaseBounds result) {
+        return projectBounds(bounds, result, mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt);
+    }
+    @Override public void transform(Rect rect, Rect result) {
+        result.setBounds(transform(new RectBounds(rect), new RectBounds()));
+    }
+
+    @Override public BaseBounds inverseTransform(BaseBounds bounds, BaseBounds result) throws NonInvertibleTransformException {
+        updateInverse();
+        return projectBounds(bounds, result, ixx, ixy, ixt, iyx, iyy, iyt, iwx, iwy, iwt);
+    }
+    @Override public void inverseTransform(Rect rect, Rect result) throws NonInvertibleTransformException {
+        result.setBounds(inverseTransform(new RectBounds(rect), new RectBounds()));
+    }
+
+    static BaseBounds projectBounds(BaseBounds bounds, BaseBounds result,
+                                    double mxx, double mxy, double mxt, double myx, double myy, double myt, double mwx, double mwy, double mwt) {
+        double[] corners = { bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMinY(),
+                             bounds.getMaxX(), bounds.getMaxY(), bounds.getMinX(), bounds.getMaxY() };
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        int    sign = 0;
+        for (int i = 0; i < 8; i += 2) {
+            double x = corners[i];
+            double y = corners[i + 1];
+            double w = mwx * x + mwy * y + mwt;
+            int    s = w > 0 ? 1 : (w < 0 ? -1 : 0);
+            if (s == 0 || (sign != 0 && s != sign)) {
+                return result.deriveWithNewBounds(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+            }
+            sign = s;
+            double px = (mxx * x + mxy * y + mxt) / w;
+            double py = (myx * x + myy * y + myt) / w;
+            minX = Math.min(minX, px);
+            minY = Math.min(minY, py);
+            maxX = Math.max(maxX, px);
+            maxY = Math.max(maxY, py);
+        }
+        return result.deriveWithNewBounds(minX, minY, maxX, maxY);
+    }
+
+    @Override public Shape createTransformedShape(Shape s) { return new TransformedShape(s, this); }
+
+    public void setTransform(double mxx, double mxy, double mxt,
+                             double myx, double myy, double myt,
+                             double mwx, double mwy, double mwt) {
+        this.mxx = mxx; this.mxy = mxy; this.mxt = mxt;
+        this.myx = myx; this.myy = myy; this.myt = myt;
+        this.mwx = mwx; this.mwy = mwy; this.mwt = mwt;
+        inverseValid = false;
+    }
+
+    @Override public void setToIdentity() { setTransform(1, 0, 0, 0, 1, 0, 0, 0, 1); }
+
+    @Override public void setTransform(BaseTransform tx) {
+        if (tx instanceof Projective) {
+            Projective p = (Projective) tx;
+            setTransform(p.mxx, p.mxy, p.mxt, p.myx, p.myy, p.myt, p.mwx, p.mwy, p.mwt);
+        } else {
+            setTransform(tx.getMxx(), tx.getMxy(), tx.getMxt(), tx.getMyx(), tx.getMyy(), tx.getMyt(), 0, 0, 1);
+        }
+    }
+
+    @Override public void invert() throws NonInvertibleTransformException {
+        updateInverse();
+        setTransform(ixx, ixy, ixt, iyx, iyy, iyt, iwx, iwy, iwt);
+        normalize();
+    }
+
+    // Scales the matrix to mwt == 1 where possible, which keeps the affine getters meaningful after inversion
+    private void normalize() {
+        if (mwt == 0.0 || mwt == 1.0) { return; }
+        double s = 1.0 / mwt;
+        setTransform(mxx * s, mxy * s, mxt * s, myx * s, myy * s, myt * s, mwx * s, mwy * s, 1.0);
+    }
+
+    @Override public void restoreTransform(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        setTransform(mxx, mxy, mxt, myx, myy, myt, 0, 0, 1);
+    }
+
+    @Override public void restoreTransform(double mxx, double mxy, double mxz, double mxt,
+                                           double myx, double myy, double myz, double myt,
+                                           double mzx, double mzy, double mzz, double mzt) {
+        if (mxz != 0.0 || myz != 0.0 || mzx != 0.0 || mzy != 0.0 || mzz != 1.0 || mzt != 0.0) { degreeError(Degree.PROJECTIVE); }
+        restoreTransform(mxx, myx, mxy, myy, mxt, myt);
+    }
+
+    // this = this * [txx txy txt, tyx tyy tyt, twx twy twt]
+    private void concatenate(double txx, double txy, double txt, double tyx, double tyy, double tyt, double twx, double twy, double twt) {
+        setTransform(mxx * txx + mxy * tyx + mxt * twx, mxx * txy + mxy * tyy + mxt * twy, mxx * txt + mxy * tyt + mxt * twt,
+                     myx * txx + myy * tyx + myt * twx, myx * txy + myy * tyy + myt * twy, myx * txt + myy * tyt + myt * twt,
+                     mwx * txx + mwy * tyx + mwt * twx, mwx * txy + mwy * tyy + mwt * twy, mwx * txt + mwy * tyt + mwt * twt);
+    }
+    // this = [txx txy txt, tyx tyy tyt, twx twy twt] * this
+    private void preConcatenate(double txx, double txy, double txt, double tyx, double tyy, double tyt, double twx, double twy, double twt) {
+        setTransform(txx * mxx + txy * myx + txt * mwx, txx * mxy + txy * myy + txt * mwy, txx * mxt + txy * myt + txt * mwt,
+                     tyx * mxx + tyy * myx + tyt * mwx, tyx * mxy + tyy * myy + tyt * mwy, tyx * mxt + tyy * myt + tyt * mwt,
+                     twx * mxx + twy * myx + twt * mwx, twx * mxy + twy * myy + twt * mwy, twx * mxt + twy * myt + twt * mwt);
+    }
+
+    public void concatenate(BaseTransform tx) {
+        if (tx instanceof Projective) {
+            Projective p = (Projective) tx;
+            concatenate(p.mxx, p.mxy, p.mxt, p.myx, p.myy, p.myt, p.mwx, p.mwy, p.mwt);
+        } else {
+            concatenate(tx.getMxx(), tx.getMxy(), tx.getMxt(), tx.getMyx(), tx.getMyy(), tx.getMyt(), 0, 0, 1);
+        }
+    }
+
+    public void preConcatenate(BaseTransform tx) {
+        if (tx instanceof Projective) {
+            Projective p = (Projective) tx;
+            preConcatenate(p.mxx, p.mxy, p.mxt, p.myx, p.myy, p.myt, p.mwx, p.mwy, p.mwt);
+        } else {
+            preConcatenate(tx.getMxx(), tx.getMxy(), tx.getMxt(), tx.getMyx(), tx.getMyy(), tx.getMyt(), 0, 0, 1);
+        }
+    }
+
+    @Override public BaseTransform deriveWithTranslation(double mxt, double myt) {
+        concatenate(1, 0, mxt, 0, 1, myt, 0, 0, 1);
+        return this;
+    }
+
+    @Override public BaseTransform deriveWithPreTranslation(double mxt, double myt) {
+        preConcatenate(1, 0, mxt, 0, 1, myt, 0, 0, 1);
+        return this;
+    }
+
+    @Override public BaseTransform deriveWithConcatenation(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        concatenate(mxx, mxy, mxt, myx, myy, myt, 0, 0, 1);
+        return this;
+    }
+    @Override public BaseTransform deriveWithConcatenation(BaseTransform tx) {
+        concatenate(tx);
+        return this;
+    }
+
+    @Override public BaseTransform deriveWithPreConcatenation(BaseTransform tx) {
+        preConcatenate(tx);
+        return this;
+    }
+
+    @Override public BaseTransform deriveWithNewTransform(BaseTransform tx) {
+        setTransform(tx);
+        return this;
+    }
+
+    @Override public Projective createInverse() throws NonInvertibleTransformException {
+        Projective inverse = new Projective(this);
+        inverse.invert();
+        return inverse;
+    }
+
+    @Override public Projective copy() { return new Projective(this); }
+
+    @Override public boolean equals(Object obj) {
+        // Only other projective transforms, the affine transforms never report being equal to a Projective
+        if (!(obj instanceof Projective)) { return false; }
+        Projective p = (Projective) obj;
+        return mxx == p.mxx && mxy == p.mxy && mxt == p.mxt &&
+               myx == p.myx && myy == p.myy && myt == p.myt &&
+               mwx == p.mwx && mwy == p.mwy && mwt == p.mwt;
+    }
+
+    @Override public int hashCode() {
+        long bits = 7;
+        for (double m : new double[] { mxx, mxy, mxt, myx, myy, myt, mwx, mwy, mwt }) {
+            // Adding 0.0 turns -0.0 into 0.0 because equals() treats them as equal
+            bits = 31 * bits + Double.doubleToLongBits(m + 0.0);
+        }
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override public String toString() {
+        return "Projective[[" + mxx + ", " + mxy + ", " + mxt + "], [" + myx + ", " + myy + ", " + myt + "], [" + mwx + ", " + mwy + ", " + mwt + "]]";
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
+
+
+// Axis aligned scale without translation
+public class Scale extends ScaleTranslate {
+
+    public static BaseTransform getInstance(double sx, double sy) {
+        if (sx == 1.0 && sy == 1.0) {
+            return IDENTITY_TRANSFORM;
+        } else {
+            return new Scale(sx, sy);
+        }
+    }
+
+    public Scale(double sx, double sy) {
+        super(sx, sy, 0, 0);
+    }
+    public Scale(BaseTransform tx) {
+        super(tx);
+        if (mxt != 0.0 || myt != 0.0) { degreeError(Degree.SCALE); }
+    }
+
+    @Override public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        double sx = this.mxx;
+        double sy = this.myy;
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = srcPts[srcOff++] * sx;
+            dstPts[dstOff++] = srcPts[srcOff++] * sy;
+        }
+    }
+
+    @Override public void inverseTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        inverseDeltaTransform(srcPts, srcOff, dstPts, dstOff, numPts);
+    }
+
+    @Override public void deltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        transform(srcPts, srcOff, dstPts, dstOff, numPts);
+    }
+
+    @Override protected boolean canHold(double mxt, double myt) { return mxt == 0.0 && myt == 0.0; }
+
+    @Override public BaseTransform createInverse() throws NonInvertibleTransformException {
+        checkInvertible();
+        return new Scale(1.0 / mxx, 1.0 / myy);
+    }
+
+    @Override public BaseTransform copy() { return new Scale(mxx, myy); }
+
+    @Override public String toString() { return "Scale[" + mxx + ", " + myy + "]"; }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import eu.hansolo.fx.geomfx.BaseBounds;
+import eu.hansolo.fx.geomfx.Rect;
+import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.TransformedShape;
+import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
+import eu.hansolo.fx.geomfx.tools.Point;
+
+
+// Axis aligned scale followed by a translation, the zoom and pan case
+public class ScaleTranslate extends BaseTransform {
+    protected double mxx;
+    protected double myy;
+    protected double mxt;
+    protected double myt;
+
+    public static BaseTransform getInstance(double mxx, double myy, double mxt, double myt) {
+        if (mxx == 1.0 && myy == 1.0) {
+            return Translate.getInstance(mxt, myt);
+        } else if (mxt == 0.0 && myt == 0.0) {
+            return new Scale(mxx, myy);
+        } else {
+            return new ScaleTranslate(mxx, myy, mxt, myt);
+        }
+    }
+
+    public ScaleTranslate(double sx, double sy, double tx, double ty) {
+        this.mxx = sx;
+        this.myy = sy;
+        this.mxt = tx;
+        this.myt = ty;
+    }
+    public ScaleTranslate(BaseTransform tx) {
+        if (tx.getMxy() != 0.0 || tx.getMyx() != 0.0) { degreeError(Degree.SCALE); }
+        this.mxx = tx.getMxx();
+        this.myy = tx.getMyy();
+        this.mxt = tx.getMxt();
+        this.myt = tx.getMyt();
+    }
+
+    @Override public Degree getDegree() { return Degree.SCALE; }
+
+    @Override public double getDeterminant() { return mxx * myy; }
+
+    @Override public double getMxx() { return mxx; }
+    @Override public double getMyy() { return myy; }
+    @Override public double getMxt() { return mxt; }
+    @Override public double getMyt() { return myt; }
+
+    @Override public int getType() {
+        int type = (mxt == 0.0 && myt == 0.0) ? TYPE_IDENTITY : TYPE_TRANSLATION;
+        if (mxx == myy) {
+            if (mxx == 1.0) { return type; }
+            type |= mxx < 0 ? TYPE_QUADRANT_ROTATION : 0;
+            return mxx == -1.0 ? type : type | TYPE_UNIFORM_SCALE;
+        } else if (mxx == -myy) {
+            type |= TYPE_FLIP;
+            return Math.abs(mxx) == 1.0 ? type : type | TYPE_UNIFORM_SCALE;
+        }
+        type |= TYPE_GENERAL_SCALE;
+        if (mxx < 0 && myy < 0) {
+            type |= TYPE_QUADRANT_ROTATION;
+        } else if (mxx < 0 || myy < 0) {
+            type |= TYPE_FLIP;
+        }
+        return type;
+    }
+
+    @Override public boolean isIdentity() { return mxx == 1.0 && myy == 1.0 && mxt == 0.0 && myt == 0.0; }
+
+    @Override public boolean isTranslateOrIdentity() { return mxx == 1.0 && myy == 1.0; }
+
+    @Override public Point transform(Point src, Point dst) {
+        if (dst == null) dst = makePoint(src, dst);
+        dst.set(
+            (src.x * mxx + mxt),
+            (src.y * myy + myt));
+        return dst;
+    }
+
+    @Override public Point inverseTransform(Point src, Point dst) throws NonInvertibleTransformException {
+        checkInvertible();
+        if (dst == null) dst = makePoint(src, dst);
+        dst.set(
+            ((src.x - mxt) / mxx),
+            ((src.y - myt) / myy));
+        return dst;
+    }
+
+    @Override public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, mxt, myt);
+    }
+    @Override public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, mxt, myt);
+    }
+    @Override public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, mxt, myt);
+    }
+
+    @Override public void deltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, 0, 0);
+    }
+    @Override public void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, 0, 0);
+    }
+    @Override public void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) {
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, mxx, myy, 0, 0);
+    }
+
+    // The inverse of x * s + t is x * (1 / s) - t / s
+    @Override public void inverseTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, -mxt / mxx, -myt / myy);
+    }
+    @Override public void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, -mxt / mxx, -myt / myy);
+    }
+    @Override public void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, -mxt / mxx, -myt / myy);
+    }
+
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, 0, 0);
+    }
+    @Override public void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, 0, 0);
+    }
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws NonInvertibleTransformException {
+        checkInvertible();
+        scale(srcPts, srcOff, dstPts, dstOff, numPts, 1.0 / mxx, 1.0 / myy, 0, 0);
+    }
+
+    // Points are processed pairwise, so overlapping arrays only need a copy if the destination starts inside the source
+    static void scale(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts, double sx, double sy, double tx, double ty) {
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = srcPts[srcOff++] * sx + tx;
+            dstPts[dstOff++] = srcPts[srcOff++] * sy + ty;
+        }
+    }
+    static void scale(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, double sx, double sy, double tx, double ty) {
+        if (dstPts == srcPts && dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+            srcOff = dstOff;
+        }
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] * sx + tx);
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] * sy + ty);
+        }
+    }
+    static void scale(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, double sx, double sy, double tx, double ty) {
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] * sx + tx);
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] * sy + ty);
+        }
+    }
+
+    @Override public BaseBounds transform(BaseBounds bounds, BaseBounds result) {
+        double x1 = bounds.getMinX() * mxx + mxt;
+        double x2 = bounds.getMaxX() * mxx + mxt;
+        double y1 = bounds.getMinY() * myy + myt;
+        double y2 = bounds.getMaxY() * myy + myt;
+        return result.deriveWithNewBounds(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+    }
+    @Override public void transform(Rect rect, Rect result) { transform(rect, result, mxx, myy, mxt, myt); }
+
+    @Override public BaseBounds inverseTransform(BaseBounds bounds, BaseBounds result) throws NonInvertibleTransformException {
+        checkInvertible();
+        double x1 = (bounds.getMinX() - mxt) / mxx;
+        double x2 = (bounds.getMaxX() - mxt) / mxx;
+        double y1 = (bounds.getMinY() - myt) / myy;
+        double y2 = (bounds.getMaxY() - myt) / myy;
+        return result.deriveWithNewBounds(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2));
+    }
+    @Override public void inverseTransform(Rect rect, Rect result) throws NonInvertibleTransformException {
+        checkInvertible();
+        transform(rect, result, 1.0 / mxx, 1.0 / myy, -mxt / mxx, -myt / myy);
+    }
+
+    static void transform(Rect rect, Rect result, double sx, double sy, double tx, double ty) {
+        double x1 = rect.x * sx + tx;
+        double x2 = (rect.x + rect.width) * sx + tx;
+        double y1 = rect.y * sy + ty;
+        double y2 = (rect.y + rect.height) * sy + ty;
+        double minX = Math.floor(Math.min(x1, x2));
+        double minY = Math.floor(Math.min(y1, y2));
+        double maxX = Math.ceil(Math.max(x1, x2));
+        double maxY = Math.ceil(Math.max(y1, y2));
+        result.setBounds((int) minX, (int) minY, (int) (maxX - minX), (int) (maxY - minY));
+    }
+
+    @Override public Shape createTransformedShape(Shape s) { return new TransformedShape(s, this); }
+
+    protected void checkInvertible() throws NonInvertibleTransformException {
+        if (mxx == 0.0 || myy == 0.0) { throw new NonInvertibleTransformException("Determinant is 0"); }
+    }
+
+    // Returns true if the given translation can be stored, Scale only holds a zero translation
+    protected boolean canHold(double mxt, double myt) { return true; }
+
+    // Stores the given matrix if this type is able to represent it, otherwise the narrowest matching instance is returned
+    protected BaseTransform derive(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        if (myx == 0.0 && mxy == 0.0 && canHold(mxt, myt)) {
+            this.mxx = mxx;
+            this.myy = myy;
+            this.mxt = mxt;
+            this.myt = myt;
+            return this;
+        }
+        return getInstance(mxx, myx, mxy, myy, mxt, myt);
+    }
+
+    @Override public void setToIdentity() {
+        this.mxx = this.myy = 1.0;
+        this.mxt = this.myt = 0.0;
+    }
+
+    @Override public void setTransform(BaseTransform xform) {
+        if (xform.getDegree() == Degree.PROJECTIVE || xform.getMxy() != 0.0 || xform.getMyx() != 0.0 || !canHold(xform.getMxt(), xform.getMyt())) { degreeError(getDegree()); }
+        this.mxx = xform.getMxx();
+        this.myy = xform.getMyy();
+        this.mxt = xform.getMxt();
+        this.myt = xform.getMyt();
+    }
+
+    @Override public void invert() throws NonInvertibleTransformException {
+        checkInvertible();
+        this.mxt = -this.mxt / this.mxx;
+        this.myt = -this.myt / this.myy;
+        this.mxx = 1.0 / this.mxx;
+        this.myy = 1.0 / this.myy;
+    }
+
+    @Override public void restoreTransform(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        if (myx != 0.0 || mxy != 0.0 || !canHold(mxt, myt)) { degreeError(getDegree()); }
+        this.mxx = mxx;
+        this.myy = myy;
+        this.mxt = mxt;
+        this.myt = myt;
+    }
+
+    @Override public void restoreTransform(double mxx, double mxy, double mxz, double mxt,
+                                           double myx, double myy, double myz, double myt,
+                                           double mzx, double mzy, double mzz, double mzt) {
+        if (mxz != 0.0 || myz != 0.0 || mzx != 0.0 || mzy != 0.0 || mzz != 1.0 || mzt != 0.0) { degreeError(getDegree()); }
+        restoreTransform(mxx, myx, mxy, myy, mxt, myt);
+    }
+
+    @Override public BaseTransform deriveWithTranslation(double mxt, double myt) {
+        return derive(this.mxx, 0, 0, this.myy, this.mxx * mxt + this.mxt, this.myy * myt + this.myt);
+    }
+
+    @Override public BaseTransform deriveWithPreTranslation(double mxt, double myt) {
+        return derive(this.mxx, 0, 0, this.myy, this.mxt + mxt, this.myt + myt);
+    }
+
+    @Override public BaseTransform deriveWithConcatenation(double mxx, double myx, double mxy, double myy, double mxt, double myt) {
+        return derive(this.mxx * mxx, this.myy * myx, this.mxx * mxy, this.myy * myy, this.mxx * mxt + this.mxt, this.myy * myt + this.myt);
+    }
+    @Override public BaseTransform deriveWithConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithConcatenation(tx); }
+        return deriveWithConcatenation(tx.getMxx(), tx.getMyx(), tx.getMxy(), tx.getMyy(), tx.getMxt(), tx.getMyt());
+    }
+
+    @Override public BaseTransform deriveWithPreConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithPreConcatenation(tx); }
+        double txx = tx.getMxx(), txy = tx.getMxy(), tyx = tx.getMyx(), tyy = tx.getMyy();
+        return derive(txx * this.mxx, tyx * this.mxx, txy * this.myy, tyy * this.myy,
+                      txx * this.mxt + txy * this.myt + tx.getMxt(), tyx * this.mxt + tyy * this.myt + tx.getMyt());
+    }
+
+    @Override public BaseTransform deriveWithNewTransform(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(tx); }
+        return derive(tx.getMxx(), tx.getMyx(), tx.getMxy(), tx.getMyy(), tx.getMxt(), tx.getMyt());
+    }
+
+    @Override public BaseTransform createInverse() throws NonInvertibleTransformException {
+        checkInvertible();
+        return getInstance(1.0 / mxx, 1.0 / myy, -mxt / mxx, -myt / myy);
+    }
+
+    @Override public BaseTransform copy() { return new ScaleTranslate(mxx, myy, mxt, myt); }
+
+    @Override public String toString() { return "ScaleTranslate[" + mxx + ", " + myy + ", " + mxt + ", " + myt + "]"; }
+}
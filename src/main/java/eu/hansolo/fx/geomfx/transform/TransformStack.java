@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import eu.hansolo.fx.geomfx.tools.NonInvertibleTransformException;
+
+import java.util.Arrays;
+
+
+// Stack of composed transforms for nested groups that reuses preallocated slots, so push/concatenate/pop allocate nothing.
+// The transforms returned by getTransform() and getInverse() belong to the stack and are valid until their level is changed or popped.
+public class TransformStack {
+    private static final int DEFAULT_CAPACITY = 16;
+    private Affine[]         transforms;
+    private Translate[]      translates;
+    private ScaleTranslate[] scaleTranslates;
+    private Affine[]         inverses;
+    private Translate[]      inverseTranslates;
+    private ScaleTranslate[] inverseScaleTranslates;
+    private boolean[]        inverseValid;
+    private int              depth;
+
+
+    // ******************** Constructors **************************************
+    public TransformStack() { this(DEFAULT_CAPACITY); }
+    public TransformStack(final int CAPACITY) {
+        if (CAPACITY < 1) { throw new IllegalArgumentException("Capacity must be > 0"); }
+        transforms             = new Affine[CAPACITY];
+        translates             = new Translate[CAPACITY];
+        scaleTranslates        = new ScaleTranslate[CAPACITY];
+        inverses               = new Affine[CAPACITY];
+        inverseTranslates      = new Translate[CAPACITY];
+        inverseScaleTranslates = new ScaleTranslate[CAPACITY];
+        inverseValid           = new boolean[CAPACITY];
+        fill(0);
+        depth = 0;
+    }
+
+
+    // ******************** Methods *******************************************
+    public int getDepth() { return depth; }
+
+    // Saves the current transform, the new level starts as a copy of it
+    public void push() {
+        if (depth + 1 == transforms.length) { grow(); }
+        Affine current = transforms[depth];
+        depth++;
+        transforms[depth].setTransform(current);
+        inverseValid[depth] = inverseValid[depth - 1];
+        if (inverseValid[depth]) { inverses[depth].setTransform(inverses[depth - 1]); }
+    }
+
+    public void pop() {
+        if (depth == 0) { throw new IllegalStateException("TransformStack is empty"); }
+        depth--;
+    }
+
+    // Drops all levels and resets the base level to identity
+    public void reset() {
+        depth = 0;
+        setToIdentity();
+    }
+
+    public void setToIdentity() {
+        transforms[depth].setToIdentity();
+        inverses[depth].setToIdentity();
+        inverseValid[depth] = true;
+    }
+
+    // The stack is affine only, a Projective with perspective throws an IllegalArgumentException (see Affine.setTransform/concatenate)
+    public void setTransform(final BaseTransform TRANSFORM) {
+        transforms[depth].setTransform(TRANSFORM);
+        inverseValid[depth] = false;
+    }
+
+    public void concatenate(final BaseTransform TRANSFORM) {
+        if (TRANSFORM.isIdentity()) { return; }
+        transforms[depth].concatenate(TRANSFORM);
+        inverseValid[depth] = false;
+    }
+
+    public void translate(final double TX, final double TY) {
+        transforms[depth].translate(TX, TY);
+        inverseValid[depth] = false;
+    }
+
+    public void scale(final double SX, final double SY) {
+        transforms[depth].scale(SX, SY);
+        inverseValid[depth] = false;
+    }
+
+    public void rotate(final double THETA) {
+        transforms[depth].rotate(THETA);
+        inverseValid[depth] = false;
+    }
+
+    // Returns the cheapest representation of the current transform (Identity, Translate, ScaleTranslate or Affine)
+    public BaseTransform getTransform() {
+        Affine current = transforms[depth];
+        if (current.isIdentity()) { return BaseTransform.IDENTITY_TRANSFORM; }
+        if (current.isTranslateOrIdentity()) {
+            Translate translate = translates[depth];
+            translate.restoreTransform(1, 0, 0, 1, current.getMxt(), current.getMyt());
+            return translate;
+        }
+        if (current.getMxy() == 0.0 && current.getMyx() == 0.0) {
+            ScaleTranslate scaleTranslate = scaleTranslates[depth];
+            scaleTranslate.restoreTransform(current.getMxx(), 0, 0, current.getMyy(), current.getMxt(), current.getMyt());
+            return scaleTranslate;
+        }
+        return current;
+    }
+
+    public BaseTransform getInverse() throws NonInvertibleTransformException {
+        Affine current = transforms[depth];
+        if (current.isIdentity()) { return BaseTransform.IDENTITY_TRANSFORM; }
+        if (current.isTranslateOrIdentity()) {
+            Translate inverse = inverseTranslates[depth];
+            inverse.restoreTransform(1, 0, 0, 1, -current.getMxt(), -current.getMyt());
+            return inverse;
+        }
+        Affine inverse = inverses[depth];
+        if (!inverseValid[depth]) {
+            inverse.setTransform(current);
+            inverse.invert();
+            inverseValid[depth] = true;
+        }
+        // The ScaleTranslate is only a view of the cached inverse, like in getTransform()
+        if (current.getMxy() == 0.0 && current.getMyx() == 0.0) {
+            ScaleTranslate scaleTranslate = inverseScaleTranslates[depth];
+            scaleTranslate.restoreTransform(inverse.getMxx(), 0, 0, inverse.getMyy(), inverse.getMxt(), inverse.getMyt());
+            return scaleTranslate;
+        }
+        return inverse;
+    }
+
+    private void grow() {
+        int oldSize            = transforms.length;
+        transforms             = Arrays.copyOf(transforms, oldSize * 2);
+        translates             = Arrays.copyOf(translates, oldSize * 2);
+        scaleTranslates        = Arrays.copyOf(scaleTranslates, oldSize * 2);
+        inverses               = Arrays.copyOf(inverses, oldSize * 2);
+        inverseTranslates      = Arrays.copyOf(inverseTranslates, oldSize * 2);
+        inverseScaleTranslates = Arrays.copyOf(inverseScaleTranslates, oldSize * 2);
+        inverseValid           = Arrays.copyOf(inverseValid, oldSize * 2);
+        fill(oldSize);
+    }
+
+    private void fill(final int FROM) {
+        for (int i = FROM ; i < transforms.length ; i++) {
+            transforms[i]             = new Affine();
+            translates[i]             = new Translate(0, 0);
+            scaleTranslates[i]        = new ScaleTranslate(1, 1, 0, 0);
+            inverses[i]               = new Affine();
+            inverseTranslates[i]      = new Translate(0, 0);
+            inverseScaleTranslates[i] = new ScaleTranslate(1, 1, 0, 0);
+            inverseValid[i]           = true;
+        }
+    }
+}
@@ -18,9 +18,9 @@ package eu.hansolo.fx.geomfx.transform;
 
 
 import eu.hansolo.fx.geomfx.BaseBounds;
-import eu.hansolo.fx.geomfx.Path;
 import eu.hansolo.fx.geomfx.Rect;
 import eu.hansolo.fx.geomfx.Shape;
+import eu.hansolo.fx.geomfx.TransformedShape;
 import eu.hansolo.fx.geomfx.tools.Point;
 
 
@@ -134,6 +134,38 @@ public class Translate extends BaseTransform {
         }
     }
 
+    @Override public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, mxt, myt); }
+    @Override public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, mxt, myt); }
+
+    @Override public void deltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, 0, 0); }
+    @Override public void deltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, 0, 0); }
+
+    @Override public void inverseTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, -mxt, -myt); }
+    @Override public void inverseTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, -mxt, -myt); }
+
+    @Override public void inverseDeltaTransform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, 0, 0); }
+    @Override public void inverseDeltaTransform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) { translate(srcPts, srcOff, dstPts, dstOff, numPts, 0, 0); }
+
+    private static void translate(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, double tx, double ty) {
+        if (dstPts == srcPts) {
+            if (dstOff > srcOff && dstOff < srcOff + numPts * 2) {
+                System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * 2);
+                srcOff = dstOff;
+            }
+            if (dstOff == srcOff && tx == 0 && ty == 0) { return; }
+        }
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] + tx);
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] + ty);
+        }
+    }
+    private static void translate(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts, double tx, double ty) {
+        for (int i = 0; i < numPts; i++) {
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] + tx);
+            dstPts[dstOff++] = (float) (srcPts[srcOff++] + ty);
+        }
+    }
+
     @Override public BaseBounds transform(BaseBounds bounds, BaseBounds result) {
         double minX = (bounds.getMinX() + mxt);
         double minY = (bounds.getMinY() + myt);
@@ -172,7 +204,7 @@ public class Translate extends BaseTransform {
         }
     }
 
-    @Override public Shape createTransformedShape(Shape s) { return new Path(s, this); }
+    @Override public Shape createTransformedShape(Shape s) { return new TransformedShape(s, this); }
 
     @Override public void setToIdentity() { this.mxt = this.myt = 0.0; }
 
@@ -223,10 +255,11 @@ public class Translate extends BaseTransform {
             this.myt += myt;
             return this;
         } else {
-            return new Affine(mxx, myx, mxy, myy, this.mxt + mxt, this.myt + myt);
+            return getInstance(mxx, myx, mxy, myy, this.mxt + mxt, this.myt + myt);
         }
     }
     @Override public BaseTransform deriveWithConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithConcatenation(tx); }
         if (tx.isTranslateOrIdentity()) {
             this.mxt += tx.getMxt();
             this.myt += tx.getMyt();
@@ -238,14 +271,14 @@ public class Translate extends BaseTransform {
     }
 
     @Override public BaseTransform deriveWithPreConcatenation(BaseTransform tx) {
+        if (tx.getDegree() == Degree.PROJECTIVE) { return new Projective(this).deriveWithPreConcatenation(tx); }
         if (tx.isTranslateOrIdentity()) {
             this.mxt += tx.getMxt();
             this.myt += tx.getMyt();
             return this;
         } else {
-            Affine t2d = new Affine(tx);
-            t2d.translate(this.mxt, this.myt);
-            return t2d;
+            double txx = tx.getMxx(), txy = tx.getMxy(), tyx = tx.getMyx(), tyy = tx.getMyy();
+            return getInstance(txx, tyx, txy, tyy, txx * this.mxt + txy * this.myt + tx.getMxt(), tyx * this.mxt + tyy * this.myt + tx.getMyt());
         }
     }
 
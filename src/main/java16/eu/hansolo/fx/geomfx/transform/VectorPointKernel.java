@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017 by Gerrit Grunwald
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package eu.hansolo.fx.geomfx.transform;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+
+// Works on interleaved x/y pairs, even lanes hold x and odd lanes hold y. SWAP exchanges the
+// coordinates of each pair so one multiply covers the cross terms (mxy * y and myx * x).
+// Uses mul/add instead of fma to stay bitwise identical to the scalar loops in AffineBase.
+final class VectorPointKernel extends PointKernel {
+    private static final VectorSpecies<Double>  SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorShuffle<Double>  SWAP    = VectorShuffle.fromOp(SPECIES, i -> i ^ 1);
+
+
+    // ******************** Constructors **************************************
+    VectorPointKernel() {
+        if (SPECIES.length() < 2) { throw new UnsupportedOperationException("Vector species too small"); }
+    }
+
+
+    // ******************** Methods *******************************************
+    @Override void affine(final double MXX, final double MXY, final double MXT, final double MYX, final double MYY, final double MYT, final double[] SRC, final int SRC_OFF, final double[] DST, final int DST_OFF, final int NUM_PTS) {
+        DoubleVector a     = pairs(MXX, MYY);
+        DoubleVector b     = pairs(MXY, MYX);
+        DoubleVector t     = pairs(MXT, MYT);
+        int          len   = NUM_PTS * 2;
+        int          bound = SPECIES.loopBound(len);
+        int          i     = 0;
+        for (; i < bound ; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, SRC, SRC_OFF + i);
+            v.mul(a).add(v.rearrange(SWAP).mul(b)).add(t).intoArray(DST, DST_OFF + i);
+        }
+        for (; i < len ; i += 2) {
+            double x = SRC[SRC_OFF + i];
+            double y = SRC[SRC_OFF + i + 1];
+            DST[DST_OFF + i]     = (MXX * x + MXY * y + MXT);
+            DST[DST_OFF + i + 1] = (MYX * x + MYY * y + MYT);
+        }
+    }
+
+    @Override void scaleTranslate(final double MXX, final double MXT, final double MYY, final double MYT, final double[] SRC, final int SRC_OFF, final double[] DST, final int DST_OFF, final int NUM_PTS) {
+        DoubleVector a     = pairs(MXX, MYY);
+        DoubleVector t     = pairs(MXT, MYT);
+        int          len   = NUM_PTS * 2;
+        int          bound = SPECIES.loopBound(len);
+        int          i     = 0;
+        for (; i < bound ; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, SRC, SRC_OFF + i).mul(a).add(t).intoArray(DST, DST_OFF + i);
+        }
+        for (; i < len ; i += 2) {
+            DST[DST_OFF + i]     = (MXX * SRC[SRC_OFF + i] + MXT);
+            DST[DST_OFF + i + 1] = (MYY * SRC[SRC_OFF + i + 1] + MYT);
+        }
+    }
+
+    @Override void inverseAffine(final double MXT, final double MYT, final double IXX, final double IXY, final double IYX, final double IYY, final double[] SRC, final int SRC_OFF, final double[] DST, final int DST_OFF, final int NUM_PTS) {
+        DoubleVector a     = pairs(IXX, IYY);
+        DoubleVector b     = pairs(IXY, IYX);
+        DoubleVector t     = pairs(MXT, MYT);
+        int          len   = NUM_PTS * 2;
+        int          bound = SPECIES.loopBound(len);
+        int          i     = 0;
+        for (; i < bound ; i += SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(SPECIES, SRC, SRC_OFF + i).sub(t);
+            v.mul(a).add(v.rearrange(SWAP).mul(b)).intoArray(DST, DST_OFF + i);
+        }
+        for (; i < len ; i += 2) {
+            double x = SRC[SRC_OFF + i] - MXT;
+            double y = SRC[SRC_OFF + i + 1] - MYT;
+            DST[DST_OFF + i]     = (x * IXX + y * IXY);
+            DST[DST_OFF + i + 1] = (x * IYX + y * IYY);
+        }
+    }
+
+    @Override void inverseScaleTranslate(final double MXT, final double MYT, final double IXX, final double IYY, final double[] SRC, final int SRC_OFF, final double[] DST, final int DST_OFF, final int NUM_PTS) {
+        DoubleVector a     = pairs(IXX, IYY);
+        DoubleVector t     = pairs(MXT, MYT);
+        int          len   = NUM_PTS * 2;
+        int          bound = SPECIES.loopBound(len);
+        int          i     = 0;
+        for (; i < bound ; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, SRC, SRC_OFF + i).sub(t).mul(a).intoArray(DST, DST_OFF + i);
+        }
+        for (; i < len ; i += 2) {
+            DST[DST_OFF + i]     = ((SRC[SRC_OFF + i] - MXT) * IXX);
+            DST[DST_OFF + i + 1] = ((SRC[SRC_OFF + i + 1] - MYT) * IYY);
+        }
+    }
+
+    private static DoubleVector pairs(final double EVEN, final double ODD) {
+        double[] values = new double[SPECIES.length()];
+        for (int i = 0 ; i < values.length ; i += 2) {
+            values[i]     = EVEN;
+            values[i + 1] = ODD;
+        }
+        return DoubleVector.fromArray(SPECIES, values, 0);
+    }
+}